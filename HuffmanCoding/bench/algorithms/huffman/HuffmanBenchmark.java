@@ -0,0 +1,572 @@
+package algorithms.huffman;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Stand-alone benchmarks for the Huffman module. Compile together with src/ and run with
+//   java -Xmx4g -cp <classes> algorithms.huffman.HuffmanBenchmark [--size <MB>] [--warmup <n>]
+//       [--iterations <n>] [--corpus <file>] [--filter <text>]
+// Every benchmark is warmed up and then timed over several iterations, each of which repeats the operation
+// until it has run for at least MIN_ITERATION_NANOS; the median and best time per operation are reported.
+// Inputs are written to temporary UTF-8 files of the requested size (up to 1024 MB), except for the haiku.
+public class HuffmanBenchmark {
+    private static final long MIN_ITERATION_NANOS = 200_000_000L;
+    private static final int MAX_SIZE_MB = 1024;
+    private static final int CHAR_BUFFER_SIZE = 8192;
+    private static final int MESSAGE_COUNT = 1000;
+    private static final int MESSAGE_LENGTH = 70;
+
+    private static final String HAIKU = "An old silent pond\nA frog jumps into the pond\nSplash! Silence again.\n";
+    private static final String[] WORDS = { "the", "of", "and", "to", "a", "in", "is", "it", "you", "that", "he",
+            "was", "for", "on", "are", "with", "as", "his", "they", "be", "at", "one", "have", "this", "from", "or",
+            "had", "by", "word", "but", "what", "some", "we", "can", "out", "other", "were", "all", "there", "when",
+            "up", "use", "your", "how", "said", "an", "each", "she", "which", "do", "their", "time", "if", "will",
+            "way", "about", "many", "then", "them", "write", "would", "like", "so", "these", "her", "long", "make",
+            "thing", "see", "him", "two", "has", "look", "more", "day", "could", "go", "come", "did", "number",
+            "sound", "no", "most", "people", "my", "over", "know", "water", "than", "call", "first", "who", "may",
+            "down", "side", "been", "now", "find", "Huffman", "frog", "pond", "silence" };
+    private static final double[] WORD_DISTRIBUTION = zipf(WORDS.length, 1.0);
+    private static final String[] LOG_LEVELS = { "INFO ", "INFO ", "INFO ", "DEBUG", "WARN ", "ERROR" };
+    private static final String[] LOG_PATHS = { "/api/v1/orders", "/api/v1/orders/search", "/api/v1/customers",
+            "/api/v1/inventory", "/health", "/login" };
+    private static final int[] LOG_STATUSES = { 200, 200, 200, 200, 201, 204, 304, 400, 404, 500 };
+
+    private int warmupIterations = 2;
+    private int iterations = 5;
+    private long sizeBytes = 64L * 1024 * 1024;
+    private File corpus;
+    private String filter = "";
+
+    // Results are folded into sink so the JIT cannot discard the measured work.
+    private long sink;
+
+    private interface Operation {
+        Object run() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        HuffmanBenchmark benchmark = new HuffmanBenchmark();
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 == args.length)
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+
+            switch (args[i]) {
+                case "--size":
+                    int sizeMB = Integer.parseInt(args[++i]);
+                    if (sizeMB < 1 || sizeMB > MAX_SIZE_MB)
+                        throw new IllegalArgumentException("Size must be between 1 and " + MAX_SIZE_MB + " MB.");
+                    benchmark.sizeBytes = (long) sizeMB * 1024 * 1024;
+                    break;
+                case "--warmup":
+                    benchmark.warmupIterations = Integer.parseInt(args[++i]);
+                    break;
+                case "--iterations":
+                    benchmark.iterations = Math.max(1, Integer.parseInt(args[++i]));
+                    break;
+                case "--corpus":
+                    benchmark.corpus = new File(args[++i]);
+                    break;
+                case "--filter":
+                    benchmark.filter = args[++i];
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        benchmark.run();
+    }
+
+    private void run() throws Exception {
+        System.out.printf("%-28s %-14s %14s %14s %12s %8s%n", "benchmark", "input", "median ns/op", "best ns/op",
+                "MB/s", "ratio");
+
+        File haikuFile = File.createTempFile("haiku", ".txt");
+        haikuFile.deleteOnExit();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(haikuFile), StandardCharsets.UTF_8)) {
+            writer.write(HAIKU);
+        }
+        runInput("haiku", haikuFile);
+
+        if (corpus != null) {
+            runInput("corpus", corpus);
+        } else {
+            File naturalFile = generate("natural", HuffmanBenchmark::naturalText);
+            runInput("natural", naturalFile);
+            runMessages("natural", naturalFile);
+        }
+        runInput("skewed", generate("skewed", skewedCharacters(94, 0.75)));
+        runInput("uniform", generate("uniform", skewedCharacters(94, 1.0)));
+        // One character makes up 95% of the text, where a prefix code still spends a whole bit on it.
+        runInput("near-constant", generate("near-constant", skewedCharacters(94, 0.05)));
+        // A large alphabet, so that the cost of building the tree itself becomes visible.
+        runInput("uniform-wide", generate("uniform-wide", wideCharacters(4096)));
+        // Repetitive structured lines, the kind of input LZ77 is for.
+        runInput("log", generate("log", HuffmanBenchmark::logLines));
+
+        System.out.println("checksum " + sink);
+    }
+
+    private void runInput(String input, File file) throws Exception {
+        long fileLength = file.length();
+
+        FrequencyTable frequencyTable = FrequencyTable.count(file, StandardCharsets.UTF_8);
+        measure("count", input, fileLength, () -> FrequencyTable.count(file, StandardCharsets.UTF_8));
+
+        HuffmanCodingTree leaves = HuffmanCodingTree.buildLeaves(frequencyTable);
+        measure("tree/linked-list-queue", input, 0, () -> buildWithLinkedListQueue(leaves));
+        measure("tree/heap", input, 0, () -> HuffmanCodingTree.buildWithHeap(leaves));
+        measure("tree/sort+two-queue", input, 0, () -> {
+            Integer[] order = new Integer[leaves.getLeafCount()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (node, other) -> node.equals(other) ? 0 : leaves.precedes(node, other) ? -1 : 1);
+            return HuffmanCodingTree.buildFromSortedLeaves(leaves,
+                    Arrays.stream(order).mapToInt(Integer::intValue).toArray());
+        });
+
+        HuffmanCodingTree tree = HuffmanCodingTree.build(frequencyTable);
+        measure("codegen/canonical", input, 0, tree::toCanonicalCode);
+        CanonicalHuffmanCode code = tree.toCanonicalCode();
+        measure("codegen/tables", input, 0, () -> HuffmanCodec.fromCode(code));
+
+        HuffmanCodec codec = HuffmanCodec.fromCode(code);
+        measure("encode", input, fileLength, () -> codec.encode(file, StandardCharsets.UTF_8,
+                OutputStream.nullOutputStream()));
+
+        File encodedFile = File.createTempFile(input, ".bits");
+        encodedFile.deleteOnExit();
+        long bitLength;
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(encodedFile))) {
+            bitLength = codec.encode(file, StandardCharsets.UTF_8, outputStream);
+        }
+        measure("decode", input, fileLength, () -> {
+            try (InputStream inputStream = new BufferedInputStream(new FileInputStream(encodedFile))) {
+                codec.decode(inputStream, bitLength, Writer.nullWriter());
+            }
+            return null;
+        });
+        encodedFile.delete();
+
+        // Block decoding alone, from memory into memory, so that the two payload layouts compare directly.
+        int[] symbols = readSymbols(file);
+        int symbolCount = symbols.length;
+        ByteArrayOutputStream singleStream = new ByteArrayOutputStream();
+        BitWriter bitWriter = new BitWriter(singleStream);
+        codec.encode(symbols, 0, symbolCount, bitWriter);
+        bitWriter.flush();
+        byte[] singlePayload = singleStream.toByteArray();
+        long singleBitLength = bitWriter.getBitCount();
+        byte[] interleavedPayload = HuffmanEntropyCoder.encodeInterleaved(codec, symbols, 0, symbolCount);
+        int[] decoded = new int[symbolCount];
+        codec.getInterleavedDecodeTable().decode(interleavedPayload, decoded, 0, symbolCount);
+        if (!Arrays.equals(decoded, symbols))
+            throw new IllegalStateException("4-stream decoding of " + input + " does not round trip.");
+        measure("decode/1-stream", input, fileLength, () -> {
+            BitReader bitReader = new BitReader(new ByteArrayInputStream(singlePayload));
+            codec.getDecodeTable().decode(bitReader, singleBitLength, decoded, 0, symbolCount);
+            return decoded;
+        });
+        measure("decode/4-stream", input, fileLength, () -> {
+            codec.getInterleavedDecodeTable().decode(interleavedPayload, decoded, 0, symbolCount);
+            return decoded;
+        });
+
+        // The entropy coders on the same symbols, with the ratio each of them achieves.
+        for (EntropyCoderType type : EntropyCoderType.values()) {
+            EntropyCoder coder = type == EntropyCoderType.CONTEXT
+                    ? ContextHuffmanEntropyCoder.train(symbols, 0, symbolCount, HuffmanAlphabet.CHAR,
+                            ContextHuffmanEntropyCoder.DEFAULT_MAX_CONTEXTS)
+                    : type.create(frequencyTable, HuffmanAlphabet.CHAR);
+            byte[] payload = coder.encode(symbols, 0, symbolCount);
+            String ratio = String.format("%.3f", (double) fileLength / Math.max(1, payload.length));
+            coder.decode(payload, decoded, 0, symbolCount);
+            if (!Arrays.equals(decoded, symbols))
+                throw new IllegalStateException(type + " decoding of " + input + " does not round trip.");
+            String name = type.name().toLowerCase();
+            measure("encode/" + name, input, fileLength, ratio, () -> coder.encode(symbols, 0, symbolCount));
+            measure("decode/" + name, input, fileLength, ratio, () -> {
+                coder.decode(payload, decoded, 0, symbolCount);
+                return decoded;
+            });
+        }
+
+        runDeflate(input, file);
+    }
+
+    // The LZ77 coder on raw bytes next to java.util.zip at its default level, both with a 32 KB window and over
+    // the whole input at once.
+    private void runDeflate(String input, File file) throws Exception {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        int[] symbols = new int[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            symbols[i] = bytes[i] & 0xFF;
+        }
+        int[] decoded = new int[symbols.length];
+
+        Lz77HuffmanEntropyCoder coder = new Lz77HuffmanEntropyCoder(HuffmanAlphabet.BYTE);
+        byte[] payload = coder.encode(symbols, 0, symbols.length);
+        coder.decode(payload, decoded, 0, symbols.length);
+        if (!Arrays.equals(decoded, symbols))
+            throw new IllegalStateException("LZ77 decoding of " + input + " bytes does not round trip.");
+        String ratio = String.format("%.3f", (double) bytes.length / Math.max(1, payload.length));
+        measure("bytes/lz77-encode", input, bytes.length, ratio, () -> coder.encode(symbols, 0, symbols.length));
+        measure("bytes/lz77-decode", input, bytes.length, ratio, () -> {
+            coder.decode(payload, decoded, 0, symbols.length);
+            return decoded;
+        });
+
+        byte[] deflated = deflate(bytes);
+        byte[] inflated = new byte[bytes.length];
+        inflate(deflated, inflated);
+        if (!Arrays.equals(inflated, bytes))
+            throw new IllegalStateException("Inflating " + input + " does not round trip.");
+        String deflateRatio = String.format("%.3f", (double) bytes.length / Math.max(1, deflated.length));
+        measure("bytes/deflater", input, bytes.length, deflateRatio, () -> deflate(bytes));
+        measure("bytes/inflater", input, bytes.length, deflateRatio, () -> {
+            inflate(deflated, inflated);
+            return inflated;
+        });
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(bytes);
+        deflater.finish();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length / 2 + 64);
+        byte[] buffer = new byte[64 * 1024];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(buffer);
+            outputStream.write(buffer, 0, length);
+        }
+        deflater.end();
+        return outputStream.toByteArray();
+    }
+
+    private static void inflate(byte[] deflated, byte[] output) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        inflater.setInput(deflated);
+        int length = 0;
+        while (!inflater.finished() && length < output.length) {
+            length += inflater.inflate(output, length, output.length - length);
+        }
+        inflater.end();
+    }
+
+    // Haiku-sized messages coded one at a time: with a dictionary trained on the whole file, against a
+    // self-describing container holding its own code per message. Both report the bytes of all messages.
+    private void runMessages(String input, File file) throws Exception {
+        String[] messages = new String[MESSAGE_COUNT];
+        char[] buffer = new char[MESSAGE_LENGTH];
+        long messageBytes = 0;
+        try (InputStreamReader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < MESSAGE_COUNT; i++) {
+                int charsRead = reader.read(buffer);
+                messages[i] = charsRead == -1 ? "" : new String(buffer, 0, charsRead);
+                messageBytes += messages[i].getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+
+        HuffmanDictionary dictionary = HuffmanDictionary.train(1, file, HuffmanAlphabet.CHAR, StandardCharsets.UTF_8);
+        byte[][] encodedMessages = new byte[MESSAGE_COUNT][];
+        long dictionaryBytes = 0;
+        for (int i = 0; i < MESSAGE_COUNT; i++) {
+            encodedMessages[i] = dictionary.encode(messages[i]);
+            dictionaryBytes += encodedMessages[i].length;
+            if (!dictionary.decode(encodedMessages[i]).equals(messages[i]))
+                throw new IllegalStateException("Dictionary decoding of " + input + " does not round trip.");
+        }
+        String dictionaryRatio = String.format("%.3f", (double) messageBytes / dictionaryBytes);
+        measure("messages/dictionary-encode", input, messageBytes, dictionaryRatio, () -> {
+            for (String message : messages) {
+                sink += dictionary.encode(message).length;
+            }
+            return null;
+        });
+        measure("messages/dictionary-decode", input, messageBytes, dictionaryRatio, () -> {
+            for (byte[] encodedMessage : encodedMessages) {
+                sink += dictionary.decode(encodedMessage).length();
+            }
+            return null;
+        });
+
+        long containerBytes = 0;
+        for (String message : messages) {
+            containerBytes += compressMessage(message).length;
+        }
+        measure("messages/container-encode", input, messageBytes,
+                String.format("%.3f", (double) messageBytes / containerBytes), () -> {
+                    for (String message : messages) {
+                        sink += compressMessage(message).length;
+                    }
+                    return null;
+                });
+    }
+
+    private static byte[] compressMessage(String message) throws IOException {
+        FrequencyTable frequencyTable = new FrequencyTable();
+        char[] characters = message.toCharArray();
+        frequencyTable.addAll(characters, 0, characters.length);
+        HuffmanCodec codec = characters.length == 0 ? HuffmanCodec.fromCodeLengths(new int[0], new int[0])
+                : HuffmanCodec.fromFrequencies(frequencyTable);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        codec.compress(new StringReader(message), outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static int[] readSymbols(File file) throws IOException {
+        int[] symbols = new int[CHAR_BUFFER_SIZE];
+        int size = 0;
+        try (SymbolReader reader = new SymbolReader(new InputStreamReader(
+                new BufferedInputStream(new FileInputStream(file)), StandardCharsets.UTF_8), HuffmanAlphabet.CHAR)) {
+            int symbolsRead = 0;
+            while (symbolsRead != -1) {
+                size += symbolsRead;
+                if (size == symbols.length)
+                    symbols = Arrays.copyOf(symbols, size * 2);
+                symbolsRead = reader.read(symbols, size, symbols.length - size);
+            }
+        }
+        return Arrays.copyOf(symbols, size);
+    }
+
+    // The original tree construction, one object per node over the sorted linked list, kept as the baseline
+    // for tree/heap.
+    private static Node buildWithLinkedListQueue(HuffmanCodingTree leaves) {
+        PriorityQueue<Node> priorityQueue = new PriorityQueue<>();
+        for (int i = 0; i < leaves.getLeafCount(); i++) {
+            priorityQueue.add(new Node(leaves.getSymbol(i), leaves.getFrequency(i), null, null));
+        }
+
+        Node root = priorityQueue.poll();
+        Node right = priorityQueue.poll();
+        while (right != null) {
+            priorityQueue.add(new Node(HuffmanCodingTree.NONE, root.frequency + right.frequency, root, right));
+
+            root = priorityQueue.poll();
+            right = priorityQueue.poll();
+        }
+        return root;
+    }
+
+    private void measure(String name, String input, long bytesPerOperation, Operation operation)
+            throws Exception {
+        measure(name, input, bytesPerOperation, "-", operation);
+    }
+
+    // ratio is the size of the input over the size of the coded output, where that applies.
+    private void measure(String name, String input, long bytesPerOperation, String ratio, Operation operation)
+            throws Exception {
+        if (!(name + " " + input).contains(filter))
+            return;
+
+        for (int i = 0; i < warmupIterations; i++) {
+            timeIteration(operation);
+        }
+        double[] nanosPerOperation = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            nanosPerOperation[i] = timeIteration(operation);
+        }
+        Arrays.sort(nanosPerOperation);
+
+        double median = nanosPerOperation[iterations / 2];
+        String throughput = bytesPerOperation == 0 ? "-"
+                : String.format("%.1f", bytesPerOperation / (median / 1e9) / (1024 * 1024));
+        System.out.printf("%-28s %-14s %14.0f %14.0f %12s %8s%n", name, input, median, nanosPerOperation[0],
+                throughput, ratio);
+    }
+
+    private double timeIteration(Operation operation) throws Exception {
+        long operations = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            Object result = operation.run();
+            sink += result == null ? operations : System.identityHashCode(result);
+            operations++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MIN_ITERATION_NANOS);
+        return (double) elapsed / operations;
+    }
+
+    private interface CharacterSource {
+        // Fills buffer and returns the number of characters written.
+        int fill(char[] buffer, Random random);
+    }
+
+    private File generate(String input, CharacterSource source) throws IOException {
+        File file = File.createTempFile(input, ".txt");
+        file.deleteOnExit();
+        Random random = new Random(input.hashCode());
+        char[] buffer = new char[CHAR_BUFFER_SIZE];
+
+        // Characters are written until the encoded size reaches sizeBytes; the file may end slightly over it.
+        try (CountingOutputStream counter = new CountingOutputStream(new FileOutputStream(file));
+                Writer writer = new BufferedWriter(new OutputStreamWriter(counter, StandardCharsets.UTF_8))) {
+            while (counter.count < sizeBytes) {
+                int length = source.fill(buffer, random);
+                writer.write(buffer, 0, length);
+                writer.flush();
+            }
+        }
+        return file;
+    }
+
+    // Words drawn from a Zipf distribution, with sentences and lines of varying length.
+    private static int naturalText(char[] buffer, Random random) {
+        int length = 0;
+        while (true) {
+            String word = WORDS[sample(WORD_DISTRIBUTION, random)];
+            if (length + word.length() + 2 > buffer.length)
+                return length;
+            word.getChars(0, word.length(), buffer, length);
+            length += word.length();
+            int punctuation = random.nextInt(20);
+            if (punctuation == 0)
+                buffer[length++] = '.';
+            else if (punctuation == 1)
+                buffer[length++] = ',';
+            buffer[length++] = random.nextInt(12) == 0 ? '\n' : ' ';
+        }
+    }
+
+    // Access log lines: a timestamp, level, thread, request path and a few numeric fields.
+    private static int logLines(char[] buffer, Random random) {
+        int length = 0;
+        long millis = random.nextInt(86_400_000);
+        while (true) {
+            millis += random.nextInt(50);
+            String line = String.format("2026-10-17T%02d:%02d:%02d.%03dZ %s [worker-%d] GET %s%s status=%d bytes=%d "
+                    + "latency_ms=%d%n", millis / 3_600_000 % 24, millis / 60_000 % 60, millis / 1000 % 60,
+                    millis % 1000, LOG_LEVELS[random.nextInt(LOG_LEVELS.length)], random.nextInt(16),
+                    LOG_PATHS[random.nextInt(LOG_PATHS.length)], random.nextInt(4) == 0 ? "/" + random.nextInt(100000)
+                            : "", LOG_STATUSES[random.nextInt(LOG_STATUSES.length)], random.nextInt(20000),
+                    random.nextInt(250));
+            if (length + line.length() > buffer.length)
+                return length;
+            line.getChars(0, line.length(), buffer, length);
+            length += line.length();
+        }
+    }
+
+    // Printable ASCII characters whose probabilities fall geometrically by ratio; a ratio of 1 is uniform.
+    private static CharacterSource skewedCharacters(int alphabetSize, double ratio) {
+        double[] cumulative = new double[alphabetSize];
+        double weight = 1;
+        double total = 0;
+        for (int i = 0; i < alphabetSize; i++) {
+            total += weight;
+            cumulative[i] = total;
+            weight *= ratio;
+        }
+        for (int i = 0; i < alphabetSize; i++) {
+            cumulative[i] /= total;
+        }
+
+        return (buffer, random) -> {
+            for (int i = 0; i < buffer.length; i++) {
+                buffer[i] = (char) ('!' + sample(cumulative, random));
+            }
+            return buffer.length;
+        };
+    }
+
+    // Uniform over alphabetSize CJK ideographs, each taking three bytes in UTF-8.
+    private static CharacterSource wideCharacters(int alphabetSize) {
+        return (buffer, random) -> {
+            for (int i = 0; i < buffer.length; i++) {
+                buffer[i] = (char) (0x4E00 + random.nextInt(alphabetSize));
+            }
+            return buffer.length;
+        };
+    }
+
+    private static double[] zipf(int size, double exponent) {
+        double[] cumulative = new double[size];
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            total += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < size; i++) {
+            cumulative[i] /= total;
+        }
+        return cumulative;
+    }
+
+    private static int sample(double[] cumulative, Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index < 0 ? -index - 1 : index, cumulative.length - 1);
+    }
+
+    private static class Node implements Comparable<Node> {
+        private int symbol;
+        private long frequency;
+        private Node left;
+        private Node right;
+
+        Node(int symbol, long frequency, Node left, Node right) {
+            this.symbol = symbol;
+            this.frequency = frequency;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public int compareTo(Node node) {
+            if (this.frequency < node.frequency)
+                return -1;
+            if (this.frequency > node.frequency)
+                return 1;
+            if (this.symbol == HuffmanCodingTree.NONE || node.symbol == HuffmanCodingTree.NONE)
+                return -1;
+            return Integer.compare(node.symbol, this.symbol);
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private OutputStream outputStream;
+        private long count;
+
+        CountingOutputStream(OutputStream outputStream) {
+            this.outputStream = outputStream;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            outputStream.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            outputStream.write(bytes, offset, length);
+            count += length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            outputStream.close();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package algorithms.huffman;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// One-pass (FGK) adaptive Huffman coding behind the EntropyCoder interface. Every block starts from an empty
+// AdaptiveHuffmanTree, so it needs neither a frequency pass nor a model, and a symbol's first occurrence in a
+// block is sent as the NYT code plus its raw bits. The block size is known to the decoder, so no end marker is
+// written. Decoding walks the tree a bit at a time, which makes it the slowest of the Huffman coders.
+//
+// Layout of a payload: the tree codes as packed bits.
+public class AdaptiveHuffmanEntropyCoder implements EntropyCoder {
+    private final HuffmanAlphabet alphabet;
+    private final int symbolBits;
+
+    public AdaptiveHuffmanEntropyCoder(HuffmanAlphabet alphabet) {
+        this.alphabet = alphabet;
+        symbolBits = 32 - Integer.numberOfLeadingZeros(alphabet.getSymbolLimit() - 1);
+    }
+
+    @Override
+    public EntropyCoderType getType() {
+        return EntropyCoderType.ADAPTIVE;
+    }
+
+    @Override
+    public HuffmanAlphabet getAlphabet() {
+        return this.alphabet;
+    }
+
+    @Override
+    public boolean canEncode(int symbol) {
+        return symbol >= 0 && symbol < alphabet.getSymbolLimit();
+    }
+
+    @Override
+    public byte[] encode(int[] symbols, int offset, int length) throws IllegalArgumentException {
+        AdaptiveHuffmanTree tree = new AdaptiveHuffmanTree(symbolBits);
+        ByteArrayOutputStream output = new ByteArrayOutputStream(length / 2 + 16);
+        BitWriter bitWriter = new BitWriter(output);
+        try {
+            int end = offset + length;
+            for (int i = offset; i < end; i++) {
+                if (!canEncode(symbols[i]))
+                    throw new IllegalArgumentException("Symbol out of range: " + symbols[i]);
+                tree.encode(symbols[i], bitWriter);
+            }
+            bitWriter.flush();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return output.toByteArray();
+    }
+
+    // The tree keeps the sibling property, so a leaf at depth d needs a root weight of about the d-th Fibonacci
+    // number, and the root weight stays below ROOT_WEIGHT_LIMIT: no code comes near 64 bits, even with the raw
+    // bits of a new symbol after it.
+    @Override
+    public long maxPayloadSize(int length) {
+        return ((long) length * (64 + symbolBits) + 7) / 8;
+    }
+
+    @Override
+    public void decode(byte[] payload, int[] output, int offset, int length) throws IllegalArgumentException {
+        AdaptiveHuffmanTree tree = new AdaptiveHuffmanTree(symbolBits);
+        BitReader bitReader = new BitReader(new ByteArrayInputStream(payload));
+        try {
+            int end = offset + length;
+            for (int i = offset; i < end; i++) {
+                int symbol = tree.decode(bitReader);
+                if (symbol == -1 || symbol >= alphabet.getSymbolLimit())
+                    throw new IllegalArgumentException("Did not find a matching symbol at bit "
+                            + bitReader.getBitCount() + ".");
+                output[i] = symbol;
+            }
+        } catch (IOException exception) {
+            throw new IllegalArgumentException("Corrupt block: " + exception.getMessage());
+        }
+
+        if ((bitReader.getBitCount() + 7) / 8 != payload.length)
+            throw new IllegalArgumentException("Block does not decode to " + length + " symbols.");
+    }
+
+    // Model: nothing, every block builds its own tree.
+    @Override
+    public void writeModel(DataOutputStream outputStream) throws IOException {
+    }
+
+    static AdaptiveHuffmanEntropyCoder readModel(DataInputStream inputStream, HuffmanAlphabet alphabet) {
+        return new AdaptiveHuffmanEntropyCoder(alphabet);
+    }
+}
@@ -0,0 +1,299 @@
+package algorithms.huffman;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// One-pass (FGK) Huffman tree behind AdaptiveHuffmanEntropyCoder. Encoder and decoder each
+// start from a tree holding only the not-yet-transmitted (NYT) leaf and apply the same update after every
+// symbol, so they stay in lockstep without any model being sent. Nodes are kept in an order in which weights
+// never increase (the sibling property); order 0 is the root. The tree never holds more than
+// 2 * alphabet size + 1 nodes.
+//
+// Once the root weight reaches ROOT_WEIGHT_LIMIT every weight is halved and the tree rebuilt from the halved
+// leaves, so recent symbols count for more than old ones and the code follows statistics that drift.
+class AdaptiveHuffmanTree {
+    static final long ROOT_WEIGHT_LIMIT = 1 << 18;
+
+    private static final int NONE = -1;
+    private static final int DENSE_SYMBOL_BITS = 16;
+
+    private int symbolBits;
+
+    // Per node, indexed by the order in which nodes were created.
+    private int[] parent;
+    private int[] left;
+    private int[] right;
+    private int[] symbol;
+    private long[] weight;
+    private int[] orderOf;
+
+    private int[] nodeAt;
+    private int nodeCount;
+    private int nyt;
+
+    private int[] denseLeaves;
+    private IntLongHashMap sparseLeaves;
+
+    private int[] path = new int[64];
+
+    AdaptiveHuffmanTree(int symbolBits) {
+        if (symbolBits < 1 || symbolBits > 31)
+            throw new IllegalArgumentException("Illegal symbol size: " + symbolBits + " bits");
+
+        this.symbolBits = symbolBits;
+        int capacity = 64;
+        parent = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        symbol = new int[capacity];
+        weight = new long[capacity];
+        orderOf = new int[capacity];
+        nodeAt = new int[capacity];
+
+        if (symbolBits <= DENSE_SYMBOL_BITS) {
+            denseLeaves = new int[1 << symbolBits];
+            for (int i = 0; i < denseLeaves.length; i++) {
+                denseLeaves[i] = NONE;
+            }
+        } else {
+            sparseLeaves = new IntLongHashMap();
+        }
+
+        nyt = newNode(NONE, NONE);
+    }
+
+    private int newNode(int nodeParent, int nodeSymbol) {
+        if (nodeCount == parent.length) {
+            int newCapacity = parent.length * 2;
+            parent = grow(parent, newCapacity);
+            left = grow(left, newCapacity);
+            right = grow(right, newCapacity);
+            symbol = grow(symbol, newCapacity);
+            orderOf = grow(orderOf, newCapacity);
+            nodeAt = grow(nodeAt, newCapacity);
+            long[] newWeight = new long[newCapacity];
+            System.arraycopy(weight, 0, newWeight, 0, nodeCount);
+            weight = newWeight;
+        }
+
+        int node = nodeCount++;
+        parent[node] = nodeParent;
+        left[node] = NONE;
+        right[node] = NONE;
+        symbol[node] = nodeSymbol;
+        weight[node] = 0;
+        orderOf[node] = node;
+        nodeAt[node] = node;
+        return node;
+    }
+
+    private static int[] grow(int[] array, int newCapacity) {
+        int[] newArray = new int[newCapacity];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    private int leafOf(int leafSymbol) {
+        if (denseLeaves != null)
+            return denseLeaves[leafSymbol];
+        return (int) sparseLeaves.get(leafSymbol) - 1;
+    }
+
+    private void setLeafOf(int leafSymbol, int node) {
+        if (denseLeaves != null)
+            denseLeaves[leafSymbol] = node;
+        else
+            sparseLeaves.add(leafSymbol, node + 1 - sparseLeaves.get(leafSymbol));
+    }
+
+    void checkSymbol(int leafSymbol) {
+        if (leafSymbol < 0 || leafSymbol >>> symbolBits != 0)
+            throw new IllegalArgumentException("Symbol does not fit in " + symbolBits + " bits: " + leafSymbol);
+    }
+
+    // Writes the code of leafSymbol, or the NYT code followed by the new-symbol flag and the raw symbol.
+    void encode(int leafSymbol, BitWriter bitWriter) throws IOException {
+        checkSymbol(leafSymbol);
+        int leaf = leafOf(leafSymbol);
+        if (leaf == NONE) {
+            writePath(nyt, bitWriter);
+            bitWriter.writeBit(0);
+            bitWriter.writeBits(leafSymbol, symbolBits);
+        } else {
+            writePath(leaf, bitWriter);
+        }
+        update(leafSymbol);
+    }
+
+    // Returns the next symbol, or -1 if the flag after the NYT code is set, which encode never writes.
+    int decode(BitReader bitReader) throws IOException {
+        int node = nodeAt[0];
+        while (left[node] != NONE) {
+            node = bitReader.readBit() == 1 ? left[node] : right[node];
+        }
+
+        int leafSymbol;
+        if (node == nyt) {
+            if (bitReader.readBit() == 1)
+                return -1;
+            leafSymbol = (int) bitReader.readBits(symbolBits);
+            if (leafOf(leafSymbol) != NONE)
+                throw new IOException("Corrupt adaptive Huffman stream: symbol " + leafSymbol + " sent twice.");
+        } else {
+            leafSymbol = symbol[node];
+        }
+        update(leafSymbol);
+        return leafSymbol;
+    }
+
+    // A path is written from the root down, a 1 for every left edge and a 0 for every right edge; decode
+    // follows the same convention.
+    private void writePath(int node, BitWriter bitWriter) throws IOException {
+        int depth = 0;
+        while (parent[node] != NONE) {
+            if (depth == path.length)
+                path = grow(path, path.length * 2);
+            path[depth++] = left[parent[node]] == node ? 1 : 0;
+            node = parent[node];
+        }
+        while (depth > 0) {
+            bitWriter.writeBit(path[--depth]);
+        }
+    }
+
+    private void update(int leafSymbol) {
+        int node = leafOf(leafSymbol);
+        if (node == NONE) {
+            int oldNyt = nyt;
+            node = newNode(oldNyt, leafSymbol);
+            nyt = newNode(oldNyt, NONE);
+            left[oldNyt] = nyt;
+            right[oldNyt] = node;
+            setLeafOf(leafSymbol, node);
+        }
+
+        while (node != NONE) {
+            int leader = findLeader(node);
+            if (leader != node && leader != parent[node])
+                swap(node, leader);
+            weight[node]++;
+            node = parent[node];
+        }
+
+        if (weight[nodeAt[0]] >= ROOT_WEIGHT_LIMIT)
+            rescale();
+    }
+
+    // Halves the leaf weights, rounding up so no leaf drops to 0, and rebuilds the tree from them with the
+    // two-queue Huffman construction. Nodes leave the queues in non-decreasing weight with siblings one after the
+    // other, so numbering them backwards from the last order restores the sibling property, and the NYT leaf,
+    // the only one of weight 0, leaves first and keeps the last order. Node indices are set equal to orders.
+    private void rescale() {
+        int itemCount = 1;
+        long[] keys = new long[(nodeCount + 1) / 2];
+        for (int node = 0; node < nodeCount; node++) {
+            if (left[node] == NONE && node != nyt)
+                keys[itemCount++] = (weight[node] + 1) / 2 << 32 | orderOf[node];
+        }
+        Arrays.sort(keys, 1, itemCount);
+
+        // Items 0 to itemCount - 1 are the leaves, NYT first; merged items follow.
+        int totalCount = 2 * itemCount - 1;
+        long[] itemWeights = new long[totalCount];
+        int[] itemSymbols = new int[totalCount];
+        int[] itemLeft = new int[totalCount];
+        int[] itemRight = new int[totalCount];
+        int[] itemOrders = new int[totalCount];
+        itemSymbols[0] = NONE;
+        itemLeft[0] = NONE;
+        itemRight[0] = NONE;
+        for (int i = 1; i < itemCount; i++) {
+            itemWeights[i] = keys[i] >>> 32;
+            itemSymbols[i] = symbol[nodeAt[(int) keys[i]]];
+            itemLeft[i] = NONE;
+            itemRight[i] = NONE;
+        }
+
+        int leafIndex = 0;
+        int mergedHead = itemCount;
+        int nextOrder = totalCount - 1;
+        int[] children = new int[2];
+        for (int merged = itemCount; merged < totalCount; merged++) {
+            for (int i = 0; i < 2; i++) {
+                if (mergedHead == merged || leafIndex < itemCount && itemWeights[leafIndex] <= itemWeights[mergedHead])
+                    children[i] = leafIndex++;
+                else
+                    children[i] = mergedHead++;
+                itemOrders[children[i]] = nextOrder--;
+            }
+            // The lighter child goes left, where the NYT leaf is put when it splits.
+            itemLeft[merged] = children[0];
+            itemRight[merged] = children[1];
+            itemWeights[merged] = itemWeights[children[0]] + itemWeights[children[1]];
+            itemSymbols[merged] = NONE;
+        }
+        itemOrders[totalCount - 1] = 0;
+
+        nodeCount = totalCount;
+        for (int item = 0; item < totalCount; item++) {
+            int node = itemOrders[item];
+            left[node] = itemLeft[item] == NONE ? NONE : itemOrders[itemLeft[item]];
+            right[node] = itemRight[item] == NONE ? NONE : itemOrders[itemRight[item]];
+            if (left[node] != NONE) {
+                parent[left[node]] = node;
+                parent[right[node]] = node;
+            }
+            symbol[node] = itemSymbols[item];
+            weight[node] = itemWeights[item];
+            orderOf[node] = node;
+            nodeAt[node] = node;
+            if (itemSymbols[item] != NONE)
+                setLeafOf(itemSymbols[item], node);
+        }
+        parent[0] = NONE;
+        nyt = itemOrders[0];
+    }
+
+    // Weights never increase with order, so the first node of the same weight can be found by binary search.
+    private int findLeader(int node) {
+        long nodeWeight = weight[node];
+        int low = 0;
+        int high = orderOf[node];
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (weight[nodeAt[middle]] > nodeWeight)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return nodeAt[low];
+    }
+
+    private void swap(int first, int second) {
+        int firstParent = parent[first];
+        int secondParent = parent[second];
+
+        if (firstParent == secondParent) {
+            int child = left[firstParent];
+            left[firstParent] = right[firstParent];
+            right[firstParent] = child;
+        } else {
+            if (left[firstParent] == first)
+                left[firstParent] = second;
+            else
+                right[firstParent] = second;
+            if (left[secondParent] == second)
+                left[secondParent] = first;
+            else
+                right[secondParent] = first;
+            parent[first] = secondParent;
+            parent[second] = firstParent;
+        }
+
+        int firstOrder = orderOf[first];
+        orderOf[first] = orderOf[second];
+        orderOf[second] = firstOrder;
+        nodeAt[orderOf[first]] = first;
+        nodeAt[orderOf[second]] = second;
+    }
+}
@@ -0,0 +1,290 @@
+package algorithms.huffman;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// Table-based asymmetric numeral system coder, as in FSE. Frequencies are normalized to counts summing to
+// L = 2^tableLog, and the states L to 2L - 1 are spread over the symbols in proportion to those counts. A
+// symbol then costs log2(L / count) bits on average, fractional bits included, where a prefix code has to
+// round every symbol up to a whole number of bits.
+//
+// Symbols are encoded last to first, so that the decoder reads them first to last. Layout of a payload: the
+// final encoder state minus L (tableLog bits), then the bits emitted for every symbol, in symbol order, padded
+// to a whole byte. Decoding ends in the initial encoder state, which serves as a check.
+public class AnsEntropyCoder implements EntropyCoder {
+    public static final int MIN_TABLE_LOG = 11;
+    public static final int MAX_TABLE_LOG = 22;
+
+    // Layout of a decode table entry, from the lowest bits up: symbol, number of bits to read, base of the
+    // next state.
+    private static final int SYMBOL_BITS = 21;
+    private static final int BIT_COUNT_BITS = 5;
+    private static final int BIT_COUNT_SHIFT = SYMBOL_BITS;
+    private static final int BASE_SHIFT = BIT_COUNT_SHIFT + BIT_COUNT_BITS;
+    private static final long SYMBOL_MASK = (1L << SYMBOL_BITS) - 1;
+    private static final long BIT_COUNT_MASK = (1L << BIT_COUNT_BITS) - 1;
+    private static final int PADDING = 8;
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final HuffmanAlphabet alphabet;
+    private final int tableLog;
+    private final int[] symbols;
+    private final int[] normalizedCounts;
+
+    // Model index of every symbol, or -1; indexed by symbol.
+    private final int[] symbolIndices;
+    // States to move to from each symbol's sub-states, grouped by symbol starting at the symbol's cumulative count.
+    private final int[] encodeStates;
+    private final int[] cumulativeCounts;
+    private final long[] decodeEntries;
+
+    private AnsEntropyCoder(HuffmanAlphabet alphabet, int tableLog, int[] symbols, int[] normalizedCounts) {
+        int tableSize = 1 << tableLog;
+        long sum = 0;
+        for (int i = 0; i < symbols.length; i++) {
+            if (symbols[i] >= alphabet.getSymbolLimit())
+                throw new IllegalArgumentException("Symbol " + symbols[i] + " is not part of the " + alphabet
+                        + " alphabet.");
+            if (normalizedCounts[i] <= 0)
+                throw new IllegalArgumentException("Normalized counts must be positive: " + normalizedCounts[i]);
+            sum += normalizedCounts[i];
+        }
+        if (symbols.length > 0 && sum != tableSize)
+            throw new IllegalArgumentException("Normalized counts add up to " + sum + " instead of " + tableSize);
+
+        this.alphabet = alphabet;
+        this.tableLog = tableLog;
+        this.symbols = symbols;
+        this.normalizedCounts = normalizedCounts;
+
+        symbolIndices = new int[symbols.length == 0 ? 0 : symbols[symbols.length - 1] + 1];
+        Arrays.fill(symbolIndices, -1);
+        cumulativeCounts = new int[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            symbolIndices[symbols[i]] = i;
+            if (i > 0)
+                cumulativeCounts[i] = cumulativeCounts[i - 1] + normalizedCounts[i - 1];
+        }
+
+        encodeStates = new int[symbols.length == 0 ? 0 : tableSize];
+        decodeEntries = new long[symbols.length == 0 ? 0 : tableSize];
+        if (symbols.length == 0)
+            return;
+
+        // The step is odd, so it visits every position of the power of two sized table exactly once.
+        int[] spread = new int[tableSize];
+        int mask = tableSize - 1;
+        int step = (tableSize >>> 1) + (tableSize >>> 3) + 3;
+        int position = 0;
+        for (int i = 0; i < symbols.length; i++) {
+            for (int j = 0; j < normalizedCounts[i]; j++) {
+                spread[position] = i;
+                position = (position + step) & mask;
+            }
+        }
+
+        int[] nextStates = normalizedCounts.clone();
+        for (int state = 0; state < tableSize; state++) {
+            int i = spread[state];
+            int subState = nextStates[i]++;
+            encodeStates[cumulativeCounts[i] + subState - normalizedCounts[i]] = tableSize + state;
+
+            int bitCount = tableLog - highestBit(subState);
+            long base = ((long) subState << bitCount) - tableSize;
+            decodeEntries[state] = symbols[i] | (long) bitCount << BIT_COUNT_SHIFT | base << BASE_SHIFT;
+        }
+    }
+
+    public static AnsEntropyCoder fromFrequencies(FrequencyTable frequencyTable, HuffmanAlphabet alphabet) {
+        int[] symbols = frequencyTable.getSymbols();
+        long[] counts = new long[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            counts[i] = frequencyTable.getCount(symbols[i]);
+        }
+
+        // At least four states per symbol keep the rounding of rare symbols' counts cheap.
+        int tableLog = Math.max(MIN_TABLE_LOG, highestBit(Math.max(symbols.length, 1) - 1) + 3);
+        if (tableLog > MAX_TABLE_LOG)
+            throw new IllegalArgumentException(symbols.length + " symbols need more than 2^" + MAX_TABLE_LOG
+                    + " states.");
+        return new AnsEntropyCoder(alphabet, tableLog, symbols, normalize(counts, tableLog));
+    }
+
+    // Scales counts to add up to 2^tableLog, keeping every count at least 1.
+    static int[] normalize(long[] counts, int tableLog) {
+        if (counts.length == 0)
+            return new int[0];
+
+        int tableSize = 1 << tableLog;
+        long total = 0;
+        int largest = 0;
+        for (int i = 0; i < counts.length; i++) {
+            total += counts[i];
+            if (counts[i] > counts[largest])
+                largest = i;
+        }
+
+        int[] normalizedCounts = new int[counts.length];
+        long sum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            normalizedCounts[i] = (int) Math.max(1, Math.round((double) counts[i] * tableSize / total));
+            sum += normalizedCounts[i];
+        }
+
+        // States left over by rounding go to the most frequent symbol, where they cost the least. States
+        // handed out too many, by rounding up or by raising rare symbols to 1, are taken back from every
+        // larger count in turn, an eighth of it at a time.
+        long excess = sum - tableSize;
+        if (excess < 0)
+            normalizedCounts[largest] -= (int) excess;
+        while (excess > 0) {
+            for (int i = 0; i < counts.length && excess > 0; i++) {
+                int reduction = (int) Math.min(excess, (normalizedCounts[i] - 1 + 7) / 8);
+                normalizedCounts[i] -= reduction;
+                excess -= reduction;
+            }
+        }
+        return normalizedCounts;
+    }
+
+    private static int highestBit(int value) {
+        return 31 - Integer.numberOfLeadingZeros(value);
+    }
+
+    public int getTableLog() {
+        return this.tableLog;
+    }
+
+    @Override
+    public EntropyCoderType getType() {
+        return EntropyCoderType.ANS;
+    }
+
+    @Override
+    public HuffmanAlphabet getAlphabet() {
+        return this.alphabet;
+    }
+
+    @Override
+    public boolean canEncode(int symbol) {
+        return symbol >= 0 && symbol < symbolIndices.length && symbolIndices[symbol] >= 0;
+    }
+
+    @Override
+    public byte[] encode(int[] input, int offset, int length) throws IllegalArgumentException {
+        if (length == 0)
+            return new byte[0];
+
+        // Bits come out last symbol first but have to be written first symbol first, so they are kept until
+        // the final state is known, as bits << BIT_COUNT_BITS | bit count.
+        int[] emitted = new int[length];
+        int tableSize = 1 << tableLog;
+        int state = tableSize;
+        for (int i = length - 1; i >= 0; i--) {
+            int symbol = input[offset + i];
+            if (!canEncode(symbol))
+                throw new IllegalArgumentException("Did not find an encoding for symbol: " + symbol);
+
+            int index = symbolIndices[symbol];
+            int count = normalizedCounts[index];
+            int bitCount = tableLog - highestBit(count);
+            if (state >>> bitCount < count)
+                bitCount--;
+            emitted[i] = (state & ((1 << bitCount) - 1)) << BIT_COUNT_BITS | bitCount;
+            state = encodeStates[cumulativeCounts[index] + (state >>> bitCount) - count];
+        }
+
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream(length / 2 + 16);
+            BitWriter bitWriter = new BitWriter(output);
+            bitWriter.writeBits(state - tableSize, tableLog);
+            for (int bits : emitted) {
+                bitWriter.writeBits(bits >>> BIT_COUNT_BITS, bits & (int) BIT_COUNT_MASK);
+            }
+            bitWriter.flush();
+            return output.toByteArray();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    // The final state and every symbol take at most tableLog bits, a symbol with a count of 1 exactly that.
+    @Override
+    public long maxPayloadSize(int length) {
+        return length == 0 ? 0 : ((length + 1L) * tableLog + 7) / 8;
+    }
+
+    @Override
+    public void decode(byte[] payload, int[] output, int offset, int length) throws IllegalArgumentException {
+        if (length == 0) {
+            if (payload.length != 0)
+                throw new IllegalArgumentException("Block does not decode to 0 symbols.");
+            return;
+        }
+        if (decodeEntries.length == 0)
+            throw new IllegalArgumentException("Model has no symbols to decode.");
+
+        byte[] data = Arrays.copyOf(payload, payload.length + PADDING);
+        long[] entries = decodeEntries;
+        long limit = 8L * payload.length;
+        long position = tableLog;
+        if (position > limit)
+            throw new IllegalArgumentException("Block does not decode to " + length + " symbols.");
+        int state = (int) readBits(data, 0, tableLog);
+
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            long entry = entries[state];
+            int bitCount = (int) (entry >>> BIT_COUNT_SHIFT & BIT_COUNT_MASK);
+            if (position + bitCount > limit)
+                throw new IllegalArgumentException("Block does not decode to " + length + " symbols.");
+            output[i] = (int) (entry & SYMBOL_MASK);
+            state = (int) (entry >>> BASE_SHIFT) + (int) readBits(data, position, bitCount);
+            position += bitCount;
+        }
+
+        if (state != 0 || (position + 7) >>> 3 != payload.length)
+            throw new IllegalArgumentException("Block does not decode to " + length + " symbols.");
+    }
+
+    // Up to 57 bits from position; shifting by one first makes a bit count of 0 read nothing.
+    private static long readBits(byte[] data, long position, int bitCount) {
+        long bits = (long) LONGS.get(data, (int) (position >>> 3)) << (position & 7);
+        return bits >>> 1 >>> (63 - bitCount);
+    }
+
+    // Model: table log (byte), symbols as written by HuffmanContainer.writeSymbols, normalized counts (varint).
+    @Override
+    public void writeModel(DataOutputStream outputStream) throws IOException {
+        outputStream.writeByte(tableLog);
+        HuffmanContainer.writeSymbols(outputStream, symbols);
+        for (int count : normalizedCounts) {
+            HuffmanContainer.writeVarInt(outputStream, count);
+        }
+    }
+
+    static AnsEntropyCoder readModel(DataInputStream inputStream, HuffmanAlphabet alphabet) throws IOException {
+        int tableLog = inputStream.readUnsignedByte();
+        if (tableLog < MIN_TABLE_LOG || tableLog > MAX_TABLE_LOG)
+            throw new IOException("Corrupt ANS model: bad table log.");
+        int[] symbols = HuffmanContainer.readSymbols(inputStream, alphabet);
+        int[] normalizedCounts = new int[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            normalizedCounts[i] = HuffmanContainer.readVarInt(inputStream);
+        }
+
+        try {
+            return new AnsEntropyCoder(alphabet, tableLog, symbols, normalizedCounts);
+        } catch (IllegalArgumentException exception) {
+            throw new IOException("Corrupt ANS model: " + exception.getMessage());
+        }
+    }
+}
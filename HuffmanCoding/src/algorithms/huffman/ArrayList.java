@@ -1,33 +1,43 @@
 package algorithms.huffman;
 
+import java.util.Arrays;
+import java.util.Objects;
+
 public class ArrayList<T> {
     private Object[] arr;
     private int size = 0;
 
     private static final int DEFAULT_INITIAL_SIZE = 10;
-
-    private void extendArray() {
-        int newCapacity = arr.length * 2;
-
-        if (newCapacity < 0) {
-            throw new ArithmeticException("Capacity overflow when attempting to increase ArrayList capacity.");
-        }
-
-        if (arr.length == 0) {
-            arr = new Object[DEFAULT_INITIAL_SIZE];
-            return;
-        }
-
-        Object[] newArr = new Object[newCapacity];
-        for (int i = 0; i < arr.length; i++) {
-            newArr[i] = arr[i];
-        }
-        arr = newArr;
+    // Some virtual machines reserve header words in arrays, so the largest safe length is a little below
+    // Integer.MAX_VALUE.
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    // Returns the capacity to grow to so that at least minCapacity elements fit. Growing by half of the
+    // current capacity each time keeps adding n elements at O(n) copies in total.
+    static int grownCapacity(int capacity, int minCapacity) {
+        if (minCapacity < 0 || minCapacity > MAX_ARRAY_SIZE)
+            throw new ArithmeticException("Capacity overflow when attempting to increase list capacity.");
+
+        int newCapacity = capacity + (capacity >> 1);
+        if (newCapacity < DEFAULT_INITIAL_SIZE)
+            newCapacity = DEFAULT_INITIAL_SIZE;
+        if (newCapacity < minCapacity || newCapacity > MAX_ARRAY_SIZE)
+            newCapacity = Math.max(minCapacity, Math.min(newCapacity, MAX_ARRAY_SIZE));
+        return newCapacity;
     }
 
     public void ensureCapacity(int capacity) {
         if (arr.length < capacity)
-            extendArray();
+            arr = Arrays.copyOf(arr, grownCapacity(arr.length, capacity));
+    }
+
+    public void trimToSize() {
+        if (arr.length > size)
+            arr = Arrays.copyOf(arr, size);
+    }
+
+    public ArrayList() {
+        this(DEFAULT_INITIAL_SIZE);
     }
 
     public ArrayList(int initialCapacity) {
@@ -38,15 +48,10 @@ public class ArrayList<T> {
     }
 
     public boolean add(T value) {
-        try {
+        if (size == arr.length)
             ensureCapacity(size + 1);
-            arr[size] = value;
-            size++;
-            return true;
-        } catch (Exception exception) {
-            System.out.println("Failed to add new element to ArrayList.");
-            return false;
-        }
+        arr[size++] = value;
+        return true;
     }
 
     public void add(int index, T value) {
@@ -55,14 +60,24 @@ public class ArrayList<T> {
 
         ensureCapacity(size + 1);
         // shift all elements after index to the right
-        for (int i = size; i > index; i--) {
-            arr[i] = arr[i - 1];
-        }
-
+        System.arraycopy(arr, index, arr, index + 1, size - index);
         arr[index] = value;
         size++;
     }
 
+    public void addAll(ArrayList<? extends T> values) {
+        ensureCapacity(size + values.size);
+        System.arraycopy(values.arr, 0, arr, size, values.size);
+        size += values.size;
+    }
+
+    public void addAll(T[] values, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, values.length);
+        ensureCapacity(size + length);
+        System.arraycopy(values, offset, arr, size, length);
+        size += length;
+    }
+
     public T set(int index, T value) {
         if (index >= size || index < 0)
             throw new IndexOutOfBoundsException();
@@ -84,23 +99,30 @@ public class ArrayList<T> {
             throw new IndexOutOfBoundsException();
 
         T removedValue = (T) arr[index];
-        while (index < size - 1) {
-            arr[index] = arr[index + 1];
-            index++;
-        }
-        arr[index] = null;
+        System.arraycopy(arr, index + 1, arr, index, size - index - 1);
         size--;
+        arr[size] = null;
 
         return removedValue;
     }
 
+    // Drops the references to the elements but keeps the capacity.
+    public void clear() {
+        Arrays.fill(arr, 0, size, null);
+        size = 0;
+    }
+
     public int size() {
         return size;
     }
 
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
     public int indexOf(T value) {
         for (int i = 0; i < size; i++) {
-            if (arr[i].equals(value))
+            if (Objects.equals(arr[i], value))
                 return i;
         }
         return -1;
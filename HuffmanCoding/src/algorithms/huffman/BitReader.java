@@ -0,0 +1,140 @@
+package algorithms.huffman;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class BitReader {
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private InputStream inputStream;
+    private byte[] buffer;
+    private int bufferPosition;
+    private int bufferLimit;
+    private boolean endOfStream;
+
+    // Unread bits are kept right-aligned in bitBuffer.
+    private long bitBuffer;
+    private int availableBits;
+    private long bitCount;
+
+    public BitReader(InputStream inputStream) {
+        this(inputStream, DEFAULT_BUFFER_SIZE);
+    }
+
+    public BitReader(InputStream inputStream, int bufferSize) {
+        if (bufferSize <= 0)
+            throw new IllegalArgumentException("Illegal buffer size: " + bufferSize);
+
+        this.inputStream = inputStream;
+        this.buffer = new byte[bufferSize];
+    }
+
+    private void refill() throws IOException {
+        while (availableBits <= 56) {
+            if (!fillBuffer())
+                return;
+            bitBuffer = (bitBuffer << 8) | (buffer[bufferPosition++] & 0xFF);
+            availableBits += 8;
+        }
+    }
+
+    // Returns whether a byte is left in buffer, reading more from the stream once it is used up.
+    private boolean fillBuffer() throws IOException {
+        if (bufferPosition < bufferLimit)
+            return true;
+        if (endOfStream)
+            return false;
+        bufferLimit = inputStream.read(buffer, 0, buffer.length);
+        bufferPosition = 0;
+        if (bufferLimit <= 0) {
+            bufferLimit = 0;
+            endOfStream = true;
+            return false;
+        }
+        return true;
+    }
+
+    public int readBit() throws IOException {
+        if (availableBits == 0) {
+            refill();
+            if (availableBits == 0)
+                throw new EOFException("Unexpected end of bit stream.");
+        }
+        availableBits--;
+        bitCount++;
+        return (int) (bitBuffer >>> availableBits) & 1;
+    }
+
+    public long readBits(int length) throws IOException {
+        if (length < 0 || length > 64)
+            throw new IllegalArgumentException("Illegal bit length: " + length);
+
+        if (length > 56) {
+            long high = readBits(length - 32);
+            return (high << 32) | readBits(32);
+        }
+
+        if (availableBits < length) {
+            refill();
+            if (availableBits < length)
+                throw new EOFException("Unexpected end of bit stream.");
+        }
+        availableBits -= length;
+        bitCount += length;
+        return (bitBuffer >>> availableBits) & ((1L << length) - 1);
+    }
+
+    // Returns the next length bits without consuming them, padded with zeros past the end of the stream.
+    public int peekBits(int length) throws IOException {
+        if (length < 0 || length > 32)
+            throw new IllegalArgumentException("Illegal bit length: " + length);
+
+        if (availableBits < length)
+            refill();
+
+        long mask = (1L << length) - 1;
+        if (availableBits >= length)
+            return (int) ((bitBuffer >>> (availableBits - length)) & mask);
+        return (int) ((bitBuffer << (length - availableBits)) & mask);
+    }
+
+    // Same as peekBits, for up to 64 bits. Once refilled, bitBuffer holds more than 56 bits unless the stream
+    // ends, so at most the next byte in buffer is needed as well.
+    public long peekLongBits(int length) throws IOException {
+        if (length < 0 || length > 64)
+            throw new IllegalArgumentException("Illegal bit length: " + length);
+        if (length == 0)
+            return 0;
+
+        if (availableBits < length)
+            refill();
+
+        // The unread bits, moved to the top of a long.
+        long bits = availableBits == 0 ? 0 : bitBuffer << (64 - availableBits);
+        if (availableBits < length && fillBuffer())
+            bits |= (buffer[bufferPosition] & 0xFFL) << 56 >>> availableBits;
+        return bits >>> (64 - length);
+    }
+
+    public void skipBits(int length) throws IOException {
+        if (length < 0 || length > 56)
+            throw new IllegalArgumentException("Illegal bit length: " + length);
+
+        if (availableBits < length) {
+            refill();
+            if (availableBits < length)
+                throw new EOFException("Unexpected end of bit stream.");
+        }
+        availableBits -= length;
+        bitCount += length;
+    }
+
+    public long getBitCount() {
+        return this.bitCount;
+    }
+
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
@@ -0,0 +1,86 @@
+package algorithms.huffman;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class BitWriter {
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private OutputStream outputStream;
+    private byte[] buffer;
+    private int bufferPosition;
+
+    // Pending bits are kept right-aligned in bitBuffer; fewer than 8 remain between calls.
+    private long bitBuffer;
+    private int pendingBits;
+    private long bitCount;
+
+    public BitWriter(OutputStream outputStream) {
+        this(outputStream, DEFAULT_BUFFER_SIZE);
+    }
+
+    public BitWriter(OutputStream outputStream, int bufferSize) {
+        if (bufferSize <= 0)
+            throw new IllegalArgumentException("Illegal buffer size: " + bufferSize);
+
+        this.outputStream = outputStream;
+        this.buffer = new byte[bufferSize];
+    }
+
+    public void writeBit(int bit) throws IOException {
+        bitBuffer = (bitBuffer << 1) | (bit & 1);
+        pendingBits++;
+        bitCount++;
+        if (pendingBits == 8) {
+            writeByte((int) bitBuffer);
+            pendingBits = 0;
+        }
+    }
+
+    public void writeBits(long bits, int length) throws IOException {
+        if (length < 0 || length > 64)
+            throw new IllegalArgumentException("Illegal bit length: " + length);
+
+        if (length > 56) {
+            writeBits(bits >>> 32, length - 32);
+            writeBits(bits, 32);
+            return;
+        }
+
+        bitBuffer = (bitBuffer << length) | (bits & ((1L << length) - 1));
+        pendingBits += length;
+        bitCount += length;
+        while (pendingBits >= 8) {
+            pendingBits -= 8;
+            writeByte((int) (bitBuffer >>> pendingBits));
+        }
+    }
+
+    private void writeByte(int value) throws IOException {
+        if (bufferPosition == buffer.length) {
+            outputStream.write(buffer, 0, bufferPosition);
+            bufferPosition = 0;
+        }
+        buffer[bufferPosition++] = (byte) value;
+    }
+
+    public long getBitCount() {
+        return this.bitCount;
+    }
+
+    // Pads the last partial byte with zeros, so the writer should only be flushed once all bits are written.
+    public void flush() throws IOException {
+        if (pendingBits > 0) {
+            writeByte((int) (bitBuffer << (8 - pendingBits)));
+            pendingBits = 0;
+        }
+        outputStream.write(buffer, 0, bufferPosition);
+        bufferPosition = 0;
+        outputStream.flush();
+    }
+
+    public void close() throws IOException {
+        flush();
+        outputStream.close();
+    }
+}
@@ -0,0 +1,116 @@
+package algorithms.huffman;
+
+import java.util.Arrays;
+
+public class CanonicalHuffmanCode {
+    // Symbols sorted by code length and then by symbol value, which is the order canonical codes are handed out in.
+    private int[] symbols;
+    private int[] lengths;
+
+    public CanonicalHuffmanCode(int[] symbols, int[] lengths) {
+        if (symbols.length != lengths.length)
+            throw new IllegalArgumentException("Expected one code length per symbol.");
+
+        int symbolCount = symbols.length;
+        this.symbols = new int[symbolCount];
+        this.lengths = new int[symbolCount];
+
+        // Sorted as (length, symbol) keys packed into longs, which keeps building the code O(n log n) on the
+        // widest alphabets.
+        long[] keys = new long[symbolCount];
+        for (int i = 0; i < symbolCount; i++) {
+            if (symbols[i] < 0)
+                throw new IllegalArgumentException("Illegal symbol: " + symbols[i]);
+            if (lengths[i] < 1 || lengths[i] > 64)
+                throw new IllegalArgumentException("Illegal code length for symbol " + symbols[i] + ": " + lengths[i]);
+            keys[i] = (long) lengths[i] << 32 | symbols[i];
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < symbolCount; i++) {
+            this.symbols[i] = (int) keys[i];
+            this.lengths[i] = (int) (keys[i] >>> 32);
+        }
+
+        checkKraftInequality();
+    }
+
+    public static CanonicalHuffmanCode fromCodeTable(HuffmanCodeTable codeTable) {
+        int symbolLimit = codeTable.getSymbolLimit();
+        int symbolCount = 0;
+        for (int symbol = 0; symbol < symbolLimit; symbol++) {
+            if (codeTable.getLength(symbol) > 0)
+                symbolCount++;
+        }
+
+        int[] symbols = new int[symbolCount];
+        int[] lengths = new int[symbolCount];
+        int index = 0;
+        for (int symbol = 0; symbol < symbolLimit; symbol++) {
+            if (codeTable.getLength(symbol) > 0) {
+                symbols[index] = symbol;
+                lengths[index] = codeTable.getLength(symbol);
+                index++;
+            }
+        }
+        return new CanonicalHuffmanCode(symbols, lengths);
+    }
+
+    // Codes of an over-subscribed set of lengths would collide, so they cannot describe a prefix code.
+    private void checkKraftInequality() {
+        int symbolCount = symbols.length;
+        if (symbolCount == 0)
+            return;
+
+        // code is the next free code of previousLength bits, and full is set once all of them are taken. Until then
+        // code stays below 2^previousLength, so shifting it to a longer length never overflows.
+        long code = 0;
+        int previousLength = lengths[0];
+        boolean full = false;
+        for (int i = 0; i < symbolCount; i++) {
+            if (full)
+                throw new IllegalArgumentException("Code lengths do not describe a prefix code.");
+            code <<= lengths[i] - previousLength;
+            previousLength = lengths[i];
+            code++;
+            // At 64 bits, 2^64 wraps around to 0.
+            full = lengths[i] == 64 ? code == 0 : code >>> lengths[i] != 0;
+        }
+    }
+
+    public int getSymbolCount() {
+        return symbols.length;
+    }
+
+    public int getSymbol(int index) {
+        return symbols[index];
+    }
+
+    public int getLength(int index) {
+        return lengths[index];
+    }
+
+    public int getMaxLength() {
+        return symbols.length == 0 ? 0 : lengths[symbols.length - 1];
+    }
+
+    public HuffmanCodeTable toCodeTable() {
+        int symbolLimit = 0;
+        for (int symbol : symbols) {
+            if (symbol >= symbolLimit)
+                symbolLimit = symbol + 1;
+        }
+
+        HuffmanCodeTable codeTable = new HuffmanCodeTable(symbolLimit);
+        long code = 0;
+        int previousLength = symbols.length == 0 ? 0 : lengths[0];
+        for (int i = 0; i < symbols.length; i++) {
+            code <<= lengths[i] - previousLength;
+            previousLength = lengths[i];
+            if (codeTable.hasCode(symbols[i]))
+                throw new IllegalArgumentException("Duplicate symbol: " + symbols[i]);
+            codeTable.setCode(symbols[i], code, lengths[i]);
+            code++;
+        }
+        return codeTable;
+    }
+}
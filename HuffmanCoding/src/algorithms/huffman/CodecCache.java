@@ -0,0 +1,327 @@
+package algorithms.huffman;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+// Keeps up to capacity trained codecs in memory, evicting the least recently used one when full. Models can
+// also be persisted to a directory, one file per model id, so that a new process finds them without training.
+// All methods are synchronized; training happens outside the lock.
+public class CodecCache {
+    public static final int DEFAULT_CAPACITY = 16;
+
+    // Layout of a persisted model: magic (int), version (byte), alphabet id (byte, since version 2; version 1
+    // models code characters), code as written by HuffmanContainer.writeCode.
+    private static final int MODEL_MAGIC = 0x4855464D; // "HUFM"
+    private static final int MODEL_VERSION = 2;
+    private static final String MODEL_FILE_SUFFIX = ".huf";
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    private int capacity;
+    private File directory;
+
+    // Entries are chained per bucket for lookup and doubly linked from most to least recently used.
+    private Entry[] buckets;
+    private Entry head;
+    private Entry tail;
+    private int size;
+
+    private long hitCount;
+    private long loadCount;
+    private long missCount;
+    private long evictionCount;
+
+    public CodecCache() {
+        this(DEFAULT_CAPACITY, null);
+    }
+
+    public CodecCache(int capacity) {
+        this(capacity, null);
+    }
+
+    public CodecCache(int capacity, File directory) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+
+        this.capacity = capacity;
+        this.directory = directory;
+        int bucketCount = 16;
+        while (bucketCount < capacity * 2 && bucketCount < 1 << 30) {
+            bucketCount <<= 1;
+        }
+        buckets = new Entry[bucketCount];
+    }
+
+    public HuffmanCodec getOrTrain(File file, Charset charset) throws IOException {
+        return getOrTrain(file, HuffmanAlphabet.CHAR, charset);
+    }
+
+    // Returns the codec trained on file, training it only if neither memory nor the model directory holds one
+    // for the same content, alphabet and charset.
+    public HuffmanCodec getOrTrain(File file, HuffmanAlphabet alphabet, Charset charset) throws IOException {
+        String modelId = contentHash(file, alphabet, charset);
+        HuffmanCodec codec = get(modelId);
+        if (codec != null)
+            return codec;
+
+        codec = HuffmanCodec.train(file, alphabet, charset);
+        put(modelId, codec);
+        return codec;
+    }
+
+    // Returns the codec stored under modelId, or null if there is none in memory or in the model directory.
+    public HuffmanCodec get(String modelId) throws IOException {
+        checkModelId(modelId);
+        synchronized (this) {
+            Entry entry = find(modelId);
+            if (entry != null) {
+                moveToFront(entry);
+                hitCount++;
+                return entry.codec;
+            }
+        }
+
+        HuffmanCodec codec = load(modelId);
+        synchronized (this) {
+            if (codec == null) {
+                missCount++;
+                return null;
+            }
+            loadCount++;
+            insert(modelId, codec);
+            return codec;
+        }
+    }
+
+    public void put(String modelId, HuffmanCodec codec) throws IOException {
+        checkModelId(modelId);
+        synchronized (this) {
+            insert(modelId, codec);
+        }
+        if (directory != null)
+            store(modelId, codec);
+    }
+
+    public synchronized int size() {
+        return this.size;
+    }
+
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    public synchronized long getHitCount() {
+        return this.hitCount;
+    }
+
+    // Lookups answered from the model directory rather than from memory.
+    public synchronized long getLoadCount() {
+        return this.loadCount;
+    }
+
+    public synchronized long getMissCount() {
+        return this.missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return this.evictionCount;
+    }
+
+    // Hex SHA-256 of the alphabet, the charset name and the file content; the same file read with another
+    // alphabet or charset gives another model, so all of them go into the key.
+    public static String contentHash(File file, HuffmanAlphabet alphabet, Charset charset) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+
+        // Character models were keyed on the charset alone before other alphabets existed.
+        if (alphabet != HuffmanAlphabet.CHAR)
+            digest.update(alphabet.name().getBytes(StandardCharsets.US_ASCII));
+        if (alphabet.isText())
+            digest.update(charset.name().getBytes(StandardCharsets.US_ASCII));
+        digest.update((byte) 0);
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream inputStream = new FileInputStream(file)) {
+            int bytesRead = inputStream.read(buffer);
+            while (bytesRead != -1) {
+                digest.update(buffer, 0, bytesRead);
+                bytesRead = inputStream.read(buffer);
+            }
+        }
+
+        StringBuilder hash = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hash.append(Character.forDigit((b >>> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hash.toString();
+    }
+
+    // Model ids become file names, so they are restricted to characters that are safe on every file system.
+    private static void checkModelId(String modelId) {
+        if (modelId.isEmpty() || modelId.length() > 128)
+            throw new IllegalArgumentException("Illegal model id: " + modelId);
+        for (int i = 0; i < modelId.length(); i++) {
+            char character = modelId.charAt(i);
+            if (!(character >= 'a' && character <= 'z' || character >= 'A' && character <= 'Z'
+                    || character >= '0' && character <= '9' || character == '-' || character == '_'))
+                throw new IllegalArgumentException("Illegal model id: " + modelId);
+        }
+    }
+
+    // A model file that cannot be read, such as one cut short by a full disk, is deleted and counts as a miss,
+    // so that the model is trained and stored again.
+    private HuffmanCodec load(String modelId) throws IOException {
+        if (directory == null)
+            return null;
+        File modelFile = new File(directory, modelId + MODEL_FILE_SUFFIX);
+        if (!modelFile.isFile())
+            return null;
+
+        try {
+            return read(modelFile);
+        } catch (IOException exception) {
+            Files.deleteIfExists(modelFile.toPath());
+            return null;
+        }
+    }
+
+    private static HuffmanCodec read(File modelFile) throws IOException {
+        try (DataInputStream inputStream = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(modelFile)))) {
+            if (inputStream.readInt() != MODEL_MAGIC)
+                throw new IOException("Not a Huffman model: " + modelFile);
+            int version = inputStream.readUnsignedByte();
+            if (version < 1 || version > MODEL_VERSION)
+                throw new IOException("Unsupported Huffman model version " + version + ": " + modelFile);
+            HuffmanAlphabet alphabet = version == 1 ? HuffmanAlphabet.CHAR
+                    : HuffmanContainer.readAlphabet(inputStream);
+            return HuffmanCodec.fromCode(HuffmanContainer.readCode(inputStream, alphabet.getSymbolLimit()), alphabet);
+        }
+    }
+
+    // Writes to a temporary file first, so a concurrent reader never sees a half written model.
+    private void store(String modelId, HuffmanCodec codec) throws IOException {
+        Files.createDirectories(directory.toPath());
+        File temporaryFile = File.createTempFile("model-", ".tmp", directory);
+        try {
+            try (DataOutputStream outputStream = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+                outputStream.writeInt(MODEL_MAGIC);
+                outputStream.writeByte(MODEL_VERSION);
+                outputStream.writeByte(codec.getAlphabet().getId());
+                HuffmanContainer.writeCode(outputStream, codec.getCode());
+            }
+            Files.move(temporaryFile.toPath(), new File(directory, modelId + MODEL_FILE_SUFFIX).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile.toPath());
+        }
+    }
+
+    private int bucketOf(String modelId) {
+        int hash = modelId.hashCode() * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (buckets.length - 1);
+    }
+
+    private Entry find(String modelId) {
+        Entry entry = buckets[bucketOf(modelId)];
+        while (entry != null && !entry.modelId.equals(modelId)) {
+            entry = entry.nextInBucket;
+        }
+        return entry;
+    }
+
+    private void insert(String modelId, HuffmanCodec codec) {
+        Entry entry = find(modelId);
+        if (entry != null) {
+            entry.codec = codec;
+            moveToFront(entry);
+            return;
+        }
+
+        if (size == capacity) {
+            remove(tail);
+            evictionCount++;
+        }
+
+        entry = new Entry(modelId, codec);
+        int bucket = bucketOf(modelId);
+        entry.nextInBucket = buckets[bucket];
+        buckets[bucket] = entry;
+        linkFirst(entry);
+        size++;
+    }
+
+    private void remove(Entry entry) {
+        int bucket = bucketOf(entry.modelId);
+        if (buckets[bucket] == entry) {
+            buckets[bucket] = entry.nextInBucket;
+        } else {
+            Entry previous = buckets[bucket];
+            while (previous.nextInBucket != entry) {
+                previous = previous.nextInBucket;
+            }
+            previous.nextInBucket = entry.nextInBucket;
+        }
+        unlink(entry);
+        size--;
+    }
+
+    private void moveToFront(Entry entry) {
+        if (entry == head)
+            return;
+        unlink(entry);
+        linkFirst(entry);
+    }
+
+    private void linkFirst(Entry entry) {
+        entry.previous = null;
+        entry.next = head;
+        if (head != null)
+            head.previous = entry;
+        head = entry;
+        if (tail == null)
+            tail = entry;
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.previous != null)
+            entry.previous.next = entry.next;
+        else
+            head = entry.next;
+        if (entry.next != null)
+            entry.next.previous = entry.previous;
+        else
+            tail = entry.previous;
+        entry.previous = null;
+        entry.next = null;
+    }
+
+    private static class Entry {
+        private String modelId;
+        private HuffmanCodec codec;
+        private Entry nextInBucket;
+        private Entry previous;
+        private Entry next;
+
+        Entry(String modelId, HuffmanCodec codec) {
+            this.modelId = modelId;
+            this.codec = codec;
+        }
+    }
+}
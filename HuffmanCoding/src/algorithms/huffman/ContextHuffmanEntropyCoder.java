@@ -0,0 +1,412 @@
+package algorithms.huffman;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+// Order-1 context modeling: every symbol is coded with a table chosen by the symbol before it, which captures
+// the correlation between neighbouring characters of text. Only contexts whose table saves more bits than it
+// costs to store get one, at most maxContexts of them; every other context, and the first symbol of a block,
+// falls back to the order-0 code.
+//
+// Context tables code ranks, the positions of symbols in the ascending order-0 symbol list, plus an escape
+// (rank symbolCount) for symbols never seen in that context, which then follow in the order-0 code. Ranks keep
+// every table as small as the alphabet actually used, so a context costs about 2 KB plus 12 bytes per symbol.
+public class ContextHuffmanEntropyCoder implements EntropyCoder {
+    public static final int DEFAULT_MAX_CONTEXTS = 256;
+    public static final int MAX_CONTEXTS = 4096;
+
+    private static final int NO_CONTEXT = -1;
+    private static final int SYMBOL_BUFFER_SIZE = 8192;
+    // Pair counts are kept in an array up to this many cells and in a hash map beyond.
+    private static final int DENSE_PAIR_LIMIT = 1 << 20;
+    // The followers of a single context are counted in an array up to this many ranks and in a hash map beyond,
+    // so that on wide alphabets each context costs time in proportion to its followers.
+    private static final int DENSE_FOLLOWER_LIMIT = 4096;
+
+    private final HuffmanCodec codec;
+    private final int[] symbolsByRank;
+    // Rank of every symbol with an order-0 code, indexed by symbol.
+    private final int[] ranks;
+    // Rank of the previous symbol of every context, ascending, and the context of every rank or NO_CONTEXT.
+    private final int[] contextRanks;
+    private final int[] contextsByRank;
+    private final CanonicalHuffmanCode[] contextCodes;
+    private final HuffmanCodeTable[] contextCodeTables;
+    private final HuffmanDecodeTable[] contextDecodeTables;
+    private final int maxContextCodeLength;
+
+    private ContextHuffmanEntropyCoder(HuffmanCodec codec, int[] contextRanks, CanonicalHuffmanCode[] contextCodes) {
+        CanonicalHuffmanCode code = codec.getCode();
+        int symbolCount = code.getSymbolCount();
+        symbolsByRank = new int[symbolCount];
+        for (int i = 0; i < symbolCount; i++) {
+            symbolsByRank[i] = code.getSymbol(i);
+        }
+        Arrays.sort(symbolsByRank);
+        ranks = new int[symbolCount == 0 ? 0 : symbolsByRank[symbolCount - 1] + 1];
+        Arrays.fill(ranks, -1);
+        for (int rank = 0; rank < symbolCount; rank++) {
+            ranks[symbolsByRank[rank]] = rank;
+        }
+
+        contextsByRank = new int[symbolCount];
+        Arrays.fill(contextsByRank, NO_CONTEXT);
+        contextCodeTables = new HuffmanCodeTable[contextRanks.length];
+        contextDecodeTables = new HuffmanDecodeTable[contextRanks.length];
+        int maxContextCodeLength = 0;
+        for (int context = 0; context < contextRanks.length; context++) {
+            if (contextRanks[context] < 0 || contextRanks[context] >= symbolCount)
+                throw new IllegalArgumentException("Illegal context: " + contextRanks[context]);
+            if (context > 0 && contextRanks[context] <= contextRanks[context - 1])
+                throw new IllegalArgumentException("Contexts must be distinct and ascending.");
+            CanonicalHuffmanCode contextCode = contextCodes[context];
+            for (int i = 0; i < contextCode.getSymbolCount(); i++) {
+                if (contextCode.getSymbol(i) > symbolCount)
+                    throw new IllegalArgumentException("Illegal rank in context " + contextRanks[context] + ": "
+                            + contextCode.getSymbol(i));
+            }
+
+            maxContextCodeLength = Math.max(maxContextCodeLength, contextCode.getMaxLength());
+            contextsByRank[contextRanks[context]] = context;
+            contextCodeTables[context] = contextCode.toCodeTable();
+            contextDecodeTables[context] = new HuffmanDecodeTable(contextCodeTables[context],
+                    HuffmanDecodeTable.MIN_LOOKAHEAD_BITS);
+        }
+
+        this.codec = codec;
+        this.contextRanks = contextRanks;
+        this.contextCodes = contextCodes;
+        this.maxContextCodeLength = maxContextCodeLength;
+    }
+
+    // With order-0 counts only there is nothing to choose contexts from, so every symbol uses the order-0 code.
+    public static ContextHuffmanEntropyCoder fromFrequencies(FrequencyTable frequencyTable, HuffmanAlphabet alphabet) {
+        return new ContextHuffmanEntropyCoder(order0Codec(frequencyTable, alphabet), new int[0],
+                new CanonicalHuffmanCode[0]);
+    }
+
+    public static ContextHuffmanEntropyCoder train(int[] symbols, int offset, int length, HuffmanAlphabet alphabet,
+            int maxContexts) {
+        FrequencyTable frequencyTable = new FrequencyTable(Math.min(alphabet.getSymbolLimit(),
+                FrequencyTable.DEFAULT_DENSE_LIMIT));
+        frequencyTable.addAll(symbols, offset, length);
+        ContextCounter counter = new ContextCounter(order0Codec(frequencyTable, alphabet), frequencyTable,
+                maxContexts);
+        counter.add(symbols, offset, length);
+        return counter.build();
+    }
+
+    // Reads file twice, once for the order-0 counts and once for the pairs; charset is only used by the text
+    // alphabets.
+    public static ContextHuffmanEntropyCoder train(File file, HuffmanAlphabet alphabet, Charset charset,
+            int maxContexts) throws IOException {
+        FrequencyTable frequencyTable = FrequencyTable.count(file, alphabet, charset);
+        ContextCounter counter = new ContextCounter(order0Codec(frequencyTable, alphabet), frequencyTable,
+                maxContexts);
+        int[] symbols = new int[SYMBOL_BUFFER_SIZE];
+        try (SymbolReader reader = alphabet.isText() ? new SymbolReader(new MappedFileReader(file, charset), alphabet)
+                : new SymbolReader(new BufferedInputStream(new FileInputStream(file), SYMBOL_BUFFER_SIZE))) {
+            int symbolsRead = reader.read(symbols, 0, symbols.length);
+            while (symbolsRead != -1) {
+                counter.add(symbols, 0, symbolsRead);
+                symbolsRead = reader.read(symbols, 0, symbols.length);
+            }
+        }
+        return counter.build();
+    }
+
+    private static HuffmanCodec order0Codec(FrequencyTable frequencyTable, HuffmanAlphabet alphabet) {
+        if (frequencyTable.getDistinctSymbolCount() == 0)
+            return HuffmanCodec.fromCodeLengths(new int[0], new int[0], alphabet);
+        return HuffmanCodec.fromFrequencies(frequencyTable, alphabet);
+    }
+
+    public HuffmanCodec getCodec() {
+        return this.codec;
+    }
+
+    public int getContextCount() {
+        return this.contextRanks.length;
+    }
+
+    @Override
+    public EntropyCoderType getType() {
+        return EntropyCoderType.CONTEXT;
+    }
+
+    @Override
+    public HuffmanAlphabet getAlphabet() {
+        return codec.getAlphabet();
+    }
+
+    @Override
+    public boolean canEncode(int symbol) {
+        return codec.canEncode(symbol);
+    }
+
+    @Override
+    public byte[] encode(int[] symbols, int offset, int length) throws IllegalArgumentException {
+        HuffmanCodeTable codeTable = codec.getCodeTable();
+        int escape = symbolsByRank.length;
+        ByteArrayOutputStream output = new ByteArrayOutputStream(length / 2 + 16);
+        BitWriter bitWriter = new BitWriter(output);
+
+        try {
+            int context = NO_CONTEXT;
+            for (int i = offset; i < offset + length; i++) {
+                int symbol = symbols[i];
+                if (!codeTable.hasCode(symbol))
+                    throw new IllegalArgumentException("Did not find an encoding for the following "
+                            + (codec.getAlphabet().isText() ? "character: " + new String(Character.toChars(symbol))
+                                    : "byte: " + symbol));
+                int rank = ranks[symbol];
+
+                if (context != NO_CONTEXT) {
+                    HuffmanCodeTable contextCodeTable = contextCodeTables[context];
+                    if (contextCodeTable.hasCode(rank)) {
+                        bitWriter.writeBits(contextCodeTable.getCode(rank), contextCodeTable.getLength(rank));
+                        context = contextsByRank[rank];
+                        continue;
+                    }
+                    bitWriter.writeBits(contextCodeTable.getCode(escape), contextCodeTable.getLength(escape));
+                }
+                bitWriter.writeBits(codeTable.getCode(symbol), codeTable.getLength(symbol));
+                context = contextsByRank[rank];
+            }
+            bitWriter.flush();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return output.toByteArray();
+    }
+
+    // A symbol costs at most a context code, the escape, followed by its order-0 code.
+    @Override
+    public long maxPayloadSize(int length) {
+        return ((long) length * (maxContextCodeLength + codec.getMaxCodeLength()) + 7) / 8;
+    }
+
+    @Override
+    public void decode(byte[] payload, int[] output, int offset, int length) throws IllegalArgumentException {
+        HuffmanDecodeTable decodeTable = codec.getDecodeTable();
+        int escape = symbolsByRank.length;
+        long endBit = 8L * payload.length;
+        BitReader bitReader = new BitReader(new ByteArrayInputStream(payload));
+
+        try {
+            int context = NO_CONTEXT;
+            for (int i = offset; i < offset + length; i++) {
+                if (context != NO_CONTEXT) {
+                    int rank = contextDecodeTables[context].decodeSymbol(bitReader, endBit);
+                    if (rank == -1)
+                        throw new IllegalArgumentException("Did not find a matching symbol at bit "
+                                + bitReader.getBitCount() + ".");
+                    if (rank != escape) {
+                        output[i] = symbolsByRank[rank];
+                        context = contextsByRank[rank];
+                        continue;
+                    }
+                }
+
+                int symbol = decodeTable.decodeSymbol(bitReader, endBit);
+                if (symbol == -1)
+                    throw new IllegalArgumentException("Did not find a matching symbol at bit "
+                            + bitReader.getBitCount() + ".");
+                output[i] = symbol;
+                context = contextsByRank[ranks[symbol]];
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+
+        if ((bitReader.getBitCount() + 7) / 8 != payload.length)
+            throw new IllegalArgumentException("Block does not decode to " + length + " symbols.");
+    }
+
+    // Model: order-0 code as written by HuffmanContainer.writeCode, context count (varint), then for every
+    // context the rank of its previous symbol (varint) and its code over ranks (HuffmanContainer.writeCode).
+    @Override
+    public void writeModel(DataOutputStream outputStream) throws IOException {
+        HuffmanContainer.writeCode(outputStream, codec.getCode());
+        HuffmanContainer.writeVarInt(outputStream, contextRanks.length);
+        for (int context = 0; context < contextRanks.length; context++) {
+            HuffmanContainer.writeVarInt(outputStream, contextRanks[context]);
+            HuffmanContainer.writeCode(outputStream, contextCodes[context]);
+        }
+    }
+
+    static ContextHuffmanEntropyCoder readModel(DataInputStream inputStream, HuffmanAlphabet alphabet)
+            throws IOException {
+        CanonicalHuffmanCode code = HuffmanContainer.readCode(inputStream, alphabet.getSymbolLimit());
+        int contextCount = HuffmanContainer.readVarInt(inputStream);
+        if (contextCount < 0 || contextCount > Math.min(code.getSymbolCount(), MAX_CONTEXTS))
+            throw new IOException("Corrupt context model: bad context count.");
+
+        int[] contextRanks = new int[contextCount];
+        CanonicalHuffmanCode[] contextCodes = new CanonicalHuffmanCode[contextCount];
+        for (int context = 0; context < contextCount; context++) {
+            contextRanks[context] = HuffmanContainer.readVarInt(inputStream);
+            // A context codes at most every symbol and the escape.
+            contextCodes[context] = HuffmanContainer.readCode(inputStream, code.getSymbolCount() + 1);
+        }
+
+        try {
+            return new ContextHuffmanEntropyCoder(HuffmanCodec.fromCode(code, alphabet), contextRanks, contextCodes);
+        } catch (IllegalArgumentException exception) {
+            throw new IOException("Corrupt context model: " + exception.getMessage());
+        }
+    }
+
+    // Counts how often every symbol follows each candidate context, the maxContexts most frequent symbols, and
+    // keeps the candidates whose table pays for itself.
+    private static class ContextCounter {
+        private HuffmanCodec codec;
+        private int symbolCount;
+        private int[] symbolsByRank;
+        private int[] ranks;
+        private int[] candidatesByRank;
+        private int[] candidateRanks;
+        private long[] densePairCounts;
+        private IntLongHashMap sparsePairCounts;
+        private int previousCandidate = NO_CONTEXT;
+
+        ContextCounter(HuffmanCodec codec, FrequencyTable frequencyTable, int maxContexts) {
+            if (maxContexts < 0 || maxContexts > MAX_CONTEXTS)
+                throw new IllegalArgumentException("Context count must be between 0 and " + MAX_CONTEXTS + ".");
+
+            this.codec = codec;
+            symbolsByRank = frequencyTable.getSymbols();
+            symbolCount = symbolsByRank.length;
+            ranks = new int[symbolCount == 0 ? 0 : symbolsByRank[symbolCount - 1] + 1];
+            for (int rank = 0; rank < symbolCount; rank++) {
+                ranks[symbolsByRank[rank]] = rank;
+            }
+
+            Integer[] ranksByCount = new Integer[symbolCount];
+            for (int rank = 0; rank < symbolCount; rank++) {
+                ranksByCount[rank] = rank;
+            }
+            Arrays.sort(ranksByCount, (rank, other) -> Long.compare(
+                    frequencyTable.getCount(symbolsByRank[other]), frequencyTable.getCount(symbolsByRank[rank])));
+            // Pair keys are candidate * symbolCount + rank, so with the widest alphabets fewer than maxContexts
+            // candidates may be counted to keep every key within an int.
+            int maxCandidates = symbolCount == 0 ? 0 : Integer.MAX_VALUE / symbolCount;
+            candidateRanks = new int[Math.min(Math.min(maxContexts, symbolCount), maxCandidates)];
+            for (int i = 0; i < candidateRanks.length; i++) {
+                candidateRanks[i] = ranksByCount[i];
+            }
+            Arrays.sort(candidateRanks);
+            candidatesByRank = new int[symbolCount];
+            Arrays.fill(candidatesByRank, NO_CONTEXT);
+            for (int candidate = 0; candidate < candidateRanks.length; candidate++) {
+                candidatesByRank[candidateRanks[candidate]] = candidate;
+            }
+
+            if ((long) candidateRanks.length * symbolCount <= DENSE_PAIR_LIMIT)
+                densePairCounts = new long[candidateRanks.length * symbolCount];
+            else
+                sparsePairCounts = new IntLongHashMap();
+        }
+
+        void add(int[] symbols, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                int rank = ranks[symbols[i]];
+                if (previousCandidate != NO_CONTEXT) {
+                    // Below candidateRanks.length * symbolCount, which the constructor keeps within an int.
+                    int pair = previousCandidate * symbolCount + rank;
+                    if (densePairCounts != null)
+                        densePairCounts[pair]++;
+                    else
+                        sparsePairCounts.add(pair, 1);
+                }
+                previousCandidate = candidatesByRank[rank];
+            }
+        }
+
+        ContextHuffmanEntropyCoder build() {
+            // Sorted pairs are grouped by candidate, with the followers of each in ascending rank order.
+            int[] pairs = densePairCounts == null ? sparsePairCounts.keys() : null;
+            if (pairs != null)
+                Arrays.sort(pairs);
+            int pairIndex = 0;
+            int[] followerRanks = new int[symbolCount];
+            long[] followerCounts = new long[symbolCount];
+
+            IntArrayList contextRanks = new IntArrayList();
+            ArrayList<CanonicalHuffmanCode> contextCodes = new ArrayList<>();
+            for (int candidate = 0; candidate < candidateRanks.length; candidate++) {
+                int followerCount = 0;
+                if (pairs == null) {
+                    for (int rank = 0; rank < symbolCount; rank++) {
+                        long count = densePairCounts[candidate * symbolCount + rank];
+                        if (count > 0) {
+                            followerRanks[followerCount] = rank;
+                            followerCounts[followerCount++] = count;
+                        }
+                    }
+                } else {
+                    for (; pairIndex < pairs.length && pairs[pairIndex] / symbolCount == candidate; pairIndex++) {
+                        followerRanks[followerCount] = pairs[pairIndex] % symbolCount;
+                        followerCounts[followerCount++] = sparsePairCounts.get(pairs[pairIndex]);
+                    }
+                }
+
+                CanonicalHuffmanCode contextCode = buildContextCode(followerRanks, followerCounts, followerCount);
+                if (contextCode != null) {
+                    contextRanks.add(candidateRanks[candidate]);
+                    contextCodes.add(contextCode);
+                }
+            }
+
+            CanonicalHuffmanCode[] codes = new CanonicalHuffmanCode[contextCodes.size()];
+            for (int context = 0; context < codes.length; context++) {
+                codes[context] = contextCodes.get(context);
+            }
+            return new ContextHuffmanEntropyCoder(codec, contextRanks.toArray(), codes);
+        }
+
+        // Returns the code for a context, or null when its followers cost no more with the order-0 code than
+        // with a table of their own plus the bytes that table takes in the model.
+        private CanonicalHuffmanCode buildContextCode(int[] followerRanks, long[] followerCounts, int followerCount) {
+            if (followerCount == 0)
+                return null;
+
+            int denseLimit = symbolCount < DENSE_FOLLOWER_LIMIT ? symbolCount + 1 : 0;
+            FrequencyTable frequencyTable = new FrequencyTable(denseLimit);
+            long order0Bits = 0;
+            for (int i = 0; i < followerCount; i++) {
+                frequencyTable.add(followerRanks[i], followerCounts[i]);
+                order0Bits += followerCounts[i] * codec.getCodeTable().getLength(symbolsByRank[followerRanks[i]]);
+            }
+            // Followers never seen in this context are escaped to the order-0 code.
+            if (followerCount < symbolCount)
+                frequencyTable.add(symbolCount, 1);
+
+            CanonicalHuffmanCode contextCode = HuffmanCodingTree.build(frequencyTable).toCanonicalCode();
+            HuffmanCodeTable contextCodeTable = contextCode.toCodeTable();
+            long contextBits = 0;
+            for (int i = 0; i < followerCount; i++) {
+                contextBits += followerCounts[i] * contextCodeTable.getLength(followerRanks[i]);
+            }
+
+            ByteArrayOutputStream model = new ByteArrayOutputStream();
+            try {
+                DataOutputStream modelStream = new DataOutputStream(model);
+                HuffmanContainer.writeVarInt(modelStream, symbolCount);
+                HuffmanContainer.writeCode(modelStream, contextCode);
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+            return contextBits + 8L * model.size() < order0Bits ? contextCode : null;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package algorithms.huffman;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+// Codes blocks of symbols against a model built from a frequency pass. Every block payload is self-contained,
+// so blocks can be coded in parallel, and implementations are immutable and safe to share between threads.
+// The model is written once per container by writeModel and read back by EntropyCoderType.readModel.
+public interface EntropyCoder {
+    EntropyCoderType getType();
+
+    HuffmanAlphabet getAlphabet();
+
+    boolean canEncode(int symbol);
+
+    byte[] encode(int[] symbols, int offset, int length) throws IllegalArgumentException;
+
+    // Decodes exactly length symbols, and fails unless they use up the whole payload.
+    void decode(byte[] payload, int[] output, int offset, int length) throws IllegalArgumentException;
+
+    // The most bytes encode can produce for length symbols, so that readers can reject a longer payload before
+    // allocating anything for it.
+    long maxPayloadSize(int length);
+
+    void writeModel(DataOutputStream outputStream) throws IOException;
+}
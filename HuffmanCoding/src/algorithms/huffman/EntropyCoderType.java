@@ -0,0 +1,74 @@
+package algorithms.huffman;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+
+// The available entropy coders. HUFFMAN is the fastest, ANS gets closer to the entropy on skewed
+// distributions at a similar speed, and RANGE adapts its probabilities as it goes, which pays off when
+// statistics drift within a block or a symbol is far more likely than one half, at a lower speed. CONTEXT
+// picks a Huffman table by the previous symbol, which suits text; it needs pair counts, so create gives it
+// order-0 statistics only and ContextHuffmanEntropyCoder.train is the way to build a useful one. LZ77 replaces
+// repeated strings with references to earlier ones before Huffman coding, as Deflate does, which pays off on
+// logs, CSV and other repetitive input; it takes no statistics up front, since every block carries its own codes.
+// ADAPTIVE is one-pass (FGK) Huffman coding, which needs neither statistics nor a model but decodes bit by bit.
+public enum EntropyCoderType {
+    HUFFMAN(0),
+    ANS(1),
+    RANGE(2),
+    CONTEXT(3),
+    LZ77(4),
+    ADAPTIVE(5);
+
+    private int id;
+
+    EntropyCoderType(int id) {
+        this.id = id;
+    }
+
+    // Identifies the coder in containers.
+    public int getId() {
+        return this.id;
+    }
+
+    public EntropyCoder create(FrequencyTable frequencyTable, HuffmanAlphabet alphabet) {
+        switch (this) {
+            case HUFFMAN:
+                return new HuffmanEntropyCoder(HuffmanCodec.fromFrequencies(frequencyTable, alphabet));
+            case ANS:
+                return AnsEntropyCoder.fromFrequencies(frequencyTable, alphabet);
+            case CONTEXT:
+                return ContextHuffmanEntropyCoder.fromFrequencies(frequencyTable, alphabet);
+            case LZ77:
+                return new Lz77HuffmanEntropyCoder(alphabet);
+            case ADAPTIVE:
+                return new AdaptiveHuffmanEntropyCoder(alphabet);
+            default:
+                return RangeEntropyCoder.fromFrequencies(frequencyTable, alphabet);
+        }
+    }
+
+    public EntropyCoder readModel(DataInputStream inputStream, HuffmanAlphabet alphabet) throws IOException {
+        switch (this) {
+            case HUFFMAN:
+                return HuffmanEntropyCoder.readModel(inputStream, alphabet);
+            case ANS:
+                return AnsEntropyCoder.readModel(inputStream, alphabet);
+            case CONTEXT:
+                return ContextHuffmanEntropyCoder.readModel(inputStream, alphabet);
+            case LZ77:
+                return Lz77HuffmanEntropyCoder.readModel(inputStream, alphabet);
+            case ADAPTIVE:
+                return AdaptiveHuffmanEntropyCoder.readModel(inputStream, alphabet);
+            default:
+                return RangeEntropyCoder.readModel(inputStream, alphabet);
+        }
+    }
+
+    public static EntropyCoderType fromId(int id) {
+        for (EntropyCoderType type : values()) {
+            if (type.id == id)
+                return type;
+        }
+        throw new IllegalArgumentException("Unknown entropy coder: " + id);
+    }
+}
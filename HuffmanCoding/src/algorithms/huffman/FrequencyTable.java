@@ -0,0 +1,192 @@
+package algorithms.huffman;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+public class FrequencyTable {
+    public static final int DEFAULT_DENSE_LIMIT = 0x10000;
+
+    // Files at least this large are counted in parallel chunks when their charset allows it.
+    private static final long PARALLEL_COUNT_THRESHOLD = 64L * 1024 * 1024;
+    private static final int CHAR_BUFFER_SIZE = 8192;
+
+    // Symbols below denseCounts.length are counted in place; anything above goes to the sparse map.
+    private long[] denseCounts;
+    private IntLongHashMap sparseCounts;
+
+    public FrequencyTable() {
+        this(DEFAULT_DENSE_LIMIT);
+    }
+
+    public FrequencyTable(int denseLimit) {
+        if (denseLimit < 0)
+            throw new IllegalArgumentException("Illegal dense limit: " + denseLimit);
+
+        denseCounts = new long[denseLimit];
+    }
+
+    // Counts every character of file decoded with charset.
+    public static FrequencyTable count(File file, Charset charset) throws IOException {
+        return count(file, HuffmanAlphabet.CHAR, charset);
+    }
+
+    // Counts every symbol of file; charset is only used by the text alphabets.
+    public static FrequencyTable count(File file, HuffmanAlphabet alphabet, Charset charset) throws IOException {
+        if (file.length() >= PARALLEL_COUNT_THRESHOLD && ParallelFrequencyCounter.supports(alphabet, charset))
+            return ParallelFrequencyCounter.count(file, alphabet, charset);
+
+        FrequencyTable frequencyTable = new FrequencyTable(Math.min(alphabet.getSymbolLimit(), DEFAULT_DENSE_LIMIT));
+        if (alphabet == HuffmanAlphabet.CHAR) {
+            char[] buffer = new char[CHAR_BUFFER_SIZE];
+            try (Reader reader = new MappedFileReader(file, charset)) {
+                int charsRead = reader.read(buffer);
+                while (charsRead != -1) {
+                    frequencyTable.addAll(buffer, 0, charsRead);
+                    charsRead = reader.read(buffer);
+                }
+            }
+            return frequencyTable;
+        }
+
+        int[] symbols = new int[CHAR_BUFFER_SIZE];
+        try (SymbolReader reader = alphabet == HuffmanAlphabet.BYTE
+                ? new SymbolReader(new BufferedInputStream(new FileInputStream(file), CHAR_BUFFER_SIZE))
+                : new SymbolReader(new MappedFileReader(file, charset), alphabet)) {
+            int symbolsRead = reader.read(symbols, 0, symbols.length);
+            while (symbolsRead != -1) {
+                frequencyTable.addAll(symbols, 0, symbolsRead);
+                symbolsRead = reader.read(symbols, 0, symbols.length);
+            }
+        }
+        return frequencyTable;
+    }
+
+    public void increment(int symbol) {
+        if (symbol >= 0 && symbol < denseCounts.length)
+            denseCounts[symbol]++;
+        else
+            addSparse(symbol, 1);
+    }
+
+    public void add(int symbol, long count) {
+        if (count < 0)
+            throw new IllegalArgumentException("Illegal count: " + count);
+
+        if (symbol >= 0 && symbol < denseCounts.length)
+            denseCounts[symbol] += count;
+        else
+            addSparse(symbol, count);
+    }
+
+    private void addSparse(int symbol, long count) {
+        if (symbol < 0)
+            throw new IllegalArgumentException("Illegal symbol: " + symbol);
+
+        if (sparseCounts == null)
+            sparseCounts = new IntLongHashMap();
+        sparseCounts.add(symbol, count);
+    }
+
+    public void addAll(char[] characters, int offset, int length) {
+        long[] counts = denseCounts;
+        int end = offset + length;
+        if (counts.length >= DEFAULT_DENSE_LIMIT) {
+            for (int i = offset; i < end; i++) {
+                counts[characters[i]]++;
+            }
+        } else {
+            for (int i = offset; i < end; i++) {
+                increment(characters[i]);
+            }
+        }
+    }
+
+    public void addAll(int[] symbols, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            increment(symbols[i]);
+        }
+    }
+
+    public void addAll(byte[] bytes, int offset, int length) {
+        if (denseCounts.length < 0x100) {
+            for (int i = offset; i < offset + length; i++) {
+                increment(bytes[i] & 0xFF);
+            }
+            return;
+        }
+
+        long[] counts = denseCounts;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            counts[bytes[i] & 0xFF]++;
+        }
+    }
+
+    public void addAll(FrequencyTable other) {
+        long[] otherCounts = other.denseCounts;
+        int sharedLength = Math.min(denseCounts.length, otherCounts.length);
+        for (int symbol = 0; symbol < sharedLength; symbol++) {
+            denseCounts[symbol] += otherCounts[symbol];
+        }
+        for (int symbol = sharedLength; symbol < otherCounts.length; symbol++) {
+            if (otherCounts[symbol] > 0)
+                add(symbol, otherCounts[symbol]);
+        }
+
+        if (other.sparseCounts != null) {
+            for (int symbol : other.sparseCounts.keys()) {
+                add(symbol, other.sparseCounts.get(symbol));
+            }
+        }
+    }
+
+    public long getCount(int symbol) {
+        if (symbol >= 0 && symbol < denseCounts.length)
+            return denseCounts[symbol];
+        return sparseCounts == null || symbol < 0 ? 0 : sparseCounts.get(symbol);
+    }
+
+    public long getTotalCount() {
+        long total = 0;
+        for (int symbol : getSymbols()) {
+            total += getCount(symbol);
+        }
+        return total;
+    }
+
+    // Returns every symbol with a non-zero count, in ascending order.
+    public int[] getSymbols() {
+        int denseSymbolCount = 0;
+        for (int symbol = 0; symbol < denseCounts.length; symbol++) {
+            if (denseCounts[symbol] > 0)
+                denseSymbolCount++;
+        }
+
+        int[] sparseSymbols = sparseCounts == null ? new int[0] : sparseCounts.keys();
+        int sparseSymbolCount = 0;
+        for (int i = 0; i < sparseSymbols.length; i++) {
+            if (sparseCounts.get(sparseSymbols[i]) > 0)
+                sparseSymbols[sparseSymbolCount++] = sparseSymbols[i];
+        }
+        Arrays.sort(sparseSymbols, 0, sparseSymbolCount);
+
+        int[] symbols = new int[denseSymbolCount + sparseSymbolCount];
+        int index = 0;
+        for (int symbol = 0; symbol < denseCounts.length; symbol++) {
+            if (denseCounts[symbol] > 0)
+                symbols[index++] = symbol;
+        }
+        System.arraycopy(sparseSymbols, 0, symbols, index, sparseSymbolCount);
+        return symbols;
+    }
+
+    public int getDistinctSymbolCount() {
+        return getSymbols().length;
+    }
+}
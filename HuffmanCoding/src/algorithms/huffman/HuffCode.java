@@ -1,184 +1,267 @@
 package algorithms.huffman;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Scanner;
 
 public class HuffCode {
-    private static ArrayList<HuffmanNode> nodes;
+    // When set, trained models are kept in this directory and reused by later runs on the same training file.
+    private static final String CACHE_DIRECTORY_PROPERTY = "huffman.cacheDirectory";
+    // Caps the number of per-context tables of the context coder.
+    private static final String MAX_CONTEXTS_PROPERTY = "huffman.maxContexts";
+    // Window size (as a power of two) and level of the LZ77 stage.
+    private static final String WINDOW_BITS_PROPERTY = "huffman.windowBits";
+    private static final String LEVEL_PROPERTY = "huffman.level";
+    // Caps the code lengths of the Huffman coder.
+    private static final String MAX_CODE_LENGTH_PROPERTY = "huffman.maxCodeLength";
+
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final String STANDARD_STREAM = "-";
+
+    // Created on first use from CACHE_DIRECTORY_PROPERTY and kept for the life of the process.
+    private static CodecCache codecCache;
+
+    private static synchronized CodecCache getCodecCache() {
+        String cacheDirectory = System.getProperty(CACHE_DIRECTORY_PROPERTY);
+        if (cacheDirectory != null && codecCache == null)
+            codecCache = new CodecCache(CodecCache.DEFAULT_CAPACITY, new File(cacheDirectory));
+        return codecCache;
+    }
 
-    private static void buildHuffmanNodes(File file) throws FileNotFoundException, IOException {
-        FileReader fReader = new FileReader(file);
+    private static HuffmanCodec train(File file, HuffmanAlphabet alphabet) throws IOException {
+        CodecCache cache = getCodecCache();
+        if (cache == null)
+            return HuffmanCodec.train(file, alphabet, Charset.defaultCharset());
+        return cache.getOrTrain(file, alphabet, Charset.defaultCharset());
+    }
 
-        int character = fReader.read();
-        if (character == -1) {
-            fReader.close();
-            throw new IOException("File is empty.");
-        }
+    private static InputStream openInput(String name) throws IOException {
+        if (name.equals(STANDARD_STREAM))
+            return new BufferedInputStream(new FileInputStream(FileDescriptor.in), STREAM_BUFFER_SIZE);
+        return new BufferedInputStream(Channels.newInputStream(
+                FileChannel.open(new File(name).toPath(), StandardOpenOption.READ)), STREAM_BUFFER_SIZE);
+    }
 
-        nodes = new ArrayList<>(10);
+    private static OutputStream openOutput(String name) throws IOException {
+        if (name.equals(STANDARD_STREAM))
+            return new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), STREAM_BUFFER_SIZE);
+        return new BufferedOutputStream(Channels.newOutputStream(FileChannel.open(new File(name).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)),
+                STREAM_BUFFER_SIZE);
+    }
 
-        while (character != -1) {
-            HuffmanNode newNode = new HuffmanNode();
-            newNode.setCharacter((char) character);
-            int indexOfNode = nodes.indexOf(newNode);
+    // Training needs a first pass over the input, so standard input is spooled to a temporary file, unless the
+    // coder builds its codes per block. Memory use stays fixed: the input is read through a buffer or mapped
+    // windows and compressed a batch of blocks at a time. Returns the number of bytes read and written.
+    private static long[] compress(String input, String output, HuffmanAlphabet alphabet, EntropyCoderType type)
+            throws IOException, IllegalArgumentException {
+        if (input.equals(STANDARD_STREAM) && !needsTraining(type))
+            return compressStandardInput(output, createUntrainedCoder(alphabet, type));
+
+        File inputFile;
+        if (input.equals(STANDARD_STREAM)) {
+            inputFile = File.createTempFile("huffcode", ".in");
+            inputFile.deleteOnExit();
+            Files.copy(System.in, inputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            inputFile = new File(input);
+        }
 
-            if (indexOfNode == -1) {
-                newNode.setFrequency(1);
-                nodes.add(newNode);
-            } else {
-                nodes.get(indexOfNode).incrementFrequency();
+        try {
+            EntropyCoder coder = createCoder(inputFile, alphabet, type);
+            // The output is only opened once the input is, so a failure to open the input leaves nothing behind.
+            if (alphabet == HuffmanAlphabet.BYTE) {
+                try (InputStream inputStream = openInput(inputFile.getPath());
+                        CountingOutputStream outputStream = new CountingOutputStream(openOutput(output))) {
+                    HuffmanBlockContainer.compress(inputStream, coder, outputStream);
+                    return new long[] { inputFile.length(), outputStream.count };
+                }
             }
-
-            character = fReader.read();
+            try (Reader reader = new MappedFileReader(inputFile, Charset.defaultCharset());
+                    CountingOutputStream outputStream = new CountingOutputStream(openOutput(output))) {
+                HuffmanBlockContainer.compress(reader, coder, outputStream);
+                return new long[] { inputFile.length(), outputStream.count };
+            }
+        } finally {
+            if (input.equals(STANDARD_STREAM))
+                inputFile.delete();
         }
-
-        fReader.close();
     }
 
-    private static PriorityQueue<HuffmanNode> priorityQueue;
-
-    private static void buildPriorityQueue() {
-        priorityQueue = new PriorityQueue<>();
-        int size = nodes.size();
-        for (int i = 0; i < size; i++) {
-            priorityQueue.add(nodes.get(i));
+    private static long[] compressStandardInput(String output, EntropyCoder coder) throws IOException {
+        try (CountingInputStream inputStream = new CountingInputStream(openInput(STANDARD_STREAM));
+                CountingOutputStream outputStream = new CountingOutputStream(openOutput(output))) {
+            if (coder.getAlphabet() == HuffmanAlphabet.BYTE)
+                HuffmanBlockContainer.compress(inputStream, coder, outputStream);
+            else
+                HuffmanBlockContainer.compress(new InputStreamReader(inputStream, Charset.defaultCharset()), coder,
+                        outputStream);
+            return new long[] { inputStream.count, outputStream.count };
         }
     }
 
-    private static HuffmanCodingTree huffmanCodingTree;
-
-    private static void buildHuffmanCodingTree() {
-        int queueSize = priorityQueue.size();
-        while (queueSize > 1) {
-            HuffmanNode left = priorityQueue.poll();
-            HuffmanNode right = priorityQueue.poll();
-
-            HuffmanNode newNode = new HuffmanNode();
-            newNode.setLeft(left);
-            newNode.setRight(right);
-            newNode.setFrequency(left.getFrequency() + right.getFrequency());
+    private static boolean needsTraining(EntropyCoderType type) {
+        return type != EntropyCoderType.LZ77 && type != EntropyCoderType.ADAPTIVE;
+    }
 
-            priorityQueue.add(newNode);
-            queueSize--;
+    // Huffman codecs go through train, so they can come from the model cache; an empty input still gets a
+    // container, with an empty model. Capped codecs are trained directly, since the cache keys models on their
+    // training file alone. The context coder needs pair counts, so it runs its own training pass, and the LZ77
+    // and adaptive coders build their codes per block, so they need no pass at all.
+    private static EntropyCoder createCoder(File inputFile, HuffmanAlphabet alphabet, EntropyCoderType type)
+            throws IOException {
+        if (type == EntropyCoderType.HUFFMAN) {
+            if (inputFile.length() == 0)
+                return new HuffmanEntropyCoder(HuffmanCodec.fromCodeLengths(new int[0], new int[0], alphabet));
+            Integer maxCodeLength = Integer.getInteger(MAX_CODE_LENGTH_PROPERTY);
+            if (maxCodeLength == null)
+                return new HuffmanEntropyCoder(train(inputFile, alphabet));
+
+            HuffmanCodec codec = HuffmanCodec.train(inputFile, alphabet, Charset.defaultCharset(), maxCodeLength);
+            System.err.printf("Code lengths capped at %d bits: %.3f%% more code bits than without the cap.%n",
+                    maxCodeLength, 100 * codec.getLengthLimitPenalty());
+            return new HuffmanEntropyCoder(codec);
         }
-
-        huffmanCodingTree = new HuffmanCodingTree(priorityQueue.poll());
+        if (type == EntropyCoderType.CONTEXT) {
+            return ContextHuffmanEntropyCoder.train(inputFile, alphabet, Charset.defaultCharset(),
+                    Integer.getInteger(MAX_CONTEXTS_PROPERTY, ContextHuffmanEntropyCoder.DEFAULT_MAX_CONTEXTS));
+        }
+        if (!needsTraining(type))
+            return createUntrainedCoder(alphabet, type);
+        return type.create(FrequencyTable.count(inputFile, alphabet, Charset.defaultCharset()), alphabet);
     }
 
-    private static String huffmanCode;
-    private static int maxHuffmanCodeLength;
-    private static ArrayList<HuffmanLookup> lookupList;
-
-    private static void traverseHuffmanTree(HuffmanNode node) {
-        if (node == null)
-            return;
-
-        if (node.getCharacter() != null) {
-            lookupList.add(new HuffmanLookup(node.getCharacter(), huffmanCode));
-            if (huffmanCode.length() > maxHuffmanCodeLength)
-                maxHuffmanCodeLength = huffmanCode.length();
-            return;
+    private static EntropyCoder createUntrainedCoder(HuffmanAlphabet alphabet, EntropyCoderType type) {
+        if (type == EntropyCoderType.LZ77) {
+            return new Lz77HuffmanEntropyCoder(alphabet, new Lz77MatchFinder(
+                    Integer.getInteger(WINDOW_BITS_PROPERTY, Lz77MatchFinder.DEFAULT_WINDOW_BITS),
+                    Integer.getInteger(LEVEL_PROPERTY, Lz77MatchFinder.DEFAULT_LEVEL)));
         }
-
-        huffmanCode += "1";
-        traverseHuffmanTree(node.getLeft());
-        huffmanCode = huffmanCode.substring(0, huffmanCode.length() - 1);
-
-        huffmanCode += "0";
-        traverseHuffmanTree(node.getRight());
-        huffmanCode = huffmanCode.substring(0, huffmanCode.length() - 1);
+        return new AdaptiveHuffmanEntropyCoder(alphabet);
     }
 
-    private static void buildLookupList() {
-        huffmanCode = "";
-        maxHuffmanCodeLength = 0;
-        int size = nodes.size();
-        lookupList = new ArrayList<>(size);
-        traverseHuffmanTree(huffmanCodingTree.getRoot());
-
-        // Sort lookup list from shorter codes (a.k.a. more frequently encountered ones)
-        // to longer ones for optimal performance when encoding and decoding.
-        for (int i = 1; i < size; i++) {
-            HuffmanLookup key = lookupList.get(i);
-            int j = i - 1;
-
-            while (j >= 0 && key.getCode().length() < lookupList.get(j).getCode().length()) {
-                lookupList.set(j + 1, lookupList.get(j));
-                j--;
+    private static long[] decompress(String input, String output) throws IOException, IllegalArgumentException {
+        try (CountingInputStream inputStream = new CountingInputStream(openInput(input));
+                CountingOutputStream outputStream = new CountingOutputStream(openOutput(output))) {
+            HuffmanBlockContainer.decompress(inputStream, outputStream, Charset.defaultCharset());
+            // The block index after the last block is not needed when streaming, but counts towards the input.
+            byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+            while (inputStream.read(buffer) != -1) {
             }
-
-            lookupList.set(j + 1, key);
+            return new long[] { inputStream.count, outputStream.count };
         }
     }
 
-    private static String encode(String string) throws IllegalArgumentException {
-        String encodedString = "";
-        int lookupListSize = lookupList.size();
-        boolean foundEncoding;
-        HuffmanLookup huffmanLookup;
-
-        for (char character : string.toCharArray()) {
-            foundEncoding = false;
-            for (int i = 0; i < lookupListSize; i++) {
-                huffmanLookup = lookupList.get(i);
-                if (huffmanLookup.getCharacter() == character) {
-                    encodedString += huffmanLookup.getCode();
-                    foundEncoding = true;
-                    break;
-                }
-            }
-            if (!foundEncoding)
-                throw new IllegalArgumentException("Did not find an encoding for the following character: "
-                        + Character.toString(character));
+    private static void stream(String[] args) {
+        // #region validate args
+        String mode = args[0];
+        boolean compressing = mode.equalsIgnoreCase("compress");
+
+        if (args.length < 3 || args.length > (compressing ? 5 : 3)) {
+            System.err.println("Three arguments needed ('compress' OR 'decompress' option, input file AND output "
+                    + "file, '" + STANDARD_STREAM + "' for standard input or output), plus optionally 'bytes', "
+                    + "'chars' OR 'codepoints' and then 'huffman', 'ans', 'range', 'context', 'lz77' OR 'adaptive' "
+                    + "when compressing.");
+            return;
         }
-        return encodedString;
-    }
 
-    private static String decode(String encodedString) throws IllegalArgumentException {
-        String decodedString = "";
-        int lookupListSize = lookupList.size();
-        HuffmanLookup huffmanLookup;
-        boolean foundCharacter = false;
-
-        int startIndex = 0;
-        int endIndex = 1;
-        int encodedStringLength = encodedString.length();
-        while (startIndex < encodedString.length() && endIndex <= encodedStringLength) {
-            String substring = encodedString.substring(startIndex, endIndex);
-
-            if (substring.length() > maxHuffmanCodeLength)
-                throw new IllegalArgumentException("Did not find a matching character for the following code: "
-                        + substring);
-
-            for (int i = 0; i < lookupListSize; i++) {
-                huffmanLookup = lookupList.get(i);
-                if (huffmanLookup.getCode().equals(substring)) {
-                    decodedString += Character.toString(huffmanLookup.getCharacter());
-                    foundCharacter = true;
-                    break;
-                }
+        String input = args[1];
+        String output = args[2];
+        File inputFile = new File(input);
+
+        HuffmanAlphabet alphabet = HuffmanAlphabet.BYTE;
+        if (args.length >= 4) {
+            if (args[3].equalsIgnoreCase("bytes")) {
+                alphabet = HuffmanAlphabet.BYTE;
+            } else if (args[3].equalsIgnoreCase("chars")) {
+                alphabet = HuffmanAlphabet.CHAR;
+            } else if (args[3].equalsIgnoreCase("codepoints")) {
+                alphabet = HuffmanAlphabet.CODE_POINT;
+            } else {
+                System.err.println("Fourth argument expected to be either 'bytes', 'chars' OR 'codepoints'.");
+                return;
             }
+        }
 
-            if (foundCharacter) {
-                startIndex = endIndex;
-                endIndex = startIndex + 1;
-                foundCharacter = false;
+        EntropyCoderType type = EntropyCoderType.HUFFMAN;
+        if (args.length == 5) {
+            if (args[4].equalsIgnoreCase("huffman")) {
+                type = EntropyCoderType.HUFFMAN;
+            } else if (args[4].equalsIgnoreCase("ans")) {
+                type = EntropyCoderType.ANS;
+            } else if (args[4].equalsIgnoreCase("range")) {
+                type = EntropyCoderType.RANGE;
+            } else if (args[4].equalsIgnoreCase("context")) {
+                type = EntropyCoderType.CONTEXT;
+            } else if (args[4].equalsIgnoreCase("lz77")) {
+                type = EntropyCoderType.LZ77;
+            } else if (args[4].equalsIgnoreCase("adaptive")) {
+                type = EntropyCoderType.ADAPTIVE;
             } else {
-                endIndex++;
+                System.err.println("Fifth argument expected to be either 'huffman', 'ans', 'range', 'context', "
+                        + "'lz77' OR 'adaptive'.");
+                return;
             }
         }
 
-        if (startIndex < encodedStringLength)
-            throw new IllegalArgumentException("Did not find a matching character for the following code: "
-                    + encodedString.substring(startIndex, encodedStringLength));
+        if (!input.equals(STANDARD_STREAM) && !inputFile.exists()) {
+            System.err.println("File does not exist: " + input);
+            return;
+        }
+        if (!input.equals(STANDARD_STREAM) && !inputFile.canRead()) {
+            System.err.println("Cannot read file: " + input);
+            return;
+        }
+        // #endregion
 
-        return decodedString;
+        long start = System.nanoTime();
+        long[] byteCounts;
+        try {
+            if (compressing)
+                byteCounts = compress(input, output, alphabet, type);
+            else
+                byteCounts = decompress(input, output);
+        } catch (IOException | IllegalArgumentException exception) {
+            System.err.println("Error while trying to " + mode.toLowerCase() + " " + input + ": "
+                    + exception.getMessage());
+            return;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        // Throughput is measured on the uncompressed side in both directions.
+        long uncompressedBytes = compressing ? byteCounts[0] : byteCounts[1];
+        long compressedBytes = compressing ? byteCounts[1] : byteCounts[0];
+        System.err.printf("%d bytes -> %d bytes, ratio %.3f (%.1f%% of original), %.3f s, %.1f MB/s%n",
+                byteCounts[0], byteCounts[1],
+                compressedBytes == 0 ? 0 : (double) uncompressedBytes / compressedBytes,
+                uncompressedBytes == 0 ? 0 : 100.0 * compressedBytes / uncompressedBytes, seconds,
+                uncompressedBytes / seconds / (1024 * 1024));
     }
 
     public static void main(String[] args) {
+        if (args.length > 0 && (args[0].equalsIgnoreCase("compress") || args[0].equalsIgnoreCase("decompress"))) {
+            stream(args);
+            return;
+        }
+
         // #region validate args
         if (args.length < 2) {
             System.out.println(
@@ -210,8 +293,9 @@ public class HuffCode {
         }
         // #endregion
 
+        HuffmanCodec codec;
         try {
-            buildHuffmanNodes(haikuFile);
+            codec = train(haikuFile, HuffmanAlphabet.CHAR);
         } catch (FileNotFoundException exception) {
             System.out.println("File does not exist: " + args[0]);
             return;
@@ -220,24 +304,64 @@ public class HuffCode {
             return;
         }
 
-        buildPriorityQueue();
-        buildHuffmanCodingTree();
-        buildLookupList();
-
         Scanner standardInput = new Scanner(System.in);
         if (mode.equalsIgnoreCase("encode")) {
             try {
-                System.out.println(encode(standardInput.nextLine()));
+                System.out.println(codec.encode(standardInput.nextLine()));
             } catch (IllegalArgumentException exception) {
                 System.out.println(exception.getMessage());
             }
         } else {
             try {
-                System.out.println(decode(standardInput.nextLine()));
+                System.out.println(codec.decode(standardInput.nextLine()));
             } catch (IllegalArgumentException exception) {
                 System.out.println(exception.getMessage());
             }
         }
         standardInput.close();
     }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream inputStream) {
+            super(inputStream);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1)
+                count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int bytesRead = super.read(bytes, offset, length);
+            if (bytesRead > 0)
+                count += bytesRead;
+            return bytesRead;
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+    }
 }
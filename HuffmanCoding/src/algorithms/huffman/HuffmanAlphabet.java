@@ -0,0 +1,39 @@
+package algorithms.huffman;
+
+// What a symbol of a Huffman code stands for. BYTE codes arbitrary binary data; CHAR codes UTF-16 code units,
+// so a supplementary character takes two symbols; CODE_POINT codes whole Unicode code points, with unpaired
+// surrogates kept as symbols of their own so that any text round-trips.
+public enum HuffmanAlphabet {
+    BYTE(0, 0x100),
+    CHAR(1, 0x10000),
+    CODE_POINT(2, Character.MAX_CODE_POINT + 1);
+
+    private int id;
+    private int symbolLimit;
+
+    HuffmanAlphabet(int id, int symbolLimit) {
+        this.id = id;
+        this.symbolLimit = symbolLimit;
+    }
+
+    // Identifies the alphabet in containers and persisted models.
+    public int getId() {
+        return this.id;
+    }
+
+    public int getSymbolLimit() {
+        return this.symbolLimit;
+    }
+
+    public boolean isText() {
+        return this != BYTE;
+    }
+
+    public static HuffmanAlphabet fromId(int id) {
+        for (HuffmanAlphabet alphabet : values()) {
+            if (alphabet.id == id)
+                return alphabet;
+        }
+        throw new IllegalArgumentException("Unknown alphabet: " + id);
+    }
+}
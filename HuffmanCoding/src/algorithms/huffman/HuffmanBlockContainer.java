@@ -0,0 +1,552 @@
+package algorithms.huffman;
+
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Layout of a block container:
+//   magic (int), version (byte), alphabet id (byte, since version 2; version 1 containers hold characters),
+//   entropy coder id (byte, since version 4; earlier containers hold Huffman blocks),
+//   block size in symbols (int), entropy coder model (see EntropyCoder.writeModel),
+//   blocks, each as symbol count (int), payload bit length (long), payload,
+//   an end-of-blocks marker (int 0),
+//   block index: block count (int), then per block payload offset (long), payload bit length (long) and
+//   symbol count (int),
+//   offset of the block index (long), magic (int).
+// Version 3 containers hold Huffman blocks and keep the stream count (byte) ahead of the block size, then the
+// code; versions 1 and 2 have no stream count and single stream blocks.
+// Blocks are coded independently against the shared model, so they can be encoded and decoded in parallel,
+// streamed front to back, or located through the trailing index and decoded on their own.
+public class HuffmanBlockContainer implements AutoCloseable {
+    public static final int MAGIC = 0x48554642; // "HUFB"
+    public static final int VERSION = 4;
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+    // Decoding allocates a block of ints of the header's block size per worker, so readers refuse larger ones.
+    public static final int MAX_BLOCK_SIZE = 1 << 26;
+
+    private static final int BLOCK_HEADER_SIZE = 12;
+    private static final int INDEX_ENTRY_SIZE = 20;
+    private static final int TRAILER_SIZE = 12;
+
+    private FileChannel channel;
+    private HuffmanAlphabet alphabet;
+    private EntropyCoder coder;
+    private int blockSize;
+    private long[] blockOffsets;
+    private long[] blockBitLengths;
+    private int[] blockSizes;
+    // Symbol offset at which each block starts; one extra entry holds the total length.
+    private long[] blockStarts;
+
+    private HuffmanBlockContainer(FileChannel channel) throws IOException {
+        this.channel = channel;
+
+        Header header = readHeader(new DataInputStream(Channels.newInputStream(channel.position(0))));
+        coder = header.coder;
+        blockSize = header.blockSize;
+        alphabet = coder.getAlphabet();
+
+        long fileSize = channel.size();
+        ByteBuffer trailer = readFully(fileSize - TRAILER_SIZE, TRAILER_SIZE);
+        long indexOffset = trailer.getLong();
+        if (trailer.getInt() != MAGIC || indexOffset < 0 || indexOffset > fileSize - TRAILER_SIZE - 4)
+            throw new IOException("Corrupt Huffman block container: missing block index.");
+
+        int blockCount = readFully(indexOffset, 4).getInt();
+        if (blockCount < 0 || (long) blockCount * INDEX_ENTRY_SIZE != fileSize - TRAILER_SIZE - indexOffset - 4)
+            throw new IOException("Corrupt Huffman block container: bad block index.");
+
+        ByteBuffer index = readFully(indexOffset + 4, blockCount * INDEX_ENTRY_SIZE);
+        blockOffsets = new long[blockCount];
+        blockBitLengths = new long[blockCount];
+        blockSizes = new int[blockCount];
+        blockStarts = new long[blockCount + 1];
+        for (int i = 0; i < blockCount; i++) {
+            blockOffsets[i] = index.getLong();
+            blockBitLengths[i] = index.getLong();
+            blockSizes[i] = index.getInt();
+            if (blockOffsets[i] < 0 || blockSizes[i] <= 0 || blockSizes[i] > blockSize
+                    || !isPayloadLength(blockBitLengths[i], blockSizes[i], coder)
+                    || blockOffsets[i] + (blockBitLengths[i] + 7) / 8 > indexOffset)
+                throw new IOException("Corrupt Huffman block container: bad block index.");
+            blockStarts[i + 1] = blockStarts[i] + blockSizes[i];
+        }
+    }
+
+    public static HuffmanBlockContainer open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return new HuffmanBlockContainer(channel);
+        } catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        if (position < 0)
+            throw new IOException("Corrupt Huffman block container: bad offset.");
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Unexpected end of Huffman block container.");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    public HuffmanAlphabet getAlphabet() {
+        return this.alphabet;
+    }
+
+    public long getLength() {
+        return blockStarts[blockStarts.length - 1];
+    }
+
+    public int getBlockCount() {
+        return blockSizes.length;
+    }
+
+    public EntropyCoder getEntropyCoder() {
+        return this.coder;
+    }
+
+    // The most symbols a block of this container holds.
+    public int getBlockSize() {
+        return this.blockSize;
+    }
+
+    // Decodes only the blocks covering symbols [start, end), in parallel, as text.
+    public String read(long start, long end) throws IOException, IllegalArgumentException {
+        return read(start, end, ForkJoinPool.commonPool());
+    }
+
+    public String read(long start, long end, ForkJoinPool pool) throws IOException, IllegalArgumentException {
+        if (!alphabet.isText())
+            throw new IllegalArgumentException("Container holds bytes, not text.");
+
+        int[] symbols = readSymbols(start, end, pool);
+        if (alphabet == HuffmanAlphabet.CHAR) {
+            char[] characters = new char[symbols.length];
+            for (int i = 0; i < symbols.length; i++) {
+                characters[i] = (char) symbols[i];
+            }
+            return new String(characters);
+        }
+        return new String(symbols, 0, symbols.length);
+    }
+
+    // Same as read, for containers of bytes.
+    public byte[] readBytes(long start, long end) throws IOException, IllegalArgumentException {
+        return readBytes(start, end, ForkJoinPool.commonPool());
+    }
+
+    public byte[] readBytes(long start, long end, ForkJoinPool pool) throws IOException, IllegalArgumentException {
+        if (alphabet.isText())
+            throw new IllegalArgumentException("Container holds text, not bytes.");
+
+        int[] symbols = readSymbols(start, end, pool);
+        byte[] bytes = new byte[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            bytes[i] = (byte) symbols[i];
+        }
+        return bytes;
+    }
+
+    private int[] readSymbols(long start, long end, ForkJoinPool pool) throws IOException, IllegalArgumentException {
+        if (start < 0 || end > getLength() || start > end)
+            throw new IndexOutOfBoundsException("Illegal range [" + start + ", " + end + ") for length " + getLength());
+        if (end - start > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Range is too long: " + (end - start));
+        if (start == end)
+            return new int[0];
+
+        int firstBlock = findBlock(start);
+        int lastBlock = findBlock(end - 1);
+        int blockCount = lastBlock - firstBlock + 1;
+        Block[] blocks = new Block[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            int block = firstBlock + i;
+            byte[] payload = readFully(blockOffsets[block], (int) ((blockBitLengths[block] + 7) / 8)).array();
+            blocks[i] = new Block(payload, blockBitLengths[block], blockSizes[block]);
+        }
+        decodeAll(blocks, coder, pool);
+
+        int[] range = new int[(int) (end - start)];
+        int rangeSize = 0;
+        for (int i = 0; i < blockCount; i++) {
+            long blockStart = blockStarts[firstBlock + i];
+            int from = (int) Math.max(0, start - blockStart);
+            int to = (int) Math.min(blocks[i].size, end - blockStart);
+            System.arraycopy(blocks[i].symbols, from, range, rangeSize, to - from);
+            rangeSize += to - from;
+        }
+        return range;
+    }
+
+    private int findBlock(long position) {
+        int low = 0;
+        int high = blockSizes.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (blockStarts[middle] <= position)
+                low = middle;
+            else
+                high = middle - 1;
+        }
+        return low;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public static void compress(Reader reader, HuffmanCodec codec, OutputStream outputStream)
+            throws IOException, IllegalArgumentException {
+        compress(reader, new HuffmanEntropyCoder(codec), outputStream);
+    }
+
+    public static void compress(Reader reader, HuffmanCodec codec, OutputStream outputStream, int blockSize,
+            ForkJoinPool pool) throws IOException, IllegalArgumentException {
+        compress(reader, new HuffmanEntropyCoder(codec), outputStream, blockSize, pool);
+    }
+
+    public static void compress(Reader reader, HuffmanCodec codec, OutputStream outputStream, int blockSize,
+            int streamCount, ForkJoinPool pool) throws IOException, IllegalArgumentException {
+        compress(reader, new HuffmanEntropyCoder(codec, streamCount), outputStream, blockSize, pool);
+    }
+
+    public static void compress(Reader reader, EntropyCoder coder, OutputStream outputStream)
+            throws IOException, IllegalArgumentException {
+        compress(reader, coder, outputStream, DEFAULT_BLOCK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    public static void compress(Reader reader, EntropyCoder coder, OutputStream outputStream, int blockSize,
+            ForkJoinPool pool) throws IOException, IllegalArgumentException {
+        if (!coder.getAlphabet().isText())
+            throw new IllegalArgumentException("A " + coder.getAlphabet() + " coder codes bytes, not text.");
+        compress(new SymbolReader(reader, coder.getAlphabet()), coder, outputStream, blockSize, pool);
+    }
+
+    public static void compress(InputStream inputStream, HuffmanCodec codec, OutputStream outputStream)
+            throws IOException, IllegalArgumentException {
+        compress(inputStream, new HuffmanEntropyCoder(codec), outputStream);
+    }
+
+    public static void compress(InputStream inputStream, HuffmanCodec codec, OutputStream outputStream,
+            int blockSize, ForkJoinPool pool) throws IOException, IllegalArgumentException {
+        compress(inputStream, new HuffmanEntropyCoder(codec), outputStream, blockSize, pool);
+    }
+
+    public static void compress(InputStream inputStream, HuffmanCodec codec, OutputStream outputStream,
+            int blockSize, int streamCount, ForkJoinPool pool) throws IOException, IllegalArgumentException {
+        compress(inputStream, new HuffmanEntropyCoder(codec, streamCount), outputStream, blockSize, pool);
+    }
+
+    public static void compress(InputStream inputStream, EntropyCoder coder, OutputStream outputStream)
+            throws IOException, IllegalArgumentException {
+        compress(inputStream, coder, outputStream, DEFAULT_BLOCK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    public static void compress(InputStream inputStream, EntropyCoder coder, OutputStream outputStream,
+            int blockSize, ForkJoinPool pool) throws IOException, IllegalArgumentException {
+        if (coder.getAlphabet().isText())
+            throw new IllegalArgumentException("A " + coder.getAlphabet() + " coder codes text, not bytes.");
+        compress(new SymbolReader(inputStream), coder, outputStream, blockSize, pool);
+    }
+
+    static void compress(SymbolReader reader, EntropyCoder coder, OutputStream outputStream)
+            throws IOException, IllegalArgumentException {
+        compress(reader, coder, outputStream, DEFAULT_BLOCK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    // Reads and encodes a batch of blocks at a time, so memory stays bounded by a few blocks per worker.
+    static void compress(SymbolReader reader, EntropyCoder coder, OutputStream outputStream, int blockSize,
+            ForkJoinPool pool) throws IOException, IllegalArgumentException {
+        if (blockSize <= 0 || blockSize > MAX_BLOCK_SIZE)
+            throw new IllegalArgumentException("Illegal block size: " + blockSize);
+
+        DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+        dataOutputStream.writeInt(MAGIC);
+        dataOutputStream.writeByte(VERSION);
+        dataOutputStream.writeByte(coder.getAlphabet().getId());
+        dataOutputStream.writeByte(coder.getType().getId());
+        dataOutputStream.writeInt(blockSize);
+        coder.writeModel(dataOutputStream);
+        long offset = dataOutputStream.size();
+
+        LongArrayList offsets = new LongArrayList(16);
+        LongArrayList bitLengths = new LongArrayList(16);
+        IntArrayList sizes = new IntArrayList(16);
+        Block[] batch = new Block[pool.getParallelism() * 2];
+
+        int batchSize;
+        do {
+            batchSize = 0;
+            while (batchSize < batch.length) {
+                int[] symbols = new int[blockSize];
+                int size = readBlock(reader, symbols);
+                if (size == 0)
+                    break;
+                batch[batchSize++] = new Block(symbols, size);
+            }
+
+            Block[] blocks = new Block[batchSize];
+            System.arraycopy(batch, 0, blocks, 0, batchSize);
+            encodeAll(blocks, coder, pool);
+
+            for (Block block : blocks) {
+                dataOutputStream.writeInt(block.size);
+                dataOutputStream.writeLong(block.bitLength);
+                offset += BLOCK_HEADER_SIZE;
+                dataOutputStream.write(block.payload);
+
+                offsets.add(offset);
+                bitLengths.add(block.bitLength);
+                sizes.add(block.size);
+                offset += block.payload.length;
+            }
+        } while (batchSize == batch.length);
+
+        dataOutputStream.writeInt(0);
+        offset += 4;
+
+        dataOutputStream.writeInt(offsets.size());
+        for (int i = 0; i < offsets.size(); i++) {
+            dataOutputStream.writeLong(offsets.get(i));
+            dataOutputStream.writeLong(bitLengths.get(i));
+            dataOutputStream.writeInt(sizes.get(i));
+        }
+        dataOutputStream.writeLong(offset);
+        dataOutputStream.writeInt(MAGIC);
+        dataOutputStream.flush();
+    }
+
+    private static int readBlock(SymbolReader reader, int[] symbols) throws IOException {
+        int size = 0;
+        while (size < symbols.length) {
+            int symbolsRead = reader.read(symbols, size, symbols.length - size);
+            if (symbolsRead == -1)
+                break;
+            size += symbolsRead;
+        }
+        return size;
+    }
+
+    private static Header readHeader(DataInputStream inputStream) throws IOException {
+        if (inputStream.readInt() != MAGIC)
+            throw new IOException("Input is not a Huffman block container.");
+
+        int version = inputStream.readUnsignedByte();
+        if (version < 1 || version > VERSION)
+            throw new IOException("Unsupported Huffman block container version: " + version);
+
+        HuffmanAlphabet alphabet = version == 1 ? HuffmanAlphabet.CHAR : HuffmanContainer.readAlphabet(inputStream);
+        EntropyCoderType type = EntropyCoderType.HUFFMAN;
+        int streamCount = 1;
+        if (version == 3) {
+            streamCount = inputStream.readUnsignedByte();
+        } else if (version >= 4) {
+            try {
+                type = EntropyCoderType.fromId(inputStream.readUnsignedByte());
+            } catch (IllegalArgumentException exception) {
+                throw new IOException("Corrupt Huffman block container: " + exception.getMessage());
+            }
+        }
+        int blockSize = inputStream.readInt();
+        if (blockSize <= 0 || blockSize > MAX_BLOCK_SIZE)
+            throw new IOException("Corrupt Huffman block container: bad block size.");
+
+        if (version >= 4)
+            return new Header(type.readModel(inputStream, alphabet), blockSize);
+        if (streamCount != 1 && streamCount != InterleavedDecodeTable.STREAM_COUNT)
+            throw new IOException("Corrupt Huffman block container: bad stream count.");
+        return new Header(HuffmanEntropyCoder.readModel(inputStream, alphabet, streamCount), blockSize);
+    }
+
+    public static void decompress(InputStream inputStream, Writer writer) throws IOException, IllegalArgumentException {
+        decompress(inputStream, writer, ForkJoinPool.commonPool());
+    }
+
+    public static void decompress(InputStream inputStream, Writer writer, ForkJoinPool pool)
+            throws IOException, IllegalArgumentException {
+        DataInputStream dataInputStream = new DataInputStream(inputStream);
+        Header header = readHeader(dataInputStream);
+        HuffmanAlphabet alphabet = header.coder.getAlphabet();
+        if (!alphabet.isText())
+            throw new IllegalArgumentException("Container holds bytes, not text.");
+        decompress(dataInputStream, header, new SymbolWriter(writer, alphabet), pool);
+    }
+
+    public static void decompress(InputStream inputStream, OutputStream outputStream)
+            throws IOException, IllegalArgumentException {
+        decompress(inputStream, outputStream, ForkJoinPool.commonPool());
+    }
+
+    public static void decompress(InputStream inputStream, OutputStream outputStream, ForkJoinPool pool)
+            throws IOException, IllegalArgumentException {
+        DataInputStream dataInputStream = new DataInputStream(inputStream);
+        Header header = readHeader(dataInputStream);
+        if (header.coder.getAlphabet().isText())
+            throw new IllegalArgumentException("Container holds text, not bytes.");
+        decompress(dataInputStream, header, new SymbolWriter(outputStream), pool);
+    }
+
+    // Writes any container to outputStream: bytes as they are, text encoded with charset.
+    public static void decompress(InputStream inputStream, OutputStream outputStream, Charset charset)
+            throws IOException, IllegalArgumentException {
+        DataInputStream dataInputStream = new DataInputStream(inputStream);
+        Header header = readHeader(dataInputStream);
+        HuffmanAlphabet alphabet = header.coder.getAlphabet();
+        SymbolWriter writer = alphabet.isText()
+                ? new SymbolWriter(new BufferedWriter(new OutputStreamWriter(outputStream, charset)), alphabet)
+                : new SymbolWriter(outputStream);
+        decompress(dataInputStream, header, writer, ForkJoinPool.commonPool());
+    }
+
+    // Streams the blocks front to back without needing the trailing index, decoding a batch at a time. Block
+    // sizes are checked against the header, and payload lengths against what the coder can produce for that
+    // many symbols, before anything is allocated for them.
+    private static void decompress(DataInputStream dataInputStream, Header header, SymbolWriter writer,
+            ForkJoinPool pool) throws IOException, IllegalArgumentException {
+        Block[] batch = new Block[pool.getParallelism() * 2];
+
+        boolean endOfBlocks = false;
+        while (!endOfBlocks) {
+            int batchSize = 0;
+            while (batchSize < batch.length) {
+                int size = dataInputStream.readInt();
+                if (size == 0) {
+                    endOfBlocks = true;
+                    break;
+                }
+                long bitLength = dataInputStream.readLong();
+                if (size < 0 || size > header.blockSize || !isPayloadLength(bitLength, size, header.coder))
+                    throw new IOException("Corrupt Huffman block container: bad block header.");
+
+                byte[] payload = new byte[(int) ((bitLength + 7) / 8)];
+                dataInputStream.readFully(payload);
+                batch[batchSize++] = new Block(payload, bitLength, size);
+            }
+
+            Block[] blocks = new Block[batchSize];
+            System.arraycopy(batch, 0, blocks, 0, batchSize);
+            decodeAll(blocks, header.coder, pool);
+            for (Block block : blocks) {
+                writer.write(block.symbols, 0, block.size);
+            }
+        }
+        writer.flush();
+    }
+
+    private static boolean isPayloadLength(long bitLength, int size, EntropyCoder coder) {
+        long maxPayloadSize = Math.min(coder.maxPayloadSize(size), Integer.MAX_VALUE - 8);
+        return bitLength >= 0 && bitLength <= 8 * maxPayloadSize;
+    }
+
+    private static void encodeAll(Block[] blocks, EntropyCoder coder, ForkJoinPool pool) throws IOException {
+        RecursiveAction[] tasks = new RecursiveAction[blocks.length];
+        for (int i = 0; i < blocks.length; i++) {
+            Block block = blocks[i];
+            tasks[i] = new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    block.encode(coder);
+                }
+            };
+        }
+        runAll(tasks, pool);
+    }
+
+    private static void decodeAll(Block[] blocks, EntropyCoder coder, ForkJoinPool pool) throws IOException {
+        RecursiveAction[] tasks = new RecursiveAction[blocks.length];
+        for (int i = 0; i < blocks.length; i++) {
+            Block block = blocks[i];
+            tasks[i] = new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    block.decode(coder);
+                }
+            };
+        }
+        runAll(tasks, pool);
+    }
+
+    private static void runAll(RecursiveAction[] tasks, ForkJoinPool pool) throws IOException {
+        if (tasks.length == 0)
+            return;
+
+        try {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        } catch (UncheckedIOException exception) {
+            throw exception.getCause();
+        } catch (IllegalArgumentException exception) {
+            // Exceptions rethrown across fork/join threads get wrapped in a copy of themselves.
+            if (exception.getCause() instanceof IllegalArgumentException)
+                throw (IllegalArgumentException) exception.getCause();
+            throw exception;
+        }
+    }
+
+    private static class Header {
+        private EntropyCoder coder;
+        private int blockSize;
+
+        Header(EntropyCoder coder, int blockSize) {
+            this.coder = coder;
+            this.blockSize = blockSize;
+        }
+    }
+
+    private static class Block {
+        private int[] symbols;
+        private int size;
+        private byte[] payload;
+        private long bitLength;
+
+        Block(int[] symbols, int size) {
+            this.symbols = symbols;
+            this.size = size;
+        }
+
+        Block(byte[] payload, long bitLength, int size) {
+            this.payload = payload;
+            this.bitLength = bitLength;
+            this.size = size;
+        }
+
+        void encode(EntropyCoder coder) throws IllegalArgumentException {
+            payload = coder.encode(symbols, 0, size);
+            bitLength = payload.length * 8L;
+            symbols = null;
+        }
+
+        void decode(EntropyCoder coder) throws IllegalArgumentException {
+            symbols = new int[size];
+            coder.decode(payload, symbols, 0, size);
+            payload = null;
+        }
+    }
+}
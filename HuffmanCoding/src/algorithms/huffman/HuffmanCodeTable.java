@@ -0,0 +1,48 @@
+package algorithms.huffman;
+
+public class HuffmanCodeTable {
+    // Both arrays are indexed directly by symbol; a length of 0 means the symbol has no code.
+    private long[] codes;
+    private int[] lengths;
+    private int maxLength;
+
+    public HuffmanCodeTable(int symbolLimit) {
+        if (symbolLimit < 0)
+            throw new IllegalArgumentException("Illegal symbol limit: " + symbolLimit);
+
+        codes = new long[symbolLimit];
+        lengths = new int[symbolLimit];
+    }
+
+    public void setCode(int symbol, long code, int length) {
+        if (symbol < 0 || symbol >= lengths.length)
+            throw new IndexOutOfBoundsException("Symbol out of range: " + symbol);
+        if (length < 0 || length > 64)
+            throw new IllegalArgumentException("Illegal code length: " + length);
+
+        codes[symbol] = code;
+        lengths[symbol] = length;
+        if (length > maxLength)
+            maxLength = length;
+    }
+
+    public boolean hasCode(int symbol) {
+        return symbol >= 0 && symbol < lengths.length && lengths[symbol] > 0;
+    }
+
+    public long getCode(int symbol) {
+        return codes[symbol];
+    }
+
+    public int getLength(int symbol) {
+        return lengths[symbol];
+    }
+
+    public int getSymbolLimit() {
+        return lengths.length;
+    }
+
+    public int getMaxLength() {
+        return this.maxLength;
+    }
+}
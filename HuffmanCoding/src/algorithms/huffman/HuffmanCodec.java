@@ -0,0 +1,378 @@
+package algorithms.huffman;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+// Immutable Huffman model: a canonical code over the symbols of an alphabet and the tables used to encode and
+// decode with it. The tables are never modified after construction and every call works on its own bit reader
+// or writer, so a single codec can be shared by any number of threads.
+public final class HuffmanCodec {
+    private static final int SYMBOL_BUFFER_SIZE = 8192;
+
+    private final HuffmanAlphabet alphabet;
+    private final CanonicalHuffmanCode code;
+    private final HuffmanCodeTable codeTable;
+    private final HuffmanDecodeTable decodeTable;
+    private final InterleavedDecodeTable interleavedDecodeTable;
+    private final double lengthLimitPenalty;
+
+    private HuffmanCodec(CanonicalHuffmanCode code, HuffmanAlphabet alphabet) {
+        this(code, alphabet, 0);
+    }
+
+    private HuffmanCodec(CanonicalHuffmanCode code, HuffmanAlphabet alphabet, double lengthLimitPenalty) {
+        for (int i = 0; i < code.getSymbolCount(); i++) {
+            if (code.getSymbol(i) >= alphabet.getSymbolLimit())
+                throw new IllegalArgumentException("Symbol " + code.getSymbol(i) + " is not part of the "
+                        + alphabet + " alphabet.");
+        }
+
+        this.alphabet = alphabet;
+        this.code = code;
+        codeTable = code.toCodeTable();
+        decodeTable = new HuffmanDecodeTable(codeTable);
+        interleavedDecodeTable = new InterleavedDecodeTable(code);
+        this.lengthLimitPenalty = lengthLimitPenalty;
+    }
+
+    public static HuffmanCodec fromCode(CanonicalHuffmanCode code) {
+        return fromCode(code, HuffmanAlphabet.CHAR);
+    }
+
+    public static HuffmanCodec fromCode(CanonicalHuffmanCode code, HuffmanAlphabet alphabet) {
+        return new HuffmanCodec(code, alphabet);
+    }
+
+    public static HuffmanCodec fromCodeLengths(int[] symbols, int[] lengths) {
+        return fromCodeLengths(symbols, lengths, HuffmanAlphabet.CHAR);
+    }
+
+    public static HuffmanCodec fromCodeLengths(int[] symbols, int[] lengths, HuffmanAlphabet alphabet) {
+        return new HuffmanCodec(new CanonicalHuffmanCode(symbols, lengths), alphabet);
+    }
+
+    public static HuffmanCodec fromFrequencies(FrequencyTable frequencyTable) {
+        return fromFrequencies(frequencyTable, HuffmanAlphabet.CHAR);
+    }
+
+    public static HuffmanCodec fromFrequencies(FrequencyTable frequencyTable, HuffmanAlphabet alphabet) {
+        return new HuffmanCodec(HuffmanCodingTree.build(frequencyTable).toCanonicalCode(), alphabet);
+    }
+
+    // Same as fromFrequencies, but with code lengths capped at maxCodeLength bits.
+    public static HuffmanCodec fromFrequencies(FrequencyTable frequencyTable, int maxCodeLength) {
+        return fromFrequencies(frequencyTable, HuffmanAlphabet.CHAR, maxCodeLength);
+    }
+
+    public static HuffmanCodec fromFrequencies(FrequencyTable frequencyTable, HuffmanAlphabet alphabet,
+            int maxCodeLength) {
+        LengthLimitedCode limitedCode = LengthLimitedCode.build(frequencyTable, maxCodeLength);
+        return new HuffmanCodec(limitedCode.getCode(), alphabet, limitedCode.getPenalty());
+    }
+
+    public static HuffmanCodec train(File file, Charset charset) throws IOException {
+        return train(file, HuffmanAlphabet.CHAR, charset);
+    }
+
+    // charset is only used by the text alphabets.
+    public static HuffmanCodec train(File file, HuffmanAlphabet alphabet, Charset charset) throws IOException {
+        FrequencyTable frequencyTable = FrequencyTable.count(file, alphabet, charset);
+        if (frequencyTable.getDistinctSymbolCount() == 0)
+            throw new IOException("File is empty.");
+        return fromFrequencies(frequencyTable, alphabet);
+    }
+
+    // Same as train, but with code lengths capped at maxCodeLength bits.
+    public static HuffmanCodec train(File file, HuffmanAlphabet alphabet, Charset charset, int maxCodeLength)
+            throws IOException {
+        FrequencyTable frequencyTable = FrequencyTable.count(file, alphabet, charset);
+        if (frequencyTable.getDistinctSymbolCount() == 0)
+            throw new IOException("File is empty.");
+        return fromFrequencies(frequencyTable, alphabet, maxCodeLength);
+    }
+
+    public HuffmanAlphabet getAlphabet() {
+        return this.alphabet;
+    }
+
+    public CanonicalHuffmanCode getCode() {
+        return this.code;
+    }
+
+    public int getMaxCodeLength() {
+        return this.code.getMaxLength();
+    }
+
+    // Relative growth of the coded size caused by capping the code lengths, as reported by LengthLimitedCode;
+    // 0 when the lengths were not capped or the cap did not bind.
+    public double getLengthLimitPenalty() {
+        return this.lengthLimitPenalty;
+    }
+
+    public boolean canEncode(int symbol) {
+        return codeTable.hasCode(symbol);
+    }
+
+    HuffmanCodeTable getCodeTable() {
+        return this.codeTable;
+    }
+
+    HuffmanDecodeTable getDecodeTable() {
+        return this.decodeTable;
+    }
+
+    InterleavedDecodeTable getInterleavedDecodeTable() {
+        return this.interleavedDecodeTable;
+    }
+
+    private void checkText() {
+        if (!alphabet.isText())
+            throw new IllegalArgumentException("A " + alphabet + " codec codes bytes, not text.");
+    }
+
+    // Returns the code bits of every symbol of string as a sequence of '0' and '1'.
+    public String encode(String string) throws IllegalArgumentException {
+        checkText();
+        StringBuilder encodedString = new StringBuilder();
+
+        int index = 0;
+        while (index < string.length()) {
+            int symbol = alphabet == HuffmanAlphabet.CODE_POINT ? string.codePointAt(index) : string.charAt(index);
+            index += alphabet == HuffmanAlphabet.CODE_POINT ? Character.charCount(symbol) : 1;
+
+            if (!codeTable.hasCode(symbol))
+                throw new IllegalArgumentException("Did not find an encoding for the following character: "
+                        + new String(Character.toChars(symbol)));
+            long symbolCode = codeTable.getCode(symbol);
+            for (int i = codeTable.getLength(symbol) - 1; i >= 0; i--) {
+                encodedString.append((symbolCode >>> i & 1) == 1 ? '1' : '0');
+            }
+        }
+        return encodedString.toString();
+    }
+
+    // Writes the packed code bits of every character read from reader and returns the number of bits written.
+    // The last byte is padded with zeros, so the bit count has to be kept alongside the output.
+    public long encode(Reader reader, OutputStream outputStream) throws IOException, IllegalArgumentException {
+        checkText();
+        return encode(new SymbolReader(reader, alphabet), outputStream);
+    }
+
+    // Same as encode(Reader, OutputStream), for the bytes of a BYTE codec.
+    public long encode(InputStream inputStream, OutputStream outputStream)
+            throws IOException, IllegalArgumentException {
+        return encode(newSymbolReader(inputStream), outputStream);
+    }
+
+    public long encode(File file, Charset charset, OutputStream outputStream)
+            throws IOException, IllegalArgumentException {
+        try (SymbolReader reader = newSymbolReader(file, charset)) {
+            return encode(reader, outputStream);
+        }
+    }
+
+    private long encode(SymbolReader reader, OutputStream outputStream) throws IOException, IllegalArgumentException {
+        BitWriter bitWriter = new BitWriter(outputStream);
+        encode(reader, bitWriter);
+        bitWriter.flush();
+        return bitWriter.getBitCount();
+    }
+
+    void encode(SymbolReader reader, BitWriter bitWriter) throws IOException, IllegalArgumentException {
+        int[] symbols = new int[SYMBOL_BUFFER_SIZE];
+
+        int symbolsRead = reader.read(symbols, 0, symbols.length);
+        while (symbolsRead != -1) {
+            encode(symbols, 0, symbolsRead, bitWriter);
+            symbolsRead = reader.read(symbols, 0, symbols.length);
+        }
+    }
+
+    void encode(int[] symbols, int offset, int length, BitWriter bitWriter)
+            throws IOException, IllegalArgumentException {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            int symbol = symbols[i];
+            if (!codeTable.hasCode(symbol))
+                throw noEncodingFor(symbol);
+            bitWriter.writeBits(codeTable.getCode(symbol), codeTable.getLength(symbol));
+        }
+    }
+
+    private IllegalArgumentException noEncodingFor(int symbol) {
+        return new IllegalArgumentException("Did not find an encoding for the following "
+                + (alphabet.isText() ? "character: " + new String(Character.toChars(symbol)) : "byte: " + symbol));
+    }
+
+    SymbolReader newSymbolReader(InputStream inputStream) {
+        if (alphabet.isText())
+            throw new IllegalArgumentException("A " + alphabet + " codec codes text, not bytes.");
+        return new SymbolReader(inputStream);
+    }
+
+    SymbolReader newSymbolReader(File file, Charset charset) throws IOException {
+        if (alphabet.isText())
+            return new SymbolReader(new MappedFileReader(file, charset), alphabet);
+        return new SymbolReader(new FileInputStream(file));
+    }
+
+    // Decodes a sequence of '0' and '1' produced by encode(String).
+    public String decode(String encodedString) throws IllegalArgumentException {
+        checkText();
+        int encodedStringLength = encodedString.length();
+        byte[] packedBits = new byte[(encodedStringLength + 7) / 8];
+        for (int i = 0; i < encodedStringLength; i++) {
+            char bit = encodedString.charAt(i);
+            if (bit != '0' && bit != '1')
+                throw new IllegalArgumentException("Did not find a matching character for the following code: "
+                        + encodedString.substring(i, encodedStringLength));
+            if (bit == '1')
+                packedBits[i / 8] |= 0x80 >>> (i % 8);
+        }
+
+        StringBuilder decodedString = new StringBuilder();
+        BitReader bitReader = new BitReader(new ByteArrayInputStream(packedBits));
+        int[] symbols = new int[SYMBOL_BUFFER_SIZE];
+
+        try {
+            int symbolCount;
+            do {
+                symbolCount = decodeTable.decode(bitReader, encodedStringLength, symbols, 0, symbols.length);
+                for (int i = 0; i < symbolCount; i++) {
+                    decodedString.appendCodePoint(symbols[i]);
+                }
+            } while (symbolCount == symbols.length);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+
+        int startIndex = (int) bitReader.getBitCount();
+        if (startIndex < encodedStringLength)
+            throw new IllegalArgumentException("Did not find a matching character for the following code: "
+                    + encodedString.substring(startIndex,
+                            Math.min(encodedStringLength, startIndex + code.getMaxLength() + 1)));
+
+        return decodedString.toString();
+    }
+
+    // Reads bitLength packed code bits from inputStream and writes the decoded characters to writer.
+    public void decode(InputStream inputStream, long bitLength, Writer writer)
+            throws IOException, IllegalArgumentException {
+        checkText();
+        decode(inputStream, bitLength, new SymbolWriter(writer, alphabet));
+    }
+
+    // Same as decode(InputStream, long, Writer), for the bytes of a BYTE codec.
+    public void decode(InputStream inputStream, long bitLength, OutputStream outputStream)
+            throws IOException, IllegalArgumentException {
+        decode(inputStream, bitLength, newSymbolWriter(outputStream));
+    }
+
+    private void decode(InputStream inputStream, long bitLength, SymbolWriter writer)
+            throws IOException, IllegalArgumentException {
+        BitReader bitReader = new BitReader(inputStream);
+        int[] symbols = new int[SYMBOL_BUFFER_SIZE];
+
+        int symbolCount;
+        do {
+            symbolCount = decodeTable.decode(bitReader, bitLength, symbols, 0, symbols.length);
+            writer.write(symbols, 0, symbolCount);
+        } while (symbolCount == symbols.length);
+
+        if (bitReader.getBitCount() < bitLength)
+            throw new IllegalArgumentException(
+                    "Did not find a matching symbol at bit " + bitReader.getBitCount() + ".");
+
+        writer.flush();
+    }
+
+    SymbolWriter newSymbolWriter(OutputStream outputStream) {
+        if (alphabet.isText())
+            throw new IllegalArgumentException("A " + alphabet + " codec codes text, not bytes.");
+        return new SymbolWriter(outputStream);
+    }
+
+    // Writes a self-describing container holding the alphabet and canonical code lengths followed by the packed
+    // code bits of every character read from reader.
+    public void compress(Reader reader, OutputStream outputStream) throws IOException, IllegalArgumentException {
+        checkText();
+        compress(new SymbolReader(reader, alphabet), outputStream);
+    }
+
+    public void compress(InputStream inputStream, OutputStream outputStream)
+            throws IOException, IllegalArgumentException {
+        compress(newSymbolReader(inputStream), outputStream);
+    }
+
+    // Same as compress, for a file. The bit length in the header is the sum of count * code length over the
+    // counts of a first pass, so the payload is streamed rather than held in memory.
+    public void compress(File file, Charset charset, OutputStream outputStream)
+            throws IOException, IllegalArgumentException {
+        FrequencyTable frequencyTable = FrequencyTable.count(file, alphabet, charset);
+        long bitLength = 0;
+        for (int symbol : frequencyTable.getSymbols()) {
+            if (!codeTable.hasCode(symbol))
+                throw noEncodingFor(symbol);
+            bitLength += frequencyTable.getCount(symbol) * codeTable.getLength(symbol);
+        }
+
+        DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+        HuffmanContainer.writeHeader(dataOutputStream, code, alphabet, bitLength);
+        if (encode(file, charset, dataOutputStream) != bitLength)
+            throw new IOException("File changed while it was being compressed: " + file);
+        dataOutputStream.flush();
+    }
+
+    // A stream can only be read once, so its payload is buffered until its bit length is known.
+    private void compress(SymbolReader reader, OutputStream outputStream)
+            throws IOException, IllegalArgumentException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        BitWriter bitWriter = new BitWriter(payload);
+        encode(reader, bitWriter);
+        bitWriter.flush();
+
+        DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+        HuffmanContainer.writeHeader(dataOutputStream, code, alphabet, bitWriter.getBitCount());
+        payload.writeTo(dataOutputStream);
+        dataOutputStream.flush();
+    }
+
+    // Same as compress, but splits the input into independently coded blocks that are encoded in parallel.
+    public void compressBlocks(Reader reader, OutputStream outputStream) throws IOException, IllegalArgumentException {
+        checkText();
+        HuffmanBlockContainer.compress(new SymbolReader(reader, alphabet), new HuffmanEntropyCoder(this),
+                outputStream);
+    }
+
+    public void compressBlocks(InputStream inputStream, OutputStream outputStream)
+            throws IOException, IllegalArgumentException {
+        HuffmanBlockContainer.compress(newSymbolReader(inputStream), new HuffmanEntropyCoder(this), outputStream);
+    }
+
+    // Needs no model: the container carries everything required to rebuild the code.
+    public static void decompress(InputStream inputStream, Writer writer) throws IOException, IllegalArgumentException {
+        DataInputStream dataInputStream = new DataInputStream(inputStream);
+        HuffmanContainer container = HuffmanContainer.readHeader(dataInputStream);
+        fromCode(container.getCode(), container.getAlphabet())
+                .decode(dataInputStream, container.getBitLength(), writer);
+    }
+
+    public static void decompress(InputStream inputStream, OutputStream outputStream)
+            throws IOException, IllegalArgumentException {
+        DataInputStream dataInputStream = new DataInputStream(inputStream);
+        HuffmanContainer container = HuffmanContainer.readHeader(dataInputStream);
+        fromCode(container.getCode(), container.getAlphabet())
+                .decode(dataInputStream, container.getBitLength(), outputStream);
+    }
+}
@@ -1,13 +1,208 @@
 package algorithms.huffman;
 
+import java.util.Arrays;
+
+// Nodes are stored in parallel arrays and referred to by index: leaves come first, in ascending symbol order,
+// and every merged node is appended after its children, so the root is always the last node. A node takes 20
+// bytes and no object of its own, and a built tree is never modified, so it can be shared between threads as is.
 public class HuffmanCodingTree {
-    private HuffmanNode root;
+    // Symbol of internal nodes and children of leaves.
+    public static final int NONE = -1;
+
+    // A code can be at most 64 bits long, so a depth-first walk never holds more nodes than this.
+    private static final int MAX_STACK_SIZE = 66;
+
+    private int[] left;
+    private int[] right;
+    private int[] symbols;
+    private long[] frequencies;
+    private int leafCount;
+    private int size;
+
+    private HuffmanCodingTree(int leafCount) {
+        int capacity = 2 * leafCount - 1;
+        this.leafCount = leafCount;
+        left = new int[capacity];
+        right = new int[capacity];
+        symbols = new int[capacity];
+        frequencies = new long[capacity];
+        Arrays.fill(left, 0, leafCount, NONE);
+        Arrays.fill(right, 0, leafCount, NONE);
+    }
+
+    // Copies the leaves of another tree, leaving room for the merged nodes.
+    private HuffmanCodingTree(HuffmanCodingTree leaves) {
+        this(leaves.leafCount);
+        System.arraycopy(leaves.symbols, 0, symbols, 0, leafCount);
+        System.arraycopy(leaves.frequencies, 0, frequencies, 0, leafCount);
+        size = leafCount;
+    }
+
+    public int getRoot() {
+        return this.size - 1;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int getLeafCount() {
+        return this.leafCount;
+    }
+
+    public boolean isLeaf(int node) {
+        return this.symbols[node] != NONE;
+    }
+
+    public int getSymbol(int node) {
+        return this.symbols[node];
+    }
+
+    public long getFrequency(int node) {
+        return this.frequencies[node];
+    }
+
+    public int getLeft(int node) {
+        return this.left[node];
+    }
+
+    public int getRight(int node) {
+        return this.right[node];
+    }
+
+    public static HuffmanCodingTree build(FrequencyTable frequencyTable) {
+        HuffmanCodingTree leaves = buildLeaves(frequencyTable);
+        if (!leaves.isSortedByFrequency())
+            return buildWithHeap(leaves);
 
-    public HuffmanCodingTree(HuffmanNode root) {
-        this.root = root;
+        int[] order = new int[leaves.leafCount];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        return buildFromSortedLeaves(leaves, order);
     }
 
-    public HuffmanNode getRoot() {
-        return this.root;
+    // Returns a tree holding only the leaves, one per distinct symbol, for the builders to start from.
+    static HuffmanCodingTree buildLeaves(FrequencyTable frequencyTable) {
+        int[] symbols = frequencyTable.getSymbols();
+        if (symbols.length == 0)
+            throw new IllegalArgumentException("Cannot build a Huffman coding tree without any symbols.");
+
+        HuffmanCodingTree leaves = new HuffmanCodingTree(symbols.length);
+        for (int i = 0; i < symbols.length; i++) {
+            leaves.symbols[i] = symbols[i];
+            leaves.frequencies[i] = frequencyTable.getCount(symbols[i]);
+        }
+        leaves.size = symbols.length;
+        return leaves;
+    }
+
+    // The order in which the builders take nodes: by frequency, then leaves before merged nodes, leaves by
+    // descending symbol and merged nodes in the order they were created. Merged nodes have higher indices than
+    // leaves and than each other's children, so the index settles every tie that is not between two leaves.
+    boolean precedes(int node, int other) {
+        if (frequencies[node] != frequencies[other])
+            return frequencies[node] < frequencies[other];
+        if (symbols[node] != NONE && symbols[other] != NONE)
+            return symbols[node] > symbols[other];
+        return node < other;
+    }
+
+    boolean isSortedByFrequency() {
+        for (int i = 1; i < leafCount; i++) {
+            if (precedes(i, i - 1))
+                return false;
+        }
+        return true;
+    }
+
+    // Keeps the nodes still to be merged in a MinHeap of node indices, ordered by precedes.
+    static HuffmanCodingTree buildWithHeap(HuffmanCodingTree leaves) {
+        HuffmanCodingTree tree = new HuffmanCodingTree(leaves);
+        Integer[] nodes = new Integer[tree.leafCount];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = i;
+        }
+        MinHeap<Integer> heap = new MinHeap<>(nodes,
+                (node, other) -> node.equals(other) ? 0 : tree.precedes(node, other) ? -1 : 1);
+
+        while (heap.size() > 1) {
+            heap.add(tree.merge(heap.poll(), heap.poll()));
+        }
+
+        return tree;
+    }
+
+    // Builds the same tree as buildWithHeap in linear time, given the leaf indices in the order precedes puts
+    // them. Merged nodes come out in non-decreasing frequency order and are appended to the node arrays, so the
+    // nodes from mergedHead up to size form a FIFO queue; on equal frequencies a leaf is taken first, as the
+    // heap does.
+    static HuffmanCodingTree buildFromSortedLeaves(HuffmanCodingTree leaves, int[] order) {
+        HuffmanCodingTree tree = new HuffmanCodingTree(leaves);
+        int leafIndex = 0;
+        int mergedHead = tree.leafCount;
+        int[] pair = new int[2];
+
+        for (int remaining = tree.leafCount; remaining > 1; remaining--) {
+            for (int i = 0; i < 2; i++) {
+                if (mergedHead == tree.size || leafIndex < order.length
+                        && tree.frequencies[order[leafIndex]] <= tree.frequencies[mergedHead]) {
+                    pair[i] = order[leafIndex++];
+                } else {
+                    pair[i] = mergedHead++;
+                }
+            }
+            tree.merge(pair[0], pair[1]);
+        }
+
+        return tree;
+    }
+
+    private int merge(int leftChild, int rightChild) {
+        left[size] = leftChild;
+        right[size] = rightChild;
+        symbols[size] = NONE;
+        frequencies[size] = frequencies[leftChild] + frequencies[rightChild];
+        return size++;
+    }
+
+    // Walks the tree depth first with an explicit stack and returns the canonical code with the same code
+    // lengths, so degenerate trees cannot overflow the call stack.
+    public CanonicalHuffmanCode toCanonicalCode() {
+        int[] codeSymbols = new int[leafCount];
+        int[] codeLengths = new int[leafCount];
+        int symbolCount = 0;
+
+        int[] nodeStack = new int[MAX_STACK_SIZE];
+        int[] lengthStack = new int[MAX_STACK_SIZE];
+        int top = 0;
+        nodeStack[0] = getRoot();
+
+        while (top >= 0) {
+            int node = nodeStack[top];
+            int length = lengthStack[top];
+            top--;
+
+            if (symbols[node] != NONE) {
+                codeSymbols[symbolCount] = symbols[node];
+                // A tree made of a single leaf still needs one bit per occurrence of its symbol.
+                codeLengths[symbolCount] = Math.max(length, 1);
+                symbolCount++;
+                continue;
+            }
+
+            if (length == 64)
+                throw new IllegalStateException("Huffman coding tree is deeper than 64 levels.");
+
+            top++;
+            nodeStack[top] = right[node];
+            lengthStack[top] = length + 1;
+
+            top++;
+            nodeStack[top] = left[node];
+            lengthStack[top] = length + 1;
+        }
+
+        return new CanonicalHuffmanCode(codeSymbols, codeLengths);
     }
 }
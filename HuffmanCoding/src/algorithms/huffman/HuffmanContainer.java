@@ -0,0 +1,184 @@
+package algorithms.huffman;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+// Layout of a compressed container:
+//   magic (int), version (byte), alphabet id (byte, since version 2; version 1 containers hold characters),
+//   symbol count (int), maximum code length (byte),
+//   number of symbols per code length from 1 to the maximum (varints),
+//   symbols in canonical order, each as the delta from the previous symbol of the same length (varints),
+//   payload bit length (long), payload (packed bits, last byte padded with zeros).
+public class HuffmanContainer {
+    public static final int MAGIC = 0x48554643; // "HUFC"
+    public static final int VERSION = 2;
+
+    private CanonicalHuffmanCode code;
+    private HuffmanAlphabet alphabet;
+    private long bitLength;
+
+    public HuffmanContainer(CanonicalHuffmanCode code, HuffmanAlphabet alphabet, long bitLength) {
+        this.code = code;
+        this.alphabet = alphabet;
+        this.bitLength = bitLength;
+    }
+
+    public CanonicalHuffmanCode getCode() {
+        return this.code;
+    }
+
+    public HuffmanAlphabet getAlphabet() {
+        return this.alphabet;
+    }
+
+    public long getBitLength() {
+        return this.bitLength;
+    }
+
+    public static void writeHeader(DataOutputStream outputStream, CanonicalHuffmanCode code,
+            HuffmanAlphabet alphabet, long bitLength) throws IOException {
+        outputStream.writeInt(MAGIC);
+        outputStream.writeByte(VERSION);
+        outputStream.writeByte(alphabet.getId());
+        writeCode(outputStream, code);
+        outputStream.writeLong(bitLength);
+    }
+
+    public static HuffmanContainer readHeader(DataInputStream inputStream) throws IOException {
+        if (inputStream.readInt() != MAGIC)
+            throw new IOException("Input is not a Huffman container.");
+
+        int version = inputStream.readUnsignedByte();
+        if (version < 1 || version > VERSION)
+            throw new IOException("Unsupported Huffman container version: " + version);
+
+        HuffmanAlphabet alphabet = version == 1 ? HuffmanAlphabet.CHAR : readAlphabet(inputStream);
+        CanonicalHuffmanCode code = readCode(inputStream, alphabet.getSymbolLimit());
+        long bitLength = inputStream.readLong();
+        if (bitLength < 0)
+            throw new IOException("Corrupt Huffman container: negative payload length.");
+
+        return new HuffmanContainer(code, alphabet, bitLength);
+    }
+
+    static HuffmanAlphabet readAlphabet(DataInputStream inputStream) throws IOException {
+        int id = inputStream.readUnsignedByte();
+        try {
+            return HuffmanAlphabet.fromId(id);
+        } catch (IllegalArgumentException exception) {
+            throw new IOException("Corrupt Huffman container: " + exception.getMessage());
+        }
+    }
+
+    static void writeCode(DataOutputStream outputStream, CanonicalHuffmanCode code) throws IOException {
+        int symbolCount = code.getSymbolCount();
+        int maxLength = code.getMaxLength();
+        outputStream.writeInt(symbolCount);
+        outputStream.writeByte(maxLength);
+
+        int[] lengthCounts = new int[maxLength + 1];
+        for (int i = 0; i < symbolCount; i++) {
+            lengthCounts[code.getLength(i)]++;
+        }
+        for (int length = 1; length <= maxLength; length++) {
+            writeVarInt(outputStream, lengthCounts[length]);
+        }
+
+        int previousSymbol = 0;
+        int previousLength = 0;
+        for (int i = 0; i < symbolCount; i++) {
+            if (code.getLength(i) != previousLength) {
+                previousLength = code.getLength(i);
+                previousSymbol = 0;
+            }
+            writeVarInt(outputStream, code.getSymbol(i) - previousSymbol);
+            previousSymbol = code.getSymbol(i);
+        }
+    }
+
+    // Rejects codes with more than symbolLimit symbols before allocating anything for them, and codes with a
+    // symbol of symbolLimit or above before any table is sized after them.
+    static CanonicalHuffmanCode readCode(DataInputStream inputStream, int symbolLimit) throws IOException {
+        int symbolCount = inputStream.readInt();
+        int maxLength = inputStream.readUnsignedByte();
+        if (symbolCount < 0 || symbolCount > symbolLimit || maxLength > 64)
+            throw new IOException("Corrupt Huffman container: bad code length table.");
+
+        int[] symbols = new int[symbolCount];
+        int[] lengths = new int[symbolCount];
+        int index = 0;
+        for (int length = 1; length <= maxLength; length++) {
+            int lengthCount = readVarInt(inputStream);
+            if (lengthCount > symbolCount - index)
+                throw new IOException("Corrupt Huffman container: bad code length table.");
+            for (int i = 0; i < lengthCount; i++) {
+                lengths[index++] = length;
+            }
+        }
+        if (index != symbolCount)
+            throw new IOException("Corrupt Huffman container: bad code length table.");
+
+        int previousSymbol = 0;
+        for (int i = 0; i < symbolCount; i++) {
+            if (i > 0 && lengths[i] != lengths[i - 1])
+                previousSymbol = 0;
+            symbols[i] = previousSymbol + readVarInt(inputStream);
+            if (symbols[i] < 0 || symbols[i] >= symbolLimit)
+                throw new IOException("Corrupt Huffman container: symbol out of range: " + symbols[i]);
+            previousSymbol = symbols[i];
+        }
+
+        try {
+            return new CanonicalHuffmanCode(symbols, lengths);
+        } catch (IllegalArgumentException exception) {
+            throw new IOException("Corrupt Huffman container: " + exception.getMessage());
+        }
+    }
+
+    // Ascending symbols as a count followed by the gaps between them.
+    static void writeSymbols(DataOutputStream outputStream, int[] symbols) throws IOException {
+        writeVarInt(outputStream, symbols.length);
+        int previousSymbol = 0;
+        for (int symbol : symbols) {
+            writeVarInt(outputStream, symbol - previousSymbol);
+            previousSymbol = symbol;
+        }
+    }
+
+    static int[] readSymbols(DataInputStream inputStream, HuffmanAlphabet alphabet) throws IOException {
+        int symbolCount = readVarInt(inputStream);
+        if (symbolCount < 0 || symbolCount > alphabet.getSymbolLimit())
+            throw new IOException("Corrupt model: bad symbol count.");
+
+        int[] symbols = new int[symbolCount];
+        int previousSymbol = 0;
+        for (int i = 0; i < symbolCount; i++) {
+            int gap = readVarInt(inputStream);
+            symbols[i] = previousSymbol + gap;
+            if (gap < 0 || (i > 0 && gap == 0) || symbols[i] >= alphabet.getSymbolLimit())
+                throw new IOException("Corrupt model: bad symbol list.");
+            previousSymbol = symbols[i];
+        }
+        return symbols;
+    }
+
+    static void writeVarInt(DataOutputStream outputStream, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            outputStream.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        outputStream.writeByte(value);
+    }
+
+    static int readVarInt(DataInputStream inputStream) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = inputStream.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Corrupt Huffman container: malformed varint.");
+    }
+}
@@ -0,0 +1,216 @@
+package algorithms.huffman;
+
+import java.io.IOException;
+
+public class HuffmanDecodeTable {
+    public static final int MIN_LOOKAHEAD_BITS = 8;
+    public static final int MAX_LOOKAHEAD_BITS = 12;
+    public static final int DEFAULT_LOOKAHEAD_BITS = 10;
+
+    // Layout of a table entry, from the lowest bits up: symbol count (0 means the
+    // lookahead is a prefix of a longer code), length of the first code, total length
+    // of the resolved codes, first symbol (or fallback trie node), second symbol.
+    private static final int COUNT_BITS = 2;
+    private static final int LENGTH_BITS = 7;
+    private static final int SYMBOL_BITS = 22;
+    private static final int FIRST_LENGTH_SHIFT = COUNT_BITS;
+    private static final int TOTAL_LENGTH_SHIFT = FIRST_LENGTH_SHIFT + LENGTH_BITS;
+    private static final int FIRST_SYMBOL_SHIFT = TOTAL_LENGTH_SHIFT + LENGTH_BITS;
+    private static final int SECOND_SYMBOL_SHIFT = FIRST_SYMBOL_SHIFT + SYMBOL_BITS;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long LENGTH_MASK = (1L << LENGTH_BITS) - 1;
+    private static final long SYMBOL_MASK = (1L << SYMBOL_BITS) - 1;
+    private static final long INVALID_ENTRY = SYMBOL_MASK << FIRST_SYMBOL_SHIFT;
+
+    private int lookaheadBits;
+    private long[] entries;
+
+    // Binary trie over all codes, walked one bit at a time for codes longer than the
+    // lookahead. Children of node n sit at 2n (bit 0) and 2n + 1 (bit 1); a positive
+    // child is an inner node, a negative one is a leaf holding ~symbol and 0 is absent.
+    private int[] trie;
+    private int trieSize;
+
+    public HuffmanDecodeTable(HuffmanCodeTable codeTable) {
+        this(codeTable, DEFAULT_LOOKAHEAD_BITS);
+    }
+
+    public HuffmanDecodeTable(HuffmanCodeTable codeTable, int lookaheadBits) {
+        if (lookaheadBits < MIN_LOOKAHEAD_BITS || lookaheadBits > MAX_LOOKAHEAD_BITS)
+            throw new IllegalArgumentException("Lookahead must be between " + MIN_LOOKAHEAD_BITS + " and "
+                    + MAX_LOOKAHEAD_BITS + " bits: " + lookaheadBits);
+
+        this.lookaheadBits = lookaheadBits;
+        buildTrie(codeTable);
+        buildEntries();
+    }
+
+    private void buildTrie(HuffmanCodeTable codeTable) {
+        trie = new int[16];
+        trieSize = 1;
+
+        int symbolLimit = codeTable.getSymbolLimit();
+        for (int symbol = 0; symbol < symbolLimit; symbol++) {
+            int length = codeTable.getLength(symbol);
+            if (length == 0)
+                continue;
+            if (symbol > SYMBOL_MASK)
+                throw new IllegalArgumentException("Symbol out of range: " + symbol);
+
+            long code = codeTable.getCode(symbol);
+            int node = 0;
+            for (int i = length - 1; i > 0; i--) {
+                int slot = 2 * node + (int) (code >>> i & 1);
+                if (trie[slot] < 0)
+                    throw new IllegalArgumentException("Code table is not a prefix code.");
+                if (trie[slot] == 0) {
+                    int newNode = newTrieNode();
+                    trie[slot] = newNode;
+                }
+                node = trie[slot];
+            }
+
+            int slot = 2 * node + (int) (code & 1);
+            if (trie[slot] != 0)
+                throw new IllegalArgumentException("Code table is not a prefix code.");
+            trie[slot] = ~symbol;
+        }
+    }
+
+    private int newTrieNode() {
+        if (2 * trieSize + 1 >= trie.length) {
+            int[] newTrie = new int[trie.length * 2];
+            System.arraycopy(trie, 0, newTrie, 0, trie.length);
+            trie = newTrie;
+        }
+        return trieSize++;
+    }
+
+    private void buildEntries() {
+        entries = new long[1 << lookaheadBits];
+
+        for (int bits = 0; bits < entries.length; bits++) {
+            int position = lookaheadBits;
+            int node = 0;
+            int firstSymbol = -1;
+            int firstLength = 0;
+            long entry = INVALID_ENTRY;
+
+            while (position > 0) {
+                position--;
+                int child = trie[2 * node + (bits >>> position & 1)];
+                if (child == 0)
+                    break;
+                if (child > 0) {
+                    node = child;
+                    if (position == 0 && firstSymbol == -1)
+                        entry = (long) node << FIRST_SYMBOL_SHIFT;
+                    continue;
+                }
+
+                int length = lookaheadBits - position;
+                if (firstSymbol == -1) {
+                    firstSymbol = ~child;
+                    firstLength = length;
+                    entry = entry(1, firstLength, firstLength, firstSymbol, 0);
+                    node = 0;
+                } else {
+                    entry = entry(2, firstLength, length, firstSymbol, ~child);
+                    break;
+                }
+            }
+
+            entries[bits] = entry;
+        }
+    }
+
+    private static long entry(int count, int firstLength, int totalLength, int firstSymbol, int secondSymbol) {
+        return count | (long) firstLength << FIRST_LENGTH_SHIFT | (long) totalLength << TOTAL_LENGTH_SHIFT
+                | (long) firstSymbol << FIRST_SYMBOL_SHIFT | (long) secondSymbol << SECOND_SYMBOL_SHIFT;
+    }
+
+    public int getLookaheadBits() {
+        return this.lookaheadBits;
+    }
+
+    // Decodes symbols into output until it is full or the reader reaches endBit (an
+    // absolute position as reported by BitReader.getBitCount()), and returns the number
+    // of symbols written. Decoding stops early, with the reader left at the start of the
+    // offending code, when the upcoming bits do not match any code.
+    public int decode(BitReader reader, long endBit, int[] output, int offset, int length)
+            throws IOException, IllegalArgumentException {
+        int position = offset;
+        int limit = offset + length;
+        long remaining = endBit - reader.getBitCount();
+
+        while (remaining > 0 && position < limit) {
+            long entry = entries[reader.peekBits(lookaheadBits)];
+            int count = (int) (entry & COUNT_MASK);
+            int firstLength = (int) (entry >>> FIRST_LENGTH_SHIFT & LENGTH_MASK);
+            int totalLength = (int) (entry >>> TOTAL_LENGTH_SHIFT & LENGTH_MASK);
+            int firstSymbol = (int) (entry >>> FIRST_SYMBOL_SHIFT & SYMBOL_MASK);
+
+            if (count == 2 && totalLength <= remaining && position + 1 < limit) {
+                output[position++] = firstSymbol;
+                output[position++] = (int) (entry >>> SECOND_SYMBOL_SHIFT & SYMBOL_MASK);
+                reader.skipBits(totalLength);
+                remaining -= totalLength;
+            } else if (count > 0 && firstLength <= remaining) {
+                output[position++] = firstSymbol;
+                reader.skipBits(firstLength);
+                remaining -= firstLength;
+            } else if (count == 0 && entry != INVALID_ENTRY && remaining > lookaheadBits) {
+                int symbol = decodeLongCode(reader, firstSymbol, remaining);
+                if (symbol == -1)
+                    break;
+                output[position++] = symbol;
+                remaining = endBit - reader.getBitCount();
+            } else {
+                break;
+            }
+        }
+
+        return position - offset;
+    }
+
+    // Decodes one symbol for callers that switch tables between symbols, or returns -1, with the reader left
+    // where it was, when the upcoming bits before endBit do not match any code.
+    public int decodeSymbol(BitReader reader, long endBit) throws IOException, IllegalArgumentException {
+        long remaining = endBit - reader.getBitCount();
+        if (remaining <= 0)
+            return -1;
+
+        long entry = entries[reader.peekBits(lookaheadBits)];
+        int count = (int) (entry & COUNT_MASK);
+        int firstLength = (int) (entry >>> FIRST_LENGTH_SHIFT & LENGTH_MASK);
+        int firstSymbol = (int) (entry >>> FIRST_SYMBOL_SHIFT & SYMBOL_MASK);
+        if (count > 0 && firstLength <= remaining) {
+            reader.skipBits(firstLength);
+            return firstSymbol;
+        }
+        if (count == 0 && entry != INVALID_ENTRY && remaining > lookaheadBits)
+            return decodeLongCode(reader, firstSymbol, remaining);
+        return -1;
+    }
+
+    // Walks the trie from node, reached by the lookahead bits, over the bits after them. Nothing is consumed
+    // unless the walk ends in a code within remaining bits; otherwise returns -1. No code is longer than 64 bits,
+    // so one peek covers it.
+    private int decodeLongCode(BitReader reader, int node, long remaining) throws IOException {
+        long bits = reader.peekLongBits(64);
+        int length = lookaheadBits;
+        while (length < remaining && length < 64) {
+            int child = trie[2 * node + (int) (bits >>> (63 - length) & 1)];
+            length++;
+            if (child < 0) {
+                reader.skipBits(lookaheadBits);
+                reader.skipBits(length - lookaheadBits);
+                return ~child;
+            }
+            if (child == 0)
+                break;
+            node = child;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,301 @@
+package algorithms.huffman;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+// A Huffman model trained once on a sample corpus and shared by many small messages, which then carry only the
+// id of the model instead of a code of their own. Models are immutable: a retrained model gets a new id, so a
+// message always decodes with exactly the model it was encoded with.
+//
+// Symbols missing from the corpus are coded as an escape followed by the symbol in literalBits bits. The escape
+// is a symbol that does not occur in the corpus, so a message holding that symbol itself simply escapes it.
+//
+// Layout of a message:
+//   model id (varint), symbol count (varint),
+//   code of every symbol, with the escape code in place of each symbol the model has no code for,
+//   the escaped symbols in message order (literalBits each), padded with zeros to a whole byte.
+public final class HuffmanDictionary {
+    // Layout of a persisted dictionary: magic (int), version (byte), model id (int), alphabet id (byte),
+    // escape symbol (int, NO_ESCAPE when the corpus covers the whole alphabet), code as written by
+    // HuffmanContainer.writeCode.
+    private static final int DICTIONARY_MAGIC = 0x48554644; // "HUFD"
+    private static final int DICTIONARY_VERSION = 1;
+    private static final int NO_ESCAPE = -1;
+    private static final int MESSAGE_BUFFER_SIZE = 64;
+
+    private final int id;
+    private final HuffmanCodec codec;
+    private final int escapeSymbol;
+    private final int literalBits;
+
+    private HuffmanDictionary(int id, HuffmanCodec codec, int escapeSymbol) {
+        if (id < 0)
+            throw new IllegalArgumentException("Illegal model id: " + id);
+        if (escapeSymbol != NO_ESCAPE && !codec.canEncode(escapeSymbol))
+            throw new IllegalArgumentException("The escape symbol has no code.");
+
+        this.id = id;
+        this.codec = codec;
+        this.escapeSymbol = escapeSymbol;
+        literalBits = 32 - Integer.numberOfLeadingZeros(codec.getAlphabet().getSymbolLimit() - 1);
+    }
+
+    // The escape is given as many occurrences as there are symbols seen exactly once in the corpus, which
+    // estimates how often a message meets a symbol the corpus did not have.
+    public static HuffmanDictionary train(int id, FrequencyTable corpus, HuffmanAlphabet alphabet) {
+        int[] symbols = corpus.getSymbols();
+        if (symbols.length == 0)
+            throw new IllegalArgumentException("Cannot train a dictionary on an empty corpus.");
+
+        FrequencyTable frequencyTable = new FrequencyTable();
+        frequencyTable.addAll(corpus);
+        int escapeSymbol = NO_ESCAPE;
+        if (symbols.length < alphabet.getSymbolLimit()) {
+            // symbols are ascending, so the first gap is the smallest symbol missing from the corpus.
+            escapeSymbol = symbols.length;
+            for (int i = 0; i < symbols.length; i++) {
+                if (symbols[i] != i) {
+                    escapeSymbol = i;
+                    break;
+                }
+            }
+
+            long singletonCount = 0;
+            for (int symbol : symbols) {
+                if (corpus.getCount(symbol) == 1)
+                    singletonCount++;
+            }
+            frequencyTable.add(escapeSymbol, Math.max(singletonCount, 1));
+        }
+
+        return new HuffmanDictionary(id, HuffmanCodec.fromFrequencies(frequencyTable, alphabet), escapeSymbol);
+    }
+
+    // charset is only used by the text alphabets.
+    public static HuffmanDictionary train(int id, File corpus, HuffmanAlphabet alphabet, Charset charset)
+            throws IOException {
+        return train(id, FrequencyTable.count(corpus, alphabet, charset), alphabet);
+    }
+
+    public static HuffmanDictionary train(int id, Iterable<String> samples, HuffmanAlphabet alphabet) {
+        if (!alphabet.isText())
+            throw new IllegalArgumentException("A " + alphabet + " dictionary codes bytes, not text.");
+
+        FrequencyTable corpus = new FrequencyTable();
+        for (String sample : samples) {
+            int[] symbols = toSymbols(sample, alphabet);
+            corpus.addAll(symbols, 0, symbols.length);
+        }
+        return train(id, corpus, alphabet);
+    }
+
+    public int getId() {
+        return this.id;
+    }
+
+    public HuffmanAlphabet getAlphabet() {
+        return this.codec.getAlphabet();
+    }
+
+    public HuffmanCodec getCodec() {
+        return this.codec;
+    }
+
+    // Whether other codes every message exactly as this dictionary does.
+    boolean hasSameModel(HuffmanDictionary other) {
+        CanonicalHuffmanCode code = codec.getCode();
+        CanonicalHuffmanCode otherCode = other.codec.getCode();
+        if (id != other.id || getAlphabet() != other.getAlphabet() || escapeSymbol != other.escapeSymbol
+                || code.getSymbolCount() != otherCode.getSymbolCount())
+            return false;
+        for (int i = 0; i < code.getSymbolCount(); i++) {
+            if (code.getSymbol(i) != otherCode.getSymbol(i) || code.getLength(i) != otherCode.getLength(i))
+                return false;
+        }
+        return true;
+    }
+
+    private static int[] toSymbols(String string, HuffmanAlphabet alphabet) {
+        return alphabet == HuffmanAlphabet.CODE_POINT ? string.codePoints().toArray() : string.chars().toArray();
+    }
+
+    private void checkText() {
+        if (!codec.getAlphabet().isText())
+            throw new IllegalArgumentException("A " + codec.getAlphabet() + " dictionary codes bytes, not text.");
+    }
+
+    public byte[] encode(String message) {
+        checkText();
+        int[] symbols = toSymbols(message, codec.getAlphabet());
+        return encode(symbols, symbols.length);
+    }
+
+    public byte[] encode(byte[] message) {
+        if (codec.getAlphabet().isText())
+            throw new IllegalArgumentException("A " + codec.getAlphabet() + " dictionary codes text, not bytes.");
+
+        int[] symbols = new int[message.length];
+        for (int i = 0; i < message.length; i++) {
+            symbols[i] = message[i] & 0xFF;
+        }
+        return encode(symbols, symbols.length);
+    }
+
+    private byte[] encode(int[] symbols, int length) {
+        HuffmanCodeTable codeTable = codec.getCodeTable();
+        ByteArrayOutputStream message = new ByteArrayOutputStream(MESSAGE_BUFFER_SIZE);
+        BitWriter bitWriter = new BitWriter(message, MESSAGE_BUFFER_SIZE);
+        IntArrayList escapedSymbols = new IntArrayList(0);
+
+        try {
+            writeVarInt(bitWriter, id);
+            writeVarInt(bitWriter, length);
+            for (int i = 0; i < length; i++) {
+                int symbol = symbols[i];
+                if (symbol == escapeSymbol || !codeTable.hasCode(symbol)) {
+                    if (escapeSymbol == NO_ESCAPE)
+                        throw new IllegalArgumentException("Symbol " + symbol + " has no code.");
+                    escapedSymbols.add(symbol);
+                    symbol = escapeSymbol;
+                }
+                bitWriter.writeBits(codeTable.getCode(symbol), codeTable.getLength(symbol));
+            }
+            for (int i = 0; i < escapedSymbols.size(); i++) {
+                bitWriter.writeBits(escapedSymbols.get(i), literalBits);
+            }
+            bitWriter.flush();
+        } catch (IOException exception) {
+            // A ByteArrayOutputStream does not throw.
+            throw new IllegalStateException(exception);
+        }
+        return message.toByteArray();
+    }
+
+    // Returns the id of the model message was encoded with.
+    public static int readModelId(byte[] message) throws IllegalArgumentException {
+        try {
+            return readVarInt(new BitReader(new ByteArrayInputStream(message), MESSAGE_BUFFER_SIZE));
+        } catch (IOException exception) {
+            throw new IllegalArgumentException("Corrupt message: " + exception.getMessage());
+        }
+    }
+
+    public String decode(byte[] message) throws IllegalArgumentException {
+        checkText();
+        int[] symbols = decodeSymbols(message);
+        StringBuilder decodedString = new StringBuilder(symbols.length);
+        for (int symbol : symbols) {
+            decodedString.appendCodePoint(symbol);
+        }
+        return decodedString.toString();
+    }
+
+    public byte[] decodeBytes(byte[] message) throws IllegalArgumentException {
+        if (codec.getAlphabet().isText())
+            throw new IllegalArgumentException("A " + codec.getAlphabet() + " dictionary codes text, not bytes.");
+
+        int[] symbols = decodeSymbols(message);
+        byte[] decodedBytes = new byte[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            decodedBytes[i] = (byte) symbols[i];
+        }
+        return decodedBytes;
+    }
+
+    private int[] decodeSymbols(byte[] message) throws IllegalArgumentException {
+        long endBit = (long) message.length * 8;
+        BitReader bitReader = new BitReader(new ByteArrayInputStream(message), MESSAGE_BUFFER_SIZE);
+
+        try {
+            int modelId = readVarInt(bitReader);
+            if (modelId != id)
+                throw new IllegalArgumentException("Message was encoded with model " + modelId + ", not " + id + ".");
+            int symbolCount = readVarInt(bitReader);
+            // Every code takes at least one bit.
+            if (symbolCount < 0 || symbolCount > endBit - bitReader.getBitCount())
+                throw new IllegalArgumentException("Corrupt message: bad symbol count.");
+
+            int[] symbols = new int[symbolCount];
+            int decodedCount = codec.getDecodeTable().decode(bitReader, endBit, symbols, 0, symbolCount);
+            if (decodedCount < symbolCount)
+                throw new IllegalArgumentException("Did not find a matching symbol at bit " + bitReader.getBitCount()
+                        + ".");
+
+            if (escapeSymbol != NO_ESCAPE) {
+                for (int i = 0; i < symbolCount; i++) {
+                    if (symbols[i] != escapeSymbol)
+                        continue;
+                    symbols[i] = (int) bitReader.readBits(literalBits);
+                    if (symbols[i] >= codec.getAlphabet().getSymbolLimit())
+                        throw new IllegalArgumentException("Corrupt message: bad escaped symbol.");
+                }
+            }
+
+            if (endBit - bitReader.getBitCount() >= 8)
+                throw new IllegalArgumentException("Corrupt message: trailing data.");
+            return symbols;
+        } catch (EOFException exception) {
+            throw new IllegalArgumentException("Corrupt message: unexpected end of message.");
+        } catch (IOException exception) {
+            throw new IllegalArgumentException("Corrupt message: " + exception.getMessage());
+        }
+    }
+
+    // Message headers are byte aligned, so their varints go through the bit writer a byte at a time.
+    private static void writeVarInt(BitWriter bitWriter, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            bitWriter.writeBits((value & 0x7F) | 0x80, 8);
+            value >>>= 7;
+        }
+        bitWriter.writeBits(value, 8);
+    }
+
+    private static int readVarInt(BitReader bitReader) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = (int) bitReader.readBits(8);
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("malformed varint.");
+    }
+
+    public void write(OutputStream outputStream) throws IOException {
+        DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+        dataOutputStream.writeInt(DICTIONARY_MAGIC);
+        dataOutputStream.writeByte(DICTIONARY_VERSION);
+        dataOutputStream.writeInt(id);
+        dataOutputStream.writeByte(codec.getAlphabet().getId());
+        dataOutputStream.writeInt(escapeSymbol);
+        HuffmanContainer.writeCode(dataOutputStream, codec.getCode());
+        dataOutputStream.flush();
+    }
+
+    public static HuffmanDictionary read(InputStream inputStream) throws IOException {
+        DataInputStream dataInputStream = new DataInputStream(inputStream);
+        if (dataInputStream.readInt() != DICTIONARY_MAGIC)
+            throw new IOException("Input is not a Huffman dictionary.");
+        int version = dataInputStream.readUnsignedByte();
+        if (version != DICTIONARY_VERSION)
+            throw new IOException("Unsupported Huffman dictionary version: " + version);
+
+        int id = dataInputStream.readInt();
+        HuffmanAlphabet alphabet = HuffmanContainer.readAlphabet(dataInputStream);
+        int escapeSymbol = dataInputStream.readInt();
+        CanonicalHuffmanCode code = HuffmanContainer.readCode(dataInputStream, alphabet.getSymbolLimit());
+        try {
+            return new HuffmanDictionary(id, HuffmanCodec.fromCode(code, alphabet), escapeSymbol);
+        } catch (IllegalArgumentException exception) {
+            throw new IOException("Corrupt Huffman dictionary: " + exception.getMessage());
+        }
+    }
+}
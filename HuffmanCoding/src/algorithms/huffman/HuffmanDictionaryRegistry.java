@@ -0,0 +1,153 @@
+package algorithms.huffman;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+
+// The dictionaries a process can decode with, looked up by model id. Registering is rare and lookups happen
+// once per message, so the dictionaries are kept in an array sorted by id that is replaced on every change and
+// searched without locking. With a directory, dictionaries are also stored there, one file per model id, and a
+// lookup that misses in memory loads the dictionary from it.
+public class HuffmanDictionaryRegistry {
+    private static final String DICTIONARY_FILE_SUFFIX = ".hufd";
+
+    private File directory;
+
+    private volatile HuffmanDictionary[] dictionaries = new HuffmanDictionary[0];
+
+    public HuffmanDictionaryRegistry() {
+        this(null);
+    }
+
+    public HuffmanDictionaryRegistry(File directory) {
+        this.directory = directory;
+    }
+
+    // A model id stands for one model for good, so registering another model under an id that is taken, in
+    // memory or in the directory, fails. Registering the same model again does nothing.
+    public void register(HuffmanDictionary dictionary) throws IOException {
+        if (directory != null) {
+            HuffmanDictionary stored = load(dictionary.getId());
+            if (stored == null)
+                stored = store(dictionary);
+            if (!stored.hasSameModel(dictionary))
+                throw new IllegalArgumentException("Model id " + dictionary.getId() + " is already taken.");
+        }
+        insert(dictionary, false);
+    }
+
+    // Returns the dictionary with the given id, or null if there is none in memory or in the directory.
+    public HuffmanDictionary get(int id) throws IOException {
+        HuffmanDictionary[] currentDictionaries = dictionaries;
+        int index = indexOf(currentDictionaries, id);
+        if (index >= 0)
+            return currentDictionaries[index];
+
+        HuffmanDictionary dictionary = load(id);
+        if (dictionary == null)
+            return null;
+        return insert(dictionary, true);
+    }
+
+    public int size() {
+        return this.dictionaries.length;
+    }
+
+    public String decode(byte[] message) throws IOException, IllegalArgumentException {
+        return find(message).decode(message);
+    }
+
+    public byte[] decodeBytes(byte[] message) throws IOException, IllegalArgumentException {
+        return find(message).decodeBytes(message);
+    }
+
+    private HuffmanDictionary find(byte[] message) throws IOException, IllegalArgumentException {
+        int id = HuffmanDictionary.readModelId(message);
+        HuffmanDictionary dictionary = get(id);
+        if (dictionary == null)
+            throw new IllegalArgumentException("Unknown model id: " + id);
+        return dictionary;
+    }
+
+    // Binary search by id; returns -(insertion point) - 1 when id is missing.
+    private static int indexOf(HuffmanDictionary[] sortedDictionaries, int id) {
+        int low = 0;
+        int high = sortedDictionaries.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = sortedDictionaries[middle].getId();
+            if (middleId < id)
+                low = middle + 1;
+            else if (middleId > id)
+                high = middle - 1;
+            else
+                return middle;
+        }
+        return -(low + 1);
+    }
+
+    // Returns the dictionary now registered under the id of dictionary. A loaded dictionary gives way to one
+    // that another thread loaded or registered first.
+    private synchronized HuffmanDictionary insert(HuffmanDictionary dictionary, boolean loaded) {
+        int index = indexOf(dictionaries, dictionary.getId());
+        if (index >= 0) {
+            if (!loaded && !dictionaries[index].hasSameModel(dictionary))
+                throw new IllegalArgumentException("Model id " + dictionary.getId() + " is already taken.");
+            return dictionaries[index];
+        }
+
+        int insertionPoint = -index - 1;
+        HuffmanDictionary[] newDictionaries = new HuffmanDictionary[dictionaries.length + 1];
+        System.arraycopy(dictionaries, 0, newDictionaries, 0, insertionPoint);
+        newDictionaries[insertionPoint] = dictionary;
+        System.arraycopy(dictionaries, insertionPoint, newDictionaries, insertionPoint + 1,
+                dictionaries.length - insertionPoint);
+        dictionaries = newDictionaries;
+        return dictionary;
+    }
+
+    private HuffmanDictionary load(int id) throws IOException {
+        if (directory == null)
+            return null;
+        File dictionaryFile = new File(directory, id + DICTIONARY_FILE_SUFFIX);
+        if (!dictionaryFile.isFile())
+            return null;
+
+        HuffmanDictionary dictionary;
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(dictionaryFile))) {
+            dictionary = HuffmanDictionary.read(inputStream);
+        }
+        if (dictionary.getId() != id)
+            throw new IOException("Dictionary file " + dictionaryFile + " holds model " + dictionary.getId() + ".");
+        return dictionary;
+    }
+
+    // Writes to a temporary file first, so a concurrent reader never sees a half written dictionary, and never
+    // replaces a stored one. Returns the dictionary the directory holds afterwards, which is another process's
+    // if that one stored a dictionary under the same id first.
+    private HuffmanDictionary store(HuffmanDictionary dictionary) throws IOException {
+        Files.createDirectories(directory.toPath());
+        File temporaryFile = File.createTempFile("dictionary-", ".tmp", directory);
+        try {
+            try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(temporaryFile))) {
+                dictionary.write(outputStream);
+            }
+            File dictionaryFile = new File(directory, dictionary.getId() + DICTIONARY_FILE_SUFFIX);
+            try {
+                Files.move(temporaryFile.toPath(), dictionaryFile.toPath());
+            } catch (FileAlreadyExistsException exception) {
+                return load(dictionary.getId());
+            }
+            return dictionary;
+        } finally {
+            Files.deleteIfExists(temporaryFile.toPath());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package algorithms.huffman;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+// Prefix codes behind the EntropyCoder interface. Blocks are coded either as one bitstream or as four
+// interleaved ones, laid out as described in InterleavedDecodeTable.
+public class HuffmanEntropyCoder implements EntropyCoder {
+    public static final int DEFAULT_STREAM_COUNT = InterleavedDecodeTable.STREAM_COUNT;
+
+    private final HuffmanCodec codec;
+    private final int streamCount;
+
+    public HuffmanEntropyCoder(HuffmanCodec codec) {
+        this(codec, DEFAULT_STREAM_COUNT);
+    }
+
+    public HuffmanEntropyCoder(HuffmanCodec codec, int streamCount) {
+        if (streamCount != 1 && streamCount != InterleavedDecodeTable.STREAM_COUNT)
+            throw new IllegalArgumentException("Illegal stream count: " + streamCount);
+
+        this.codec = codec;
+        this.streamCount = streamCount;
+    }
+
+    public HuffmanCodec getCodec() {
+        return this.codec;
+    }
+
+    public int getStreamCount() {
+        return this.streamCount;
+    }
+
+    @Override
+    public EntropyCoderType getType() {
+        return EntropyCoderType.HUFFMAN;
+    }
+
+    @Override
+    public HuffmanAlphabet getAlphabet() {
+        return codec.getAlphabet();
+    }
+
+    @Override
+    public boolean canEncode(int symbol) {
+        return codec.canEncode(symbol);
+    }
+
+    @Override
+    public byte[] encode(int[] symbols, int offset, int length) throws IllegalArgumentException {
+        try {
+            if (streamCount > 1)
+                return encodeInterleaved(codec, symbols, offset, length);
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream(length / 2 + 16);
+            BitWriter bitWriter = new BitWriter(output);
+            codec.encode(symbols, offset, length, bitWriter);
+            bitWriter.flush();
+            return output.toByteArray();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    // Codes symbols [offset, offset + length) as four streams, in the layout InterleavedDecodeTable decodes.
+    static byte[] encodeInterleaved(HuffmanCodec codec, int[] symbols, int offset, int length) throws IOException {
+        int streamCount = InterleavedDecodeTable.STREAM_COUNT;
+        int quarter = length / streamCount;
+        byte[][] streams = new byte[streamCount][];
+        int payloadLength = InterleavedDecodeTable.JUMP_TABLE_SIZE;
+        for (int i = 0; i < streamCount; i++) {
+            int start = offset + i * quarter;
+            int end = i == streamCount - 1 ? offset + length : start + quarter;
+            ByteArrayOutputStream output = new ByteArrayOutputStream((end - start) / 2 + 16);
+            BitWriter bitWriter = new BitWriter(output);
+            codec.encode(symbols, start, end - start, bitWriter);
+            bitWriter.flush();
+            streams[i] = output.toByteArray();
+            payloadLength += streams[i].length;
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(payloadLength);
+        for (int i = 0; i < streamCount - 1; i++) {
+            payload.putInt(streams[i].length);
+        }
+        for (byte[] stream : streams) {
+            payload.put(stream);
+        }
+        return payload.array();
+    }
+
+    // Every symbol costs at most the longest code; interleaved streams add the jump table and a partial byte each.
+    @Override
+    public long maxPayloadSize(int length) {
+        long bits = (long) length * codec.getMaxCodeLength();
+        if (streamCount > 1)
+            return InterleavedDecodeTable.JUMP_TABLE_SIZE + bits / 8 + InterleavedDecodeTable.STREAM_COUNT;
+        return (bits + 7) / 8;
+    }
+
+    @Override
+    public void decode(byte[] payload, int[] output, int offset, int length) throws IllegalArgumentException {
+        if (streamCount > 1) {
+            codec.getInterleavedDecodeTable().decode(payload, output, offset, length);
+            return;
+        }
+
+        try {
+            BitReader bitReader = new BitReader(new ByteArrayInputStream(payload));
+            int symbolCount = codec.getDecodeTable().decode(bitReader, 8L * payload.length, output, offset, length);
+            if (symbolCount != length || (bitReader.getBitCount() + 7) / 8 != payload.length)
+                throw new IllegalArgumentException("Block does not decode to " + length + " symbols.");
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    // Model: stream count (byte), code as written by HuffmanContainer.writeCode.
+    @Override
+    public void writeModel(DataOutputStream outputStream) throws IOException {
+        outputStream.writeByte(streamCount);
+        HuffmanContainer.writeCode(outputStream, codec.getCode());
+    }
+
+    static HuffmanEntropyCoder readModel(DataInputStream inputStream, HuffmanAlphabet alphabet) throws IOException {
+        int streamCount = inputStream.readUnsignedByte();
+        return readModel(inputStream, alphabet, streamCount);
+    }
+
+    static HuffmanEntropyCoder readModel(DataInputStream inputStream, HuffmanAlphabet alphabet, int streamCount)
+            throws IOException {
+        CanonicalHuffmanCode code = HuffmanContainer.readCode(inputStream, alphabet.getSymbolLimit());
+        try {
+            return new HuffmanEntropyCoder(HuffmanCodec.fromCode(code, alphabet), streamCount);
+        } catch (IllegalArgumentException exception) {
+            throw new IOException("Corrupt Huffman model: " + exception.getMessage());
+        }
+    }
+}
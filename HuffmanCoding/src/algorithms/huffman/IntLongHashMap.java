@@ -0,0 +1,109 @@
+package algorithms.huffman;
+
+// Open-addressing map from non-negative int keys to long values, probed linearly.
+public class IntLongHashMap {
+    private static final int EMPTY_KEY = -1;
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    private int[] keys;
+    private long[] values;
+    private int size;
+    private int mask;
+
+    public IntLongHashMap() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    public IntLongHashMap(int expectedSize) {
+        if (expectedSize < 0)
+            throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+
+        int capacity = DEFAULT_INITIAL_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+            if (capacity <= 0)
+                throw new ArithmeticException("Capacity overflow when attempting to size IntLongHashMap.");
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            keys[i] = EMPTY_KEY;
+        }
+    }
+
+    private int slot(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    public long get(int key) {
+        int slot = slot(key);
+        while (keys[slot] != EMPTY_KEY) {
+            if (keys[slot] == key)
+                return values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    public void add(int key, long delta) {
+        if (key < 0)
+            throw new IllegalArgumentException("Illegal key: " + key);
+
+        int slot = slot(key);
+        while (keys[slot] != EMPTY_KEY) {
+            if (keys[slot] == key) {
+                values[slot] += delta;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = delta;
+        size++;
+        if (size * 2 > keys.length)
+            rehash();
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        int newCapacity = oldKeys.length * 2;
+        if (newCapacity < 0)
+            throw new ArithmeticException("Capacity overflow when attempting to increase IntLongHashMap capacity.");
+
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY_KEY)
+                continue;
+
+            int slot = slot(oldKeys[i]);
+            while (keys[slot] != EMPTY_KEY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Returns the keys in no particular order.
+    public int[] keys() {
+        int[] result = new int[size];
+        int index = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY_KEY)
+                result[index++] = keys[i];
+        }
+        return result;
+    }
+}
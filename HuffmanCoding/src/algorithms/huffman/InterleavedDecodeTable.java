@@ -0,0 +1,249 @@
+package algorithms.huffman;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// Decodes payloads made of four bitstreams that were coded independently, as in Huff0: the streams advance
+// together in one loop, so their table lookups do not depend on each other and the processor can overlap
+// them. Each stream is tracked by nothing more than its bit position, which the JIT keeps in a register, and
+// bits are fetched with one unaligned 64 bit load per lookup. A lookup resolves two short codes at once.
+//
+// Layout of a payload: byte lengths of streams 0 to 2 (int each), then the four streams, each padded to a
+// whole byte. Streams 0 to 2 hold symbolCount / 4 symbols and stream 3 holds the rest.
+public class InterleavedDecodeTable {
+    public static final int STREAM_COUNT = 4;
+    public static final int MAX_TABLE_BITS = 12;
+
+    static final int JUMP_TABLE_SIZE = 4 * (STREAM_COUNT - 1);
+
+    // Layout of a table entry, from the lowest bits up: total length of the resolved codes, length of the
+    // first code, symbol count, first symbol, second symbol. LONG_CODE marks a prefix of a code longer than
+    // the table, or of no code at all, which is resolved by decodeLongCode.
+    private static final int LENGTH_BITS = 7;
+    private static final int COUNT_BITS = 2;
+    private static final int SYMBOL_BITS = 21;
+    private static final int FIRST_LENGTH_SHIFT = LENGTH_BITS;
+    private static final int COUNT_SHIFT = FIRST_LENGTH_SHIFT + LENGTH_BITS;
+    private static final int FIRST_SYMBOL_SHIFT = COUNT_SHIFT + COUNT_BITS;
+    private static final int SECOND_SYMBOL_SHIFT = FIRST_SYMBOL_SHIFT + SYMBOL_BITS;
+    private static final long LENGTH_MASK = (1L << LENGTH_BITS) - 1;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long SYMBOL_MASK = (1L << SYMBOL_BITS) - 1;
+    private static final long LONG_CODE = -1;
+    // Reading 9 bytes at the byte holding any valid bit position stays inside the padded payload.
+    private static final int PADDING = 9;
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private int tableBits;
+    private long[] entries;
+
+    // Canonical codes of the same length are consecutive, so a long code is found by comparing its first
+    // length bits against the first code and code count of each length.
+    private int maxLength;
+    private long[] firstCodes;
+    private int[] codeCounts;
+    private int[] firstIndices;
+    private int[] sortedSymbols;
+
+    public InterleavedDecodeTable(CanonicalHuffmanCode code) {
+        maxLength = code.getMaxLength();
+        tableBits = Math.max(1, Math.min(maxLength, MAX_TABLE_BITS));
+        entries = new long[1 << tableBits];
+        Arrays.fill(entries, LONG_CODE);
+
+        int symbolCount = code.getSymbolCount();
+        firstCodes = new long[maxLength + 1];
+        codeCounts = new int[maxLength + 1];
+        firstIndices = new int[maxLength + 1];
+        sortedSymbols = new int[symbolCount];
+        long[] codes = new long[symbolCount];
+
+        long nextCode = 0;
+        int previousLength = symbolCount == 0 ? 0 : code.getLength(0);
+        for (int i = 0; i < symbolCount; i++) {
+            int symbol = code.getSymbol(i);
+            int length = code.getLength(i);
+            nextCode <<= length - previousLength;
+            previousLength = length;
+            if (symbol > SYMBOL_MASK)
+                throw new IllegalArgumentException("Symbol out of range: " + symbol);
+
+            if (codeCounts[length] == 0) {
+                firstCodes[length] = nextCode;
+                firstIndices[length] = i;
+            }
+            codeCounts[length]++;
+            sortedSymbols[i] = symbol;
+            codes[i] = nextCode;
+            nextCode++;
+        }
+
+        // Codes are sorted by length, so the loops stop at the first code that no longer fits.
+        for (int i = 0; i < symbolCount && code.getLength(i) <= tableBits; i++) {
+            int firstLength = code.getLength(i);
+            fill(codes[i], firstLength, entry(firstLength, firstLength, 1, sortedSymbols[i], 0));
+            for (int j = 0; j < symbolCount && firstLength + code.getLength(j) <= tableBits; j++) {
+                int totalLength = firstLength + code.getLength(j);
+                fill(codes[i] << code.getLength(j) | codes[j], totalLength,
+                        entry(totalLength, firstLength, 2, sortedSymbols[i], sortedSymbols[j]));
+            }
+        }
+    }
+
+    private static long entry(int totalLength, int firstLength, int count, int firstSymbol, int secondSymbol) {
+        return totalLength | (long) firstLength << FIRST_LENGTH_SHIFT | (long) count << COUNT_SHIFT
+                | (long) firstSymbol << FIRST_SYMBOL_SHIFT | (long) secondSymbol << SECOND_SYMBOL_SHIFT;
+    }
+
+    // Sets every entry whose index starts with the given bits.
+    private void fill(long bits, int length, long entry) {
+        int first = (int) (bits << (tableBits - length));
+        Arrays.fill(entries, first, first + (1 << (tableBits - length)), entry);
+    }
+
+    public int getTableBits() {
+        return this.tableBits;
+    }
+
+    // Decodes symbolCount symbols from payload into output. Every stream has to end exactly at its last byte.
+    public void decode(byte[] payload, int[] output, int offset, int symbolCount) throws IllegalArgumentException {
+        if (payload.length < JUMP_TABLE_SIZE)
+            throw new IllegalArgumentException("Payload is too short for " + STREAM_COUNT + " streams.");
+
+        ByteBuffer jumpTable = ByteBuffer.wrap(payload, 0, JUMP_TABLE_SIZE);
+        long[] ends = new long[STREAM_COUNT];
+        long start = JUMP_TABLE_SIZE;
+        for (int i = 0; i < STREAM_COUNT - 1; i++) {
+            int streamLength = jumpTable.getInt();
+            if (streamLength < 0)
+                throw new IllegalArgumentException("Illegal stream length: " + streamLength);
+            ends[i] = start + streamLength;
+            start = ends[i];
+        }
+        ends[STREAM_COUNT - 1] = payload.length;
+        if (ends[STREAM_COUNT - 2] > payload.length)
+            throw new IllegalArgumentException("Stream lengths exceed the payload.");
+
+        byte[] data = Arrays.copyOf(payload, payload.length + PADDING);
+        long[] table = entries;
+        int shift = 64 - tableBits;
+        long limit = 8L * payload.length;
+
+        int quarter = symbolCount / STREAM_COUNT;
+        long position0 = 8L * JUMP_TABLE_SIZE;
+        long position1 = 8 * ends[0];
+        long position2 = 8 * ends[1];
+        long position3 = 8 * ends[2];
+        int out0 = offset;
+        int out1 = offset + quarter;
+        int out2 = offset + 2 * quarter;
+        int out3 = offset + 3 * quarter;
+        int end0 = out1;
+        int end1 = out2;
+        int end2 = out3;
+        int end3 = offset + symbolCount;
+
+        // A lookup stores two symbols and consumes at most maxLength bits, so the checks are only needed once
+        // per run of iterations that cannot reach the end of the output or of the payload.
+        int maxBits = Math.max(maxLength, 1);
+        while (true) {
+            long bitsLeft = limit - Math.max(Math.max(position0, position1), Math.max(position2, position3));
+            int symbolsLeft = Math.min(Math.min(end0 - out0, end1 - out1), Math.min(end2 - out2, end3 - out3));
+            int iterations = (int) Math.min(bitsLeft / maxBits, (symbolsLeft - 1) / 2);
+            if (iterations <= 0)
+                break;
+            for (; iterations > 0; iterations--) {
+                long entry0 = table[peek(data, position0, shift)];
+                long entry1 = table[peek(data, position1, shift)];
+                long entry2 = table[peek(data, position2, shift)];
+                long entry3 = table[peek(data, position3, shift)];
+                if ((entry0 | entry1 | entry2 | entry3) < 0) {
+                    if (entry0 < 0)
+                        entry0 = decodeLongCode(data, position0, limit);
+                    if (entry1 < 0)
+                        entry1 = decodeLongCode(data, position1, limit);
+                    if (entry2 < 0)
+                        entry2 = decodeLongCode(data, position2, limit);
+                    if (entry3 < 0)
+                        entry3 = decodeLongCode(data, position3, limit);
+                }
+
+                output[out0] = (int) (entry0 >>> FIRST_SYMBOL_SHIFT & SYMBOL_MASK);
+                output[out0 + 1] = (int) (entry0 >>> SECOND_SYMBOL_SHIFT);
+                output[out1] = (int) (entry1 >>> FIRST_SYMBOL_SHIFT & SYMBOL_MASK);
+                output[out1 + 1] = (int) (entry1 >>> SECOND_SYMBOL_SHIFT);
+                output[out2] = (int) (entry2 >>> FIRST_SYMBOL_SHIFT & SYMBOL_MASK);
+                output[out2 + 1] = (int) (entry2 >>> SECOND_SYMBOL_SHIFT);
+                output[out3] = (int) (entry3 >>> FIRST_SYMBOL_SHIFT & SYMBOL_MASK);
+                output[out3 + 1] = (int) (entry3 >>> SECOND_SYMBOL_SHIFT);
+                out0 += (int) (entry0 >>> COUNT_SHIFT & COUNT_MASK);
+                out1 += (int) (entry1 >>> COUNT_SHIFT & COUNT_MASK);
+                out2 += (int) (entry2 >>> COUNT_SHIFT & COUNT_MASK);
+                out3 += (int) (entry3 >>> COUNT_SHIFT & COUNT_MASK);
+                position0 += entry0 & LENGTH_MASK;
+                position1 += entry1 & LENGTH_MASK;
+                position2 += entry2 & LENGTH_MASK;
+                position3 += entry3 & LENGTH_MASK;
+            }
+        }
+
+        checkEnd(decodeStream(data, position0, limit, output, out0, end0), ends[0]);
+        checkEnd(decodeStream(data, position1, limit, output, out1, end1), ends[1]);
+        checkEnd(decodeStream(data, position2, limit, output, out2, end2), ends[2]);
+        checkEnd(decodeStream(data, position3, limit, output, out3, end3), ends[3]);
+    }
+
+    // Finishes a single stream once the four can no longer advance together, and returns its end position.
+    private long decodeStream(byte[] data, long position, long limit, int[] output, int out, int end) {
+        int shift = 64 - tableBits;
+        while (out < end) {
+            if (position >= limit)
+                throw new IllegalArgumentException("Streams end before all symbols are decoded.");
+            long entry = entries[peek(data, position, shift)];
+            if (entry < 0)
+                entry = decodeLongCode(data, position, limit);
+
+            output[out++] = (int) (entry >>> FIRST_SYMBOL_SHIFT & SYMBOL_MASK);
+            if ((entry >>> COUNT_SHIFT & COUNT_MASK) == 2 && out < end) {
+                output[out++] = (int) (entry >>> SECOND_SYMBOL_SHIFT);
+                position += entry & LENGTH_MASK;
+            } else {
+                position += entry >>> FIRST_LENGTH_SHIFT & LENGTH_MASK;
+            }
+        }
+        return position;
+    }
+
+    // The next 64 - shift bits from position, as a table index.
+    private static int peek(byte[] data, long position, int shift) {
+        return (int) (((long) LONGS.get(data, (int) (position >>> 3)) << (position & 7)) >>> shift);
+    }
+
+    // A corrupt stream that strays into its neighbour decodes garbage, but cannot end where it should.
+    private static void checkEnd(long position, long end) {
+        if ((position + 7) >>> 3 != end)
+            throw new IllegalArgumentException("Stream does not end at byte " + end + ".");
+    }
+
+    // Codes no longer than the table are all in it, so the search starts at the next length.
+    private long decodeLongCode(byte[] data, long position, long limit) {
+        int index = (int) (position >>> 3);
+        int bitOffset = (int) (position & 7);
+        long bits = (long) LONGS.get(data, index);
+        if (bitOffset > 0)
+            bits = bits << bitOffset | (data[index + 8] & 0xFF) >>> (8 - bitOffset);
+
+        for (int length = tableBits + 1; length <= maxLength && position + length <= limit; length++) {
+            long codeIndex = (bits >>> (64 - length)) - firstCodes[length];
+            if (codeIndex >= 0 && codeIndex < codeCounts[length]) {
+                int symbol = sortedSymbols[firstIndices[length] + (int) codeIndex];
+                return entry(length, length, 1, symbol, 0);
+            }
+        }
+        throw new IllegalArgumentException("Did not find a matching symbol at bit " + position + ".");
+    }
+}
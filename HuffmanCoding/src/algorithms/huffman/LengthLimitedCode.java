@@ -0,0 +1,180 @@
+package algorithms.huffman;
+
+// Optimal prefix code whose code lengths do not exceed a given maximum, found with the package-merge
+// algorithm. Capping lengths bounds the size of decode tables at the price of a slightly larger output,
+// which is reported as the penalty over an unrestricted Huffman code.
+public class LengthLimitedCode {
+    private CanonicalHuffmanCode code;
+    private long optimalBits;
+    private long limitedBits;
+
+    private LengthLimitedCode(CanonicalHuffmanCode code, long optimalBits, long limitedBits) {
+        this.code = code;
+        this.optimalBits = optimalBits;
+        this.limitedBits = limitedBits;
+    }
+
+    // The plain Huffman code comes from HuffmanCodingTree; package-merge only runs when that code is longer than
+    // maxLength, which on most inputs it is not.
+    public static LengthLimitedCode build(FrequencyTable frequencyTable, int maxLength) {
+        if (maxLength < 1 || maxLength > 64)
+            throw new IllegalArgumentException("Illegal maximum code length: " + maxLength);
+
+        int[] symbols = frequencyTable.getSymbols();
+        long[] frequencies = new long[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            frequencies[i] = frequencyTable.getCount(symbols[i]);
+        }
+        if (symbols.length == 0)
+            return new LengthLimitedCode(new CanonicalHuffmanCode(symbols, new int[0]), 0, 0);
+
+        CanonicalHuffmanCode optimalCode = HuffmanCodingTree.build(frequencyTable).toCanonicalCode();
+        long optimalBits = 0;
+        for (int i = 0; i < optimalCode.getSymbolCount(); i++) {
+            optimalBits += frequencyTable.getCount(optimalCode.getSymbol(i)) * optimalCode.getLength(i);
+        }
+        if (optimalCode.getMaxLength() <= maxLength)
+            return new LengthLimitedCode(optimalCode, optimalBits, optimalBits);
+
+        int[] limitedLengths = computeLimitedLengths(frequencies, maxLength);
+        return new LengthLimitedCode(new CanonicalHuffmanCode(symbols, limitedLengths), optimalBits,
+                codedBits(frequencies, limitedLengths));
+    }
+
+    public static LengthLimitedCode build(int[] symbols, long[] frequencies, int maxLength) {
+        if (symbols.length != frequencies.length)
+            throw new IllegalArgumentException("Expected one frequency per symbol.");
+
+        int symbolLimit = 0;
+        for (int i = 0; i < symbols.length; i++) {
+            if (frequencies[i] <= 0)
+                throw new IllegalArgumentException("Frequencies must be positive: " + frequencies[i]);
+            symbolLimit = Math.max(symbolLimit, symbols[i] + 1);
+        }
+        FrequencyTable frequencyTable = new FrequencyTable(Math.min(symbolLimit, FrequencyTable.DEFAULT_DENSE_LIMIT));
+        for (int i = 0; i < symbols.length; i++) {
+            frequencyTable.add(symbols[i], frequencies[i]);
+        }
+        return build(frequencyTable, maxLength);
+    }
+
+    public CanonicalHuffmanCode getCode() {
+        return this.code;
+    }
+
+    public long getOptimalBits() {
+        return this.optimalBits;
+    }
+
+    public long getLimitedBits() {
+        return this.limitedBits;
+    }
+
+    // Relative growth of the coded size caused by the length limit, e.g. 0.01 for 1% more bits.
+    public double getPenalty() {
+        return optimalBits == 0 ? 0 : (double) (limitedBits - optimalBits) / optimalBits;
+    }
+
+    public static long codedBits(long[] frequencies, int[] lengths) {
+        long bits = 0;
+        for (int i = 0; i < frequencies.length; i++) {
+            bits += frequencies[i] * lengths[i];
+        }
+        return bits;
+    }
+
+    // Returns, for every frequency, the code length of an optimal prefix code limited to maxLength bits.
+    private static int[] computeLimitedLengths(long[] frequencies, int maxLength) {
+        int symbolCount = frequencies.length;
+        if (maxLength < 63 && symbolCount > 1L << maxLength)
+            throw new IllegalArgumentException(
+                    symbolCount + " symbols cannot be coded in at most " + maxLength + " bits.");
+
+        int[] order = sortByFrequency(frequencies);
+        long[] sortedFrequencies = new long[symbolCount];
+        for (int i = 0; i < symbolCount; i++) {
+            sortedFrequencies[i] = frequencies[order[i]];
+        }
+
+        int[] sortedLengths = packageMergeLengths(sortedFrequencies, maxLength);
+        int[] lengths = new int[symbolCount];
+        for (int i = 0; i < symbolCount; i++) {
+            lengths[order[i]] = sortedLengths[i];
+        }
+        return lengths;
+    }
+
+    // Package-merge: level lists are built from the deepest level up, each merging the leaves with the
+    // packages (pairs) of the level below. The 2n - 2 cheapest items of the top list then decide how many
+    // levels every leaf takes part in, which is its code length.
+    private static int[] packageMergeLengths(long[] sortedFrequencies, int maxLength) {
+        int symbolCount = sortedFrequencies.length;
+        long[][] levelWeights = new long[maxLength][];
+        int[][] levelLeafCounts = new int[maxLength][];
+
+        levelWeights[0] = sortedFrequencies;
+        levelLeafCounts[0] = null;
+        for (int level = 1; level < maxLength; level++) {
+            long[] below = levelWeights[level - 1];
+            int packageCount = below.length / 2;
+            long[] weights = new long[symbolCount + packageCount];
+            // leafCounts[i] is the number of leaves among the first i + 1 items of the level.
+            int[] leafCounts = new int[weights.length];
+
+            int leaf = 0;
+            int pack = 0;
+            for (int i = 0; i < weights.length; i++) {
+                long packageWeight = pack < packageCount ? below[2 * pack] + below[2 * pack + 1] : Long.MAX_VALUE;
+                if (leaf < symbolCount && sortedFrequencies[leaf] <= packageWeight) {
+                    weights[i] = sortedFrequencies[leaf++];
+                } else {
+                    weights[i] = packageWeight;
+                    pack++;
+                }
+                leafCounts[i] = leaf;
+            }
+
+            levelWeights[level] = weights;
+            levelLeafCounts[level] = leafCounts;
+        }
+
+        int[] lengths = new int[symbolCount];
+        int selected = 2 * symbolCount - 2;
+        for (int level = maxLength - 1; level >= 0 && selected > 0; level--) {
+            int leaves = level == 0 ? selected : levelLeafCounts[level][selected - 1];
+            for (int i = 0; i < leaves; i++) {
+                lengths[i]++;
+            }
+            selected = 2 * (selected - leaves);
+        }
+        return lengths;
+    }
+
+    // Returns the indices of frequencies in ascending frequency order.
+    private static int[] sortByFrequency(long[] frequencies) {
+        int[] order = new int[frequencies.length];
+        int[] buffer = new int[frequencies.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+
+        for (int width = 1; width < order.length; width *= 2) {
+            for (int start = 0; start < order.length; start += 2 * width) {
+                int middle = Math.min(start + width, order.length);
+                int end = Math.min(start + 2 * width, order.length);
+                int left = start;
+                int right = middle;
+                for (int i = start; i < end; i++) {
+                    if (left < middle && (right == end || frequencies[order[left]] <= frequencies[order[right]]))
+                        buffer[i] = order[left++];
+                    else
+                        buffer[i] = order[right++];
+                }
+            }
+            int[] swap = order;
+            order = buffer;
+            buffer = swap;
+        }
+        return order;
+    }
+}
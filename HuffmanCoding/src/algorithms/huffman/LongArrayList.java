@@ -0,0 +1,114 @@
+package algorithms.huffman;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+// ArrayList for long values, stored unboxed.
+public class LongArrayList {
+    private long[] arr;
+    private int size = 0;
+
+    private static final int DEFAULT_INITIAL_SIZE = 10;
+
+    public LongArrayList() {
+        this(DEFAULT_INITIAL_SIZE);
+    }
+
+    public LongArrayList(int initialCapacity) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+
+        arr = new long[initialCapacity];
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (arr.length < capacity)
+            arr = Arrays.copyOf(arr, ArrayList.grownCapacity(arr.length, capacity));
+    }
+
+    public void trimToSize() {
+        if (arr.length > size)
+            arr = Arrays.copyOf(arr, size);
+    }
+
+    public void add(long value) {
+        if (size == arr.length)
+            ensureCapacity(size + 1);
+        arr[size++] = value;
+    }
+
+    public void add(int index, long value) {
+        if (index > size || index < 0)
+            throw new IndexOutOfBoundsException();
+
+        ensureCapacity(size + 1);
+        System.arraycopy(arr, index, arr, index + 1, size - index);
+        arr[index] = value;
+        size++;
+    }
+
+    public void addAll(LongArrayList values) {
+        addAll(values.arr, 0, values.size);
+    }
+
+    public void addAll(long[] values, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, values.length);
+        ensureCapacity(size + length);
+        System.arraycopy(values, offset, arr, size, length);
+        size += length;
+    }
+
+    public long set(int index, long value) {
+        if (index >= size || index < 0)
+            throw new IndexOutOfBoundsException();
+
+        long previousValue = arr[index];
+        arr[index] = value;
+        return previousValue;
+    }
+
+    public long get(int index) {
+        if (index >= size || index < 0)
+            throw new IndexOutOfBoundsException();
+
+        return arr[index];
+    }
+
+    public long remove(int index) {
+        if (index >= size || index < 0)
+            throw new IndexOutOfBoundsException();
+
+        long removedValue = arr[index];
+        System.arraycopy(arr, index + 1, arr, index, size - index - 1);
+        size--;
+        return removedValue;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int indexOf(long value) {
+        for (int i = 0; i < size; i++) {
+            if (arr[i] == value)
+                return i;
+        }
+        return -1;
+    }
+
+    public boolean contains(long value) {
+        return indexOf(value) > -1;
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(arr, size);
+    }
+}
@@ -0,0 +1,265 @@
+package algorithms.huffman;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// An LZ77 stage in front of Huffman coding, laid out the way Deflate does it: repeated strings found by
+// Lz77MatchFinder become (length, distance) pairs, and one table codes literals and match lengths together
+// while a second one codes distances. Lengths and distances are sent as a code for their range followed by
+// extra bits for the offset within it; lengths use Deflate's ranges and distances extend Deflate's scheme of
+// two codes per power of two up to the largest window.
+//
+// Token statistics only exist once a block has been parsed, so unlike the other coders every block carries
+// its own two codes, the way Deflate's dynamic blocks do; the container model only holds the window and level.
+// Matches never reach into an earlier block, so blocks still decode on their own.
+public class Lz77HuffmanEntropyCoder implements EntropyCoder {
+    // Deflate's length ranges: code c covers LENGTH_BASES[c] up to the next base with LENGTH_EXTRA_BITS[c] extra
+    // bits, except that the longest match has a code of its own.
+    private static final int[] LENGTH_BASES = { 3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31, 35, 43, 51,
+            59, 67, 83, 99, 115, 131, 163, 195, 227, 258 };
+    private static final int[] LENGTH_EXTRA_BITS = { 0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 4,
+            4, 4, 4, 5, 5, 5, 5, 0 };
+    private static final int LENGTH_CODE_COUNT = LENGTH_BASES.length;
+    private static final int DISTANCE_CODE_COUNT = 2 * Lz77MatchFinder.MAX_WINDOW_BITS;
+    // Length code of every match length, indexed by length.
+    private static final int[] LENGTH_CODES = new int[Lz77MatchFinder.MAX_MATCH + 1];
+
+    static {
+        for (int code = 0; code < LENGTH_CODE_COUNT; code++) {
+            int end = code == LENGTH_CODE_COUNT - 1 ? LENGTH_BASES[code] + 1 : LENGTH_BASES[code + 1];
+            for (int length = LENGTH_BASES[code]; length < end; length++) {
+                LENGTH_CODES[length] = code;
+            }
+        }
+    }
+
+    private final HuffmanAlphabet alphabet;
+    private final Lz77MatchFinder matchFinder;
+
+    public Lz77HuffmanEntropyCoder(HuffmanAlphabet alphabet) {
+        this(alphabet, new Lz77MatchFinder());
+    }
+
+    public Lz77HuffmanEntropyCoder(HuffmanAlphabet alphabet, Lz77MatchFinder matchFinder) {
+        this.alphabet = alphabet;
+        this.matchFinder = matchFinder;
+    }
+
+    public Lz77MatchFinder getMatchFinder() {
+        return this.matchFinder;
+    }
+
+    @Override
+    public EntropyCoderType getType() {
+        return EntropyCoderType.LZ77;
+    }
+
+    @Override
+    public HuffmanAlphabet getAlphabet() {
+        return this.alphabet;
+    }
+
+    // Every block gets its own codes, so any symbol of the alphabet can be coded.
+    @Override
+    public boolean canEncode(int symbol) {
+        return symbol >= 0 && symbol < alphabet.getSymbolLimit();
+    }
+
+    // Distance d > 4 falls in range 2 * b + ((d - 1) >>> (b - 1) & 1), where b is the position of the highest bit
+    // of d - 1, and distances 1 to 4 have a range each, as in Deflate.
+    private static int distanceCode(int distance) {
+        int value = distance - 1;
+        if (value < 4)
+            return value;
+        int highestBit = 31 - Integer.numberOfLeadingZeros(value);
+        return 2 * highestBit + (value >>> (highestBit - 1) & 1);
+    }
+
+    private static int distanceExtraBits(int code) {
+        return code < 4 ? 0 : code / 2 - 1;
+    }
+
+    private static int distanceBase(int code) {
+        if (code < 4)
+            return code + 1;
+        int extraBits = code / 2 - 1;
+        return ((2 | code & 1) << extraBits) + 1;
+    }
+
+    // Payload: the first length symbol (varint), literal/length code and distance code as written by
+    // HuffmanContainer.writeCode, then the tokens as packed bits. A literal is its own symbol in the literal/length
+    // code and a match is the first length symbol + its length code with the extra length bits, followed by its
+    // distance code with the extra distance bits. Length symbols follow the block's largest literal rather than
+    // the alphabet, so the tables of a block are sized by what it holds.
+    @Override
+    public byte[] encode(int[] symbols, int offset, int length) throws IllegalArgumentException {
+        // Every symbol of a match was a literal first, so the largest symbol of the block is a literal.
+        int lengthBase = 0;
+        for (int i = offset; i < offset + length; i++) {
+            if (!canEncode(symbols[i]))
+                throw new IllegalArgumentException("Symbol out of range: " + symbols[i]);
+            lengthBase = Math.max(lengthBase, symbols[i] + 1);
+        }
+
+        IntArrayList matches = new IntArrayList();
+        matchFinder.findMatches(symbols, offset, length, matches);
+
+        FrequencyTable literalLengthFrequencies = new FrequencyTable(Math.min(lengthBase + LENGTH_CODE_COUNT,
+                FrequencyTable.DEFAULT_DENSE_LIMIT));
+        FrequencyTable distanceFrequencies = new FrequencyTable(DISTANCE_CODE_COUNT);
+        int position = 0;
+        for (int i = 0; i < matches.size(); i += 3) {
+            int start = matches.get(i);
+            literalLengthFrequencies.addAll(symbols, offset + position, start - position);
+            literalLengthFrequencies.increment(lengthBase + LENGTH_CODES[matches.get(i + 1)]);
+            distanceFrequencies.increment(distanceCode(matches.get(i + 2)));
+            position = start + matches.get(i + 1);
+        }
+        literalLengthFrequencies.addAll(symbols, offset + position, length - position);
+
+        CanonicalHuffmanCode literalLengthCode = buildCode(literalLengthFrequencies);
+        CanonicalHuffmanCode distanceCode = buildCode(distanceFrequencies);
+        HuffmanCodeTable literalLengthTable = literalLengthCode.toCodeTable();
+        HuffmanCodeTable distanceTable = distanceCode.toCodeTable();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(length / 3 + 64);
+        try {
+            DataOutputStream dataOutputStream = new DataOutputStream(output);
+            HuffmanContainer.writeVarInt(dataOutputStream, lengthBase);
+            HuffmanContainer.writeCode(dataOutputStream, literalLengthCode);
+            HuffmanContainer.writeCode(dataOutputStream, distanceCode);
+            dataOutputStream.flush();
+
+            BitWriter bitWriter = new BitWriter(output);
+            position = 0;
+            for (int i = 0; i < matches.size(); i += 3) {
+                int start = matches.get(i);
+                writeLiterals(bitWriter, literalLengthTable, symbols, offset + position, start - position);
+
+                int matchLength = matches.get(i + 1);
+                int lengthCode = LENGTH_CODES[matchLength];
+                int lengthSymbol = lengthBase + lengthCode;
+                bitWriter.writeBits(literalLengthTable.getCode(lengthSymbol),
+                        literalLengthTable.getLength(lengthSymbol));
+                bitWriter.writeBits(matchLength - LENGTH_BASES[lengthCode], LENGTH_EXTRA_BITS[lengthCode]);
+
+                int distance = matches.get(i + 2);
+                int code = distanceCode(distance);
+                bitWriter.writeBits(distanceTable.getCode(code), distanceTable.getLength(code));
+                bitWriter.writeBits(distance - distanceBase(code), distanceExtraBits(code));
+                position = start + matchLength;
+            }
+            writeLiterals(bitWriter, literalLengthTable, symbols, offset + position, length - position);
+            bitWriter.flush();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return output.toByteArray();
+    }
+
+    private static CanonicalHuffmanCode buildCode(FrequencyTable frequencyTable) {
+        if (frequencyTable.getDistinctSymbolCount() == 0)
+            return new CanonicalHuffmanCode(new int[0], new int[0]);
+        return HuffmanCodingTree.build(frequencyTable).toCanonicalCode();
+    }
+
+    private static void writeLiterals(BitWriter bitWriter, HuffmanCodeTable codeTable, int[] symbols, int offset,
+            int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            bitWriter.writeBits(codeTable.getCode(symbols[i]), codeTable.getLength(symbols[i]));
+        }
+    }
+
+    // The length base and two codes of at most 64 code lengths each and a varint per symbol, then at most 64 bits
+    // per symbol: a literal takes one code of up to 64 bits, and a match of at least MIN_MATCH symbols two codes
+    // and their extra bits, under 160 bits in all.
+    @Override
+    public long maxPayloadSize(int length) {
+        long codedSymbols = Math.min(length, alphabet.getSymbolLimit()) + LENGTH_CODE_COUNT + DISTANCE_CODE_COUNT;
+        return 5 + 2 * (5 + 64 * 5) + 5 * codedSymbols + 8L * length;
+    }
+
+    @Override
+    public void decode(byte[] payload, int[] output, int offset, int length) throws IllegalArgumentException {
+        int symbolLimit = alphabet.getSymbolLimit();
+        ByteArrayInputStream input = new ByteArrayInputStream(payload);
+
+        try {
+            DataInputStream dataInputStream = new DataInputStream(input);
+            int lengthBase = HuffmanContainer.readVarInt(dataInputStream);
+            if (lengthBase < 0 || lengthBase > symbolLimit)
+                throw new IOException("bad length symbol: " + lengthBase);
+            CanonicalHuffmanCode literalLengthCode = HuffmanContainer.readCode(dataInputStream,
+                    lengthBase + LENGTH_CODE_COUNT);
+            CanonicalHuffmanCode distanceCode = HuffmanContainer.readCode(dataInputStream, DISTANCE_CODE_COUNT);
+            HuffmanDecodeTable literalLengthTable = new HuffmanDecodeTable(literalLengthCode.toCodeTable());
+            HuffmanDecodeTable distanceTable = new HuffmanDecodeTable(distanceCode.toCodeTable(),
+                    HuffmanDecodeTable.MIN_LOOKAHEAD_BITS);
+
+            long endBit = 8L * input.available();
+            BitReader bitReader = new BitReader(input);
+            int position = offset;
+            int end = offset + length;
+            while (position < end) {
+                int symbol = literalLengthTable.decodeSymbol(bitReader, endBit);
+                if (symbol == -1)
+                    throw new IllegalArgumentException("Did not find a matching symbol at bit "
+                            + bitReader.getBitCount() + ".");
+                if (symbol < lengthBase) {
+                    output[position++] = symbol;
+                    continue;
+                }
+
+                int lengthCode = symbol - lengthBase;
+                int matchLength = LENGTH_BASES[lengthCode] + (int) readExtraBits(bitReader, endBit,
+                        LENGTH_EXTRA_BITS[lengthCode]);
+                int code = distanceTable.decodeSymbol(bitReader, endBit);
+                if (code == -1)
+                    throw new IllegalArgumentException("Did not find a matching distance at bit "
+                            + bitReader.getBitCount() + ".");
+                int distance = distanceBase(code) + (int) readExtraBits(bitReader, endBit, distanceExtraBits(code));
+                if (distance > position - offset || matchLength > end - position)
+                    throw new IllegalArgumentException("Match at symbol " + (position - offset)
+                            + " reaches outside the block.");
+
+                // Copied one symbol at a time, since a match may overlap the symbols it produces.
+                for (int from = position - distance; matchLength > 0; matchLength--) {
+                    output[position++] = output[from++];
+                }
+            }
+
+            if ((bitReader.getBitCount() + 7) / 8 != endBit / 8)
+                throw new IllegalArgumentException("Block does not decode to " + length + " symbols.");
+        } catch (IOException exception) {
+            throw new IllegalArgumentException("Corrupt block: " + exception.getMessage());
+        }
+    }
+
+    private static long readExtraBits(BitReader bitReader, long endBit, int length) throws IOException {
+        if (bitReader.getBitCount() + length > endBit)
+            throw new IOException("unexpected end of block.");
+        return bitReader.readBits(length);
+    }
+
+    // Model: window bits (byte), level (byte).
+    @Override
+    public void writeModel(DataOutputStream outputStream) throws IOException {
+        outputStream.writeByte(matchFinder.getWindowBits());
+        outputStream.writeByte(matchFinder.getLevel());
+    }
+
+    static Lz77HuffmanEntropyCoder readModel(DataInputStream inputStream, HuffmanAlphabet alphabet)
+            throws IOException {
+        int windowBits = inputStream.readUnsignedByte();
+        int level = inputStream.readUnsignedByte();
+        try {
+            return new Lz77HuffmanEntropyCoder(alphabet, new Lz77MatchFinder(windowBits, level));
+        } catch (IllegalArgumentException exception) {
+            throw new IOException("Corrupt LZ77 model: " + exception.getMessage());
+        }
+    }
+}
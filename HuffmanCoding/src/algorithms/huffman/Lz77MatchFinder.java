@@ -0,0 +1,214 @@
+package algorithms.huffman;
+
+import java.util.Arrays;
+
+// Finds repeated strings for the LZ77 stage with hash chains, as zlib does: every position is hashed by its
+// next MIN_MATCH symbols, head holds the latest position per hash and prev links each position to the previous
+// one with the same hash, within a window of the last windowSize positions. Levels trade speed for ratio the
+// way zlib's do, through how many chain links are followed and whether a match is held back for one position
+// in case the next one starts a longer match (lazy matching, from level LAZY_LEVEL up).
+//
+// A finder only holds its settings, so one instance can serve many threads.
+public class Lz77MatchFinder {
+    public static final int MIN_MATCH = 3;
+    public static final int MAX_MATCH = 258;
+    public static final int MIN_WINDOW_BITS = 8;
+    public static final int MAX_WINDOW_BITS = 24;
+    public static final int DEFAULT_WINDOW_BITS = 15;
+    public static final int MIN_LEVEL = 1;
+    public static final int MAX_LEVEL = 9;
+    public static final int DEFAULT_LEVEL = 6;
+
+    private static final int LAZY_LEVEL = 4;
+    private static final int HASH_BITS = 16;
+    private static final int NONE = -1;
+    // A minimal match this far back costs more bits than its literals.
+    private static final int TOO_FAR = 4096;
+
+    // Per level, as in zlib: a previous match at least this long cuts the chain search to a quarter; matches up
+    // to this length are held back (lazy levels) or have all their positions inserted (greedy levels); a match
+    // this long ends the search; the number of chain links followed.
+    private static final int[] GOOD_LENGTHS = { 4, 4, 4, 4, 8, 8, 8, 32, 32 };
+    private static final int[] LAZY_LENGTHS = { 4, 5, 6, 4, 16, 16, 32, 128, 258 };
+    private static final int[] NICE_LENGTHS = { 8, 16, 32, 16, 32, 128, 128, 258, 258 };
+    private static final int[] CHAIN_LENGTHS = { 4, 8, 32, 16, 32, 128, 256, 1024, 4096 };
+
+    private final int windowBits;
+    private final int level;
+
+    public Lz77MatchFinder() {
+        this(DEFAULT_WINDOW_BITS, DEFAULT_LEVEL);
+    }
+
+    public Lz77MatchFinder(int windowBits, int level) {
+        if (windowBits < MIN_WINDOW_BITS || windowBits > MAX_WINDOW_BITS)
+            throw new IllegalArgumentException("Window must be between " + MIN_WINDOW_BITS + " and "
+                    + MAX_WINDOW_BITS + " bits: " + windowBits);
+        if (level < MIN_LEVEL || level > MAX_LEVEL)
+            throw new IllegalArgumentException("Level must be between " + MIN_LEVEL + " and " + MAX_LEVEL + ": "
+                    + level);
+
+        this.windowBits = windowBits;
+        this.level = level;
+    }
+
+    public int getWindowBits() {
+        return this.windowBits;
+    }
+
+    // Matches reach back at most this many symbols less one.
+    public int getWindowSize() {
+        return 1 << this.windowBits;
+    }
+
+    public int getLevel() {
+        return this.level;
+    }
+
+    // Appends the matches found in symbols [offset, offset + length) to matches, as (start, length, distance)
+    // triples in ascending order of start, with start relative to offset. Everything between matches is left
+    // as literals. Matches never reach before offset, so blocks stay independent.
+    public void findMatches(int[] symbols, int offset, int length, IntArrayList matches) {
+        Chains chains = new Chains(symbols, offset, length);
+        int goodLength = GOOD_LENGTHS[level - 1];
+        int lazyLength = LAZY_LENGTHS[level - 1];
+        boolean lazy = level >= LAZY_LEVEL;
+
+        // A match found at position - 1 and held back to see whether position starts a longer one.
+        int heldLength = 0;
+        int heldDistance = 0;
+
+        int position = 0;
+        while (position < length) {
+            long match = 0;
+            if (position + MIN_MATCH <= length) {
+                int chainLength = heldLength >= goodLength ? CHAIN_LENGTHS[level - 1] >> 2 : CHAIN_LENGTHS[level - 1];
+                match = chains.longestMatch(position, Math.max(heldLength, MIN_MATCH - 1), chainLength);
+                chains.insert(position);
+            }
+            int matchLength = (int) match;
+            int matchDistance = (int) (match >>> 32);
+
+            if (heldLength > 0) {
+                if (matchLength > heldLength && heldLength < lazyLength) {
+                    // The held match gives way: its first symbol becomes a literal.
+                    heldLength = matchLength;
+                    heldDistance = matchDistance;
+                    position++;
+                    continue;
+                }
+                int start = position - 1;
+                add(matches, start, heldLength, heldDistance);
+                chains.insertRange(position + 1, start + heldLength);
+                position = start + heldLength;
+                heldLength = 0;
+                continue;
+            }
+
+            if (matchLength == 0) {
+                position++;
+            } else if (lazy && matchLength < lazyLength) {
+                heldLength = matchLength;
+                heldDistance = matchDistance;
+                position++;
+            } else {
+                add(matches, position, matchLength, matchDistance);
+                // Greedy levels skip inserting the inside of long matches, which is where most of their time goes.
+                if (lazy || matchLength <= lazyLength)
+                    chains.insertRange(position + 1, position + matchLength);
+                position += matchLength;
+            }
+        }
+
+        if (heldLength > 0)
+            add(matches, position - 1, heldLength, heldDistance);
+    }
+
+    private static void add(IntArrayList matches, int start, int length, int distance) {
+        matches.add(start);
+        matches.add(length);
+        matches.add(distance);
+    }
+
+    // The hash chains over one run of symbols. Positions are relative to the start of the run.
+    private class Chains {
+        private int[] symbols;
+        private int offset;
+        private int length;
+        private int windowMask;
+        private int[] head;
+        private int[] prev;
+
+        Chains(int[] symbols, int offset, int length) {
+            this.symbols = symbols;
+            this.offset = offset;
+            this.length = length;
+            // A window larger than the run would only leave part of prev unused.
+            int windowSize = 1 << windowBits;
+            while (windowSize > 1 && windowSize >> 1 >= length)
+                windowSize >>= 1;
+            windowMask = windowSize - 1;
+            head = new int[1 << HASH_BITS];
+            prev = new int[windowSize];
+            Arrays.fill(head, NONE);
+        }
+
+        private int hash(int position) {
+            int i = offset + position;
+            int h = symbols[i] * 0x9E3779B1;
+            h = (h ^ symbols[i + 1]) * 0x9E3779B1;
+            h = (h ^ symbols[i + 2]) * 0x9E3779B1;
+            return h >>> (32 - HASH_BITS);
+        }
+
+        void insert(int position) {
+            int h = hash(position);
+            prev[position & windowMask] = head[h];
+            head[h] = position;
+        }
+
+        // Inserts the positions in [from, to) that still have MIN_MATCH symbols ahead of them.
+        void insertRange(int from, int to) {
+            int end = Math.min(to, length - MIN_MATCH + 1);
+            for (int position = from; position < end; position++) {
+                insert(position);
+            }
+        }
+
+        // Returns the longest match for position that is longer than minLength, packed as distance << 32 |
+        // length, or 0 if there is none. Must be called before position itself is inserted.
+        long longestMatch(int position, int minLength, int chainLength) {
+            int niceLength = NICE_LENGTHS[level - 1];
+            int maxLength = Math.min(MAX_MATCH, length - position);
+            if (minLength >= maxLength)
+                return 0;
+            int windowStart = position - windowMask;
+            int bestLength = minLength;
+            int bestDistance = 0;
+            int current = offset + position;
+
+            int candidate = head[hash(position)];
+            while (candidate >= windowStart && candidate >= 0 && chainLength-- > 0) {
+                int previous = offset + candidate;
+                // The symbol that would make this candidate the best one is the cheapest to check first.
+                if (symbols[previous + bestLength] == symbols[current + bestLength]
+                        && symbols[previous] == symbols[current]) {
+                    int matchLength = 1;
+                    while (matchLength < maxLength && symbols[previous + matchLength] == symbols[current + matchLength])
+                        matchLength++;
+                    if (matchLength > bestLength) {
+                        bestLength = matchLength;
+                        bestDistance = position - candidate;
+                        if (matchLength >= niceLength || matchLength == maxLength)
+                            break;
+                    }
+                }
+                candidate = prev[candidate & windowMask];
+            }
+
+            if (bestDistance == 0 || bestLength == MIN_MATCH && bestDistance > TOO_FAR)
+                return 0;
+            return (long) bestDistance << 32 | bestLength;
+        }
+    }
+}
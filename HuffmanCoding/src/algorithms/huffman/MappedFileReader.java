@@ -0,0 +1,112 @@
+package algorithms.huffman;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+
+// Decodes a file straight out of memory-mapped windows, so no bytes are copied onto the heap before
+// decoding. Files larger than one window (and than 2 GB, the limit of a single mapping) are mapped window
+// by window; a character cut by the end of a window is picked up again at the start of the next one.
+public class MappedFileReader extends Reader {
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private static final int NONE = -1;
+
+    private FileChannel channel;
+    private long fileSize;
+    private int windowSize;
+    private long windowStart;
+    private MappedByteBuffer window;
+    private CharsetDecoder decoder;
+    private boolean endOfInput;
+    // The low surrogate of a pair whose high surrogate filled the last char of a read, or NONE.
+    private int pendingCharacter = NONE;
+
+    public MappedFileReader(File file, Charset charset) throws IOException {
+        this(file, charset, DEFAULT_WINDOW_SIZE);
+    }
+
+    public MappedFileReader(File file, Charset charset, int windowSize) throws IOException {
+        if (windowSize < 16)
+            throw new IllegalArgumentException("Illegal window size: " + windowSize);
+
+        this.windowSize = windowSize;
+        decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            fileSize = channel.size();
+            mapWindow(0);
+        } catch (IOException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    private void mapWindow(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, fileSize - start));
+    }
+
+    private boolean isLastWindow() {
+        return windowStart + window.limit() == fileSize;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (channel == null)
+            throw new IOException("Reader is closed.");
+        if (length == 0)
+            return 0;
+
+        CharBuffer characters = CharBuffer.wrap(buffer, offset, length);
+        if (pendingCharacter != NONE) {
+            characters.put((char) pendingCharacter);
+            pendingCharacter = NONE;
+        }
+        while (!endOfInput && characters.hasRemaining()) {
+            boolean lastWindow = isLastWindow();
+            CoderResult result = decoder.decode(window, characters, lastWindow);
+            if (result.isOverflow()) {
+                // With a char of room left, only a surrogate pair overflows. Its high surrogate goes out now, so
+                // that a read of a single char always makes progress.
+                if (characters.remaining() == 1) {
+                    CharBuffer pair = CharBuffer.allocate(2);
+                    decoder.decode(window, pair, lastWindow);
+                    characters.put(pair.get(0));
+                    pendingCharacter = pair.get(1);
+                }
+                break;
+            }
+
+            if (lastWindow) {
+                if (decoder.flush(characters).isOverflow())
+                    break;
+                endOfInput = true;
+                break;
+            }
+            mapWindow(windowStart + window.position());
+        }
+
+        int charactersRead = characters.position() - offset;
+        return charactersRead == 0 && endOfInput ? -1 : charactersRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+            window = null;
+        }
+    }
+}
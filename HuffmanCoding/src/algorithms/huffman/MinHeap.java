@@ -0,0 +1,177 @@
+package algorithms.huffman;
+
+import java.util.Comparator;
+
+// An array-backed d-ary min-heap, ordered by the elements' natural order or by a comparator.
+public class MinHeap<E> {
+    private static final int DEFAULT_ARITY = 4;
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    private int arity;
+    // Null for the natural order.
+    private Comparator<? super E> comparator;
+    private Object[] elements;
+    // Insertion order of each element, used to break ties the way PriorityQueue does:
+    // elements that compareTo cannot order consistently come out first in, first out.
+    private long[] sequences;
+    private long nextSequence;
+    private int size;
+
+    public MinHeap() {
+        this(DEFAULT_ARITY);
+    }
+
+    public MinHeap(int arity) {
+        if (arity < 2)
+            throw new IllegalArgumentException("Illegal arity: " + arity);
+
+        this.arity = arity;
+        elements = new Object[DEFAULT_INITIAL_CAPACITY];
+        sequences = new long[DEFAULT_INITIAL_CAPACITY];
+    }
+
+    public MinHeap(E[] initialElements) {
+        this(initialElements, DEFAULT_ARITY);
+    }
+
+    // Builds the heap bottom-up in linear time; ties are broken as if the elements had been added in array order.
+    public MinHeap(E[] initialElements, int arity) {
+        this(initialElements, null, arity);
+    }
+
+    public MinHeap(E[] initialElements, Comparator<? super E> comparator) {
+        this(initialElements, comparator, DEFAULT_ARITY);
+    }
+
+    public MinHeap(E[] initialElements, Comparator<? super E> comparator, int arity) {
+        if (arity < 2)
+            throw new IllegalArgumentException("Illegal arity: " + arity);
+
+        this.arity = arity;
+        this.comparator = comparator;
+        size = initialElements.length;
+        elements = new Object[Math.max(size, DEFAULT_INITIAL_CAPACITY)];
+        sequences = new long[elements.length];
+        System.arraycopy(initialElements, 0, elements, 0, size);
+        for (int i = 0; i < size; i++) {
+            sequences[i] = nextSequence++;
+        }
+
+        for (int i = (size - 2) / arity; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    public boolean add(E newElement) {
+        if (size == elements.length) {
+            int newCapacity = elements.length * 2;
+            if (newCapacity < 0)
+                throw new ArithmeticException("Capacity overflow when attempting to increase MinHeap capacity.");
+
+            Object[] newElements = new Object[newCapacity];
+            long[] newSequences = new long[newCapacity];
+            System.arraycopy(elements, 0, newElements, 0, size);
+            System.arraycopy(sequences, 0, newSequences, 0, size);
+            elements = newElements;
+            sequences = newSequences;
+        }
+
+        elements[size] = newElement;
+        sequences[size] = nextSequence++;
+        siftUp(size);
+        size++;
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        return size == 0 ? null : (E) elements[0];
+    }
+
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        if (size == 0)
+            return null;
+
+        E element = (E) elements[0];
+        size--;
+        elements[0] = elements[size];
+        sequences[0] = sequences[size];
+        elements[size] = null;
+        if (size > 0)
+            siftDown(0);
+        return element;
+    }
+
+    public boolean contains(E element) {
+        for (int i = 0; i < size; i++) {
+            if (elements[i].equals(element))
+                return true;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // A comparator is taken to be consistent. The natural order is checked both ways, since compareTo may not be.
+    @SuppressWarnings("unchecked")
+    private boolean less(int i, int j) {
+        E a = (E) elements[i];
+        E b = (E) elements[j];
+        if (comparator != null) {
+            int comparison = comparator.compare(a, b);
+            return comparison != 0 ? comparison < 0 : sequences[i] < sequences[j];
+        }
+
+        int comparison = ((Comparable<? super E>) a).compareTo(b);
+        int reverseComparison = ((Comparable<? super E>) b).compareTo(a);
+
+        if (comparison < 0 && reverseComparison > 0)
+            return true;
+        if (comparison > 0 && reverseComparison < 0)
+            return false;
+        return sequences[i] < sequences[j];
+    }
+
+    private void swap(int i, int j) {
+        Object element = elements[i];
+        elements[i] = elements[j];
+        elements[j] = element;
+
+        long sequence = sequences[i];
+        sequences[i] = sequences[j];
+        sequences[j] = sequence;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / arity;
+            if (!less(index, parent))
+                return;
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int firstChild = index * arity + 1;
+            if (firstChild >= size)
+                return;
+
+            int smallest = firstChild;
+            int lastChild = Math.min(firstChild + arity, size);
+            for (int child = firstChild + 1; child < lastChild; child++) {
+                if (less(child, smallest))
+                    smallest = child;
+            }
+
+            if (!less(smallest, index))
+                return;
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package algorithms.huffman;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class ParallelFrequencyCounter {
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    // Each leaf task maps and counts a run of consecutive chunks into its own histogram, so only a
+    // few histograms per worker thread are ever allocated and merged.
+    private static final int LEAF_TASKS_PER_THREAD = 4;
+
+    private static final int BYTE_BUFFER_SIZE = 8192;
+
+    private FileChannel channel;
+    private HuffmanAlphabet alphabet;
+    private Charset charset;
+    private long[] chunkStarts;
+
+    private ParallelFrequencyCounter(FileChannel channel, HuffmanAlphabet alphabet, Charset charset, int chunkSize)
+            throws IOException {
+        this.channel = channel;
+        this.alphabet = alphabet;
+        this.charset = charset;
+
+        long fileSize = channel.size();
+        int chunkCount = (int) Math.max(1, (fileSize + chunkSize - 1) / chunkSize);
+        chunkStarts = new long[chunkCount + 1];
+        for (int i = 1; i < chunkCount; i++) {
+            chunkStarts[i] = alignToCharacterStart((long) i * chunkSize, fileSize);
+        }
+        chunkStarts[chunkCount] = fileSize;
+    }
+
+    // Splitting is only safe at offsets where a new character starts. Single-byte charsets can be cut
+    // anywhere, UTF-16 needs even offsets outside surrogate pairs and UTF-8 must not be cut before a
+    // continuation byte.
+    public static boolean supportsCharset(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.UTF_16BE)
+                || charset.equals(StandardCharsets.UTF_16LE) || isSingleByte(charset);
+    }
+
+    // Only an encoder tells the width of a charset, and decode-only charsets have none; those are left to the
+    // sequential count.
+    private static boolean isSingleByte(Charset charset) {
+        return charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1;
+    }
+
+    // Bytes can be split anywhere, and text wherever supportsCharset allows, since no split falls inside a
+    // character or a surrogate pair.
+    public static boolean supports(HuffmanAlphabet alphabet, Charset charset) {
+        return alphabet == HuffmanAlphabet.BYTE || supportsCharset(charset);
+    }
+
+    private long alignToCharacterStart(long offset, long fileSize) throws IOException {
+        if (alphabet == HuffmanAlphabet.BYTE)
+            return offset;
+        if (charset.equals(StandardCharsets.UTF_16BE) || charset.equals(StandardCharsets.UTF_16LE))
+            return alignToUtf16Start(offset & ~1L, fileSize);
+        if (!charset.equals(StandardCharsets.UTF_8))
+            return offset;
+
+        ByteBuffer lookahead = ByteBuffer.allocate(4);
+        channel.read(lookahead, offset);
+        for (int i = 0; i < lookahead.position(); i++) {
+            if ((lookahead.get(i) & 0xC0) != 0x80)
+                return offset + i;
+        }
+        return Math.min(offset + lookahead.position(), fileSize);
+    }
+
+    // A split right after a high surrogate would leave each half of the pair to decode as U+FFFD, so it moves on
+    // past the low surrogate.
+    private long alignToUtf16Start(long offset, long fileSize) throws IOException {
+        if (offset < 2 || offset + 2 > fileSize)
+            return offset;
+
+        ByteBuffer previous = ByteBuffer.allocate(2);
+        while (previous.hasRemaining()) {
+            if (channel.read(previous, offset - 2 + previous.position()) < 0)
+                return offset;
+        }
+        int unit = charset.equals(StandardCharsets.UTF_16BE) ? (previous.get(0) & 0xFF) << 8 | previous.get(1) & 0xFF
+                : (previous.get(1) & 0xFF) << 8 | previous.get(0) & 0xFF;
+        return Character.isHighSurrogate((char) unit) ? offset + 2 : offset;
+    }
+
+    public static FrequencyTable count(File file, Charset charset) throws IOException {
+        return count(file, HuffmanAlphabet.CHAR, charset);
+    }
+
+    public static FrequencyTable count(File file, HuffmanAlphabet alphabet, Charset charset) throws IOException {
+        return count(file, alphabet, charset, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public static FrequencyTable count(File file, HuffmanAlphabet alphabet, Charset charset, ForkJoinPool pool,
+            int chunkSize) throws IOException {
+        if (!supports(alphabet, charset))
+            throw new IllegalArgumentException(
+                    "Cannot split " + alphabet + " symbols encoded in " + charset + " into chunks.");
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("Illegal chunk size: " + chunkSize);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ParallelFrequencyCounter counter = new ParallelFrequencyCounter(channel, alphabet, charset, chunkSize);
+            int chunkCount = counter.chunkStarts.length - 1;
+            int chunksPerLeaf = Math.max(1, chunkCount / (pool.getParallelism() * LEAF_TASKS_PER_THREAD));
+            try {
+                return pool.invoke(counter.new CountTask(0, chunkCount, chunksPerLeaf));
+            } catch (UncheckedIOException exception) {
+                throw exception.getCause();
+            }
+        }
+    }
+
+    private FrequencyTable countChunks(int firstChunk, int lastChunk) throws IOException {
+        if (alphabet == HuffmanAlphabet.BYTE)
+            return countByteChunks(firstChunk, lastChunk);
+
+        FrequencyTable frequencyTable = new FrequencyTable();
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer characters = null;
+
+        for (int chunk = firstChunk; chunk < lastChunk; chunk++) {
+            long start = chunkStarts[chunk];
+            int length = (int) (chunkStarts[chunk + 1] - start);
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            int maxCharacters = (int) Math.ceil(length * (double) decoder.maxCharsPerByte());
+            if (characters == null || characters.capacity() < maxCharacters)
+                characters = CharBuffer.allocate(maxCharacters);
+
+            characters.clear();
+            decoder.reset();
+            decoder.decode(bytes, characters, true);
+            decoder.flush(characters);
+            if (alphabet == HuffmanAlphabet.CHAR)
+                frequencyTable.addAll(characters.array(), 0, characters.position());
+            else
+                addCodePoints(frequencyTable, characters.array(), characters.position());
+        }
+
+        return frequencyTable;
+    }
+
+    // A chunk is decoded in one piece and chunks never start inside a surrogate pair, so pairs are only split
+    // where the input itself is broken.
+    private static void addCodePoints(FrequencyTable frequencyTable, char[] characters, int length) {
+        int i = 0;
+        while (i < length) {
+            char character = characters[i];
+            if (Character.isHighSurrogate(character) && i + 1 < length && Character.isLowSurrogate(characters[i + 1])) {
+                frequencyTable.increment(Character.toCodePoint(character, characters[i + 1]));
+                i += 2;
+            } else {
+                frequencyTable.increment(character);
+                i++;
+            }
+        }
+    }
+
+    private FrequencyTable countByteChunks(int firstChunk, int lastChunk) throws IOException {
+        FrequencyTable frequencyTable = new FrequencyTable(0x100);
+        byte[] buffer = new byte[BYTE_BUFFER_SIZE];
+
+        for (int chunk = firstChunk; chunk < lastChunk; chunk++) {
+            long start = chunkStarts[chunk];
+            int length = (int) (chunkStarts[chunk + 1] - start);
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            while (bytes.hasRemaining()) {
+                int count = Math.min(buffer.length, bytes.remaining());
+                bytes.get(buffer, 0, count);
+                frequencyTable.addAll(buffer, 0, count);
+            }
+        }
+
+        return frequencyTable;
+    }
+
+    private class CountTask extends RecursiveTask<FrequencyTable> {
+        private static final long serialVersionUID = 1L;
+
+        private int firstChunk;
+        private int lastChunk;
+        private int chunksPerLeaf;
+
+        CountTask(int firstChunk, int lastChunk, int chunksPerLeaf) {
+            this.firstChunk = firstChunk;
+            this.lastChunk = lastChunk;
+            this.chunksPerLeaf = chunksPerLeaf;
+        }
+
+        @Override
+        protected FrequencyTable compute() {
+            if (lastChunk - firstChunk <= chunksPerLeaf) {
+                try {
+                    return countChunks(firstChunk, lastChunk);
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            }
+
+            int middle = (firstChunk + lastChunk) >>> 1;
+            CountTask left = new CountTask(firstChunk, middle, chunksPerLeaf);
+            CountTask right = new CountTask(middle, lastChunk, chunksPerLeaf);
+            left.fork();
+            FrequencyTable frequencyTable = right.compute();
+            frequencyTable.addAll(left.join());
+            return frequencyTable;
+        }
+    }
+}
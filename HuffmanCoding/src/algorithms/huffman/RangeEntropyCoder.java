@@ -0,0 +1,237 @@
+package algorithms.huffman;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+// Adaptive binary range coder, as in LZMA. The model is only the list of symbols: a symbol's index in it is
+// coded bit by bit down a binary tree, and every tree node keeps the probability of a 0 bit, which moves
+// towards each bit it codes. Probabilities start at one half in every block, so the coder learns each block's
+// statistics on its own and can spend far less than one bit on a near certain symbol, but it does a
+// multiplication per bit and is the slowest of the entropy coders.
+//
+// Layout of a payload: the range coder's bytes, 5 of them flushed at the end.
+public class RangeEntropyCoder implements EntropyCoder {
+    private static final int PROBABILITY_BITS = 11;
+    private static final int PROBABILITY_ONE = 1 << PROBABILITY_BITS;
+    private static final int ADAPTATION_SHIFT = 5;
+    private static final int TOP = 1 << 24;
+    private static final int FLUSH_BYTES = 5;
+
+    private final HuffmanAlphabet alphabet;
+    private final int[] symbols;
+    // Model index of every symbol, or -1; indexed by symbol.
+    private final int[] symbolIndices;
+    private final int treeDepth;
+
+    private RangeEntropyCoder(HuffmanAlphabet alphabet, int[] symbols) {
+        symbolIndices = new int[symbols.length == 0 ? 0 : symbols[symbols.length - 1] + 1];
+        Arrays.fill(symbolIndices, -1);
+        for (int i = 0; i < symbols.length; i++) {
+            if (symbols[i] >= alphabet.getSymbolLimit())
+                throw new IllegalArgumentException("Symbol " + symbols[i] + " is not part of the " + alphabet
+                        + " alphabet.");
+            symbolIndices[symbols[i]] = i;
+        }
+
+        this.alphabet = alphabet;
+        this.symbols = symbols;
+        treeDepth = symbols.length <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(symbols.length - 1);
+    }
+
+    public static RangeEntropyCoder fromFrequencies(FrequencyTable frequencyTable, HuffmanAlphabet alphabet) {
+        return new RangeEntropyCoder(alphabet, frequencyTable.getSymbols());
+    }
+
+    @Override
+    public EntropyCoderType getType() {
+        return EntropyCoderType.RANGE;
+    }
+
+    @Override
+    public HuffmanAlphabet getAlphabet() {
+        return this.alphabet;
+    }
+
+    @Override
+    public boolean canEncode(int symbol) {
+        return symbol >= 0 && symbol < symbolIndices.length && symbolIndices[symbol] >= 0;
+    }
+
+    @Override
+    public byte[] encode(int[] input, int offset, int length) throws IllegalArgumentException {
+        if (length == 0)
+            return new byte[0];
+
+        short[] probabilities = newProbabilities();
+        Encoder encoder = new Encoder(length / 2 + 16);
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            int symbol = input[i];
+            if (!canEncode(symbol))
+                throw new IllegalArgumentException("Did not find an encoding for symbol: " + symbol);
+
+            int index = symbolIndices[symbol];
+            int node = 1;
+            for (int bit = treeDepth - 1; bit >= 0; bit--) {
+                int value = index >>> bit & 1;
+                encoder.encodeBit(probabilities, node, value);
+                node = node << 1 | value;
+            }
+        }
+        return encoder.finish();
+    }
+
+    // Every coded bit shifts out at most one byte, and finishing shifts out FLUSH_BYTES more.
+    @Override
+    public long maxPayloadSize(int length) {
+        return length == 0 ? 0 : (long) length * treeDepth + FLUSH_BYTES;
+    }
+
+    @Override
+    public void decode(byte[] payload, int[] output, int offset, int length) throws IllegalArgumentException {
+        if (length == 0) {
+            if (payload.length != 0)
+                throw new IllegalArgumentException("Block does not decode to 0 symbols.");
+            return;
+        }
+        if (symbols.length == 0)
+            throw new IllegalArgumentException("Model has no symbols to decode.");
+
+        short[] probabilities = newProbabilities();
+        Decoder decoder = new Decoder(payload);
+        int end = offset + length;
+        int leafBase = 1 << treeDepth;
+        for (int i = offset; i < end; i++) {
+            int node = 1;
+            while (node < leafBase) {
+                node = node << 1 | decoder.decodeBit(probabilities, node);
+            }
+            int index = node - leafBase;
+            if (index >= symbols.length)
+                throw new IllegalArgumentException("Did not find a matching symbol for index " + index + ".");
+            output[i] = symbols[index];
+        }
+
+        if (decoder.position != payload.length)
+            throw new IllegalArgumentException("Block does not decode to " + length + " symbols.");
+    }
+
+    private short[] newProbabilities() {
+        short[] probabilities = new short[Math.max(1, 1 << treeDepth)];
+        Arrays.fill(probabilities, (short) (PROBABILITY_ONE / 2));
+        return probabilities;
+    }
+
+    // Model: symbols as written by HuffmanContainer.writeSymbols.
+    @Override
+    public void writeModel(DataOutputStream outputStream) throws IOException {
+        HuffmanContainer.writeSymbols(outputStream, symbols);
+    }
+
+    static RangeEntropyCoder readModel(DataInputStream inputStream, HuffmanAlphabet alphabet) throws IOException {
+        return new RangeEntropyCoder(alphabet, HuffmanContainer.readSymbols(inputStream, alphabet));
+    }
+
+    // low holds 33 bits: a carry out of the 32 bit window is propagated into the byte held back in cache and
+    // the run of 0xFF bytes after it, which are only written once no further carry can reach them.
+    private static class Encoder {
+        private byte[] buffer;
+        private int size;
+        private long low;
+        private int range = -1;
+        private int cache;
+        private long cacheSize = 1;
+
+        Encoder(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void encodeBit(short[] probabilities, int node, int bit) {
+            int probability = probabilities[node];
+            int bound = (range >>> PROBABILITY_BITS) * probability;
+            if (bit == 0) {
+                range = bound;
+                probabilities[node] = (short) (probability + ((PROBABILITY_ONE - probability) >>> ADAPTATION_SHIFT));
+            } else {
+                low += bound & 0xFFFFFFFFL;
+                range -= bound;
+                probabilities[node] = (short) (probability - (probability >>> ADAPTATION_SHIFT));
+            }
+            // Probabilities never drop below 31 / 2048, so one shift always brings range back above TOP.
+            if (Integer.compareUnsigned(range, TOP) < 0) {
+                range <<= 8;
+                shiftLow();
+            }
+        }
+
+        private void shiftLow() {
+            if (low < 0xFF000000L || low > 0xFFFFFFFFL) {
+                int carry = (int) (low >>> 32);
+                int pending = cache;
+                do {
+                    write(pending + carry);
+                    pending = 0xFF;
+                } while (--cacheSize != 0);
+                cache = (int) (low >>> 24) & 0xFF;
+            }
+            cacheSize++;
+            low = (low & 0x00FFFFFFL) << 8;
+        }
+
+        private void write(int value) {
+            if (size == buffer.length)
+                buffer = Arrays.copyOf(buffer, size * 2);
+            buffer[size++] = (byte) value;
+        }
+
+        byte[] finish() {
+            for (int i = 0; i < FLUSH_BYTES; i++) {
+                shiftLow();
+            }
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+
+    private static class Decoder {
+        private byte[] payload;
+        private int position;
+        private int range = -1;
+        private int code;
+
+        Decoder(byte[] payload) {
+            this.payload = payload;
+            for (int i = 0; i < FLUSH_BYTES; i++) {
+                code = code << 8 | readByte();
+            }
+        }
+
+        int decodeBit(short[] probabilities, int node) {
+            int probability = probabilities[node];
+            int bound = (range >>> PROBABILITY_BITS) * probability;
+            int bit;
+            if (Integer.compareUnsigned(code, bound) < 0) {
+                range = bound;
+                probabilities[node] = (short) (probability + ((PROBABILITY_ONE - probability) >>> ADAPTATION_SHIFT));
+                bit = 0;
+            } else {
+                code -= bound;
+                range -= bound;
+                probabilities[node] = (short) (probability - (probability >>> ADAPTATION_SHIFT));
+                bit = 1;
+            }
+            if (Integer.compareUnsigned(range, TOP) < 0) {
+                range <<= 8;
+                code = code << 8 | readByte();
+            }
+            return bit;
+        }
+
+        private int readByte() {
+            if (position == payload.length)
+                throw new IllegalArgumentException("Block ends before all symbols are decoded.");
+            return payload[position++] & 0xFF;
+        }
+    }
+}
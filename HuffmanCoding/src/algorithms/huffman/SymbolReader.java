@@ -0,0 +1,103 @@
+package algorithms.huffman;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+// Splits bytes or text into the symbols of an alphabet.
+class SymbolReader implements Closeable {
+    private static final int BUFFER_SIZE = 8192;
+
+    private HuffmanAlphabet alphabet;
+    private InputStream inputStream;
+    private Reader reader;
+    private byte[] bytes;
+    private char[] characters;
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+
+    SymbolReader(InputStream inputStream) {
+        this.alphabet = HuffmanAlphabet.BYTE;
+        this.inputStream = inputStream;
+        bytes = new byte[BUFFER_SIZE];
+    }
+
+    SymbolReader(Reader reader, HuffmanAlphabet alphabet) {
+        if (!alphabet.isText())
+            throw new IllegalArgumentException("Text cannot be read as " + alphabet + " symbols.");
+
+        this.alphabet = alphabet;
+        this.reader = reader;
+        characters = new char[BUFFER_SIZE];
+    }
+
+    HuffmanAlphabet getAlphabet() {
+        return this.alphabet;
+    }
+
+    // Reads up to length symbols and returns how many were read, or -1 at the end of the input.
+    int read(int[] symbols, int offset, int length) throws IOException {
+        if (length == 0)
+            return 0;
+
+        if (alphabet == HuffmanAlphabet.BYTE) {
+            int bytesRead = inputStream.read(bytes, 0, Math.min(length, bytes.length));
+            for (int i = 0; i < bytesRead; i++) {
+                symbols[offset + i] = bytes[i] & 0xFF;
+            }
+            return bytesRead;
+        }
+
+        if (alphabet == HuffmanAlphabet.CHAR) {
+            int charsRead = reader.read(characters, 0, Math.min(length, BUFFER_SIZE));
+            for (int i = 0; i < charsRead; i++) {
+                symbols[offset + i] = characters[i];
+            }
+            return charsRead;
+        }
+
+        return readCodePoints(symbols, offset, length);
+    }
+
+    // Characters [position, limit) are read but not yet returned; at least two are kept in view so that a
+    // surrogate pair is never split between reads.
+    private int readCodePoints(int[] symbols, int offset, int length) throws IOException {
+        int symbolCount = 0;
+        while (symbolCount < length) {
+            if (limit - position < 2 && !endOfInput) {
+                System.arraycopy(characters, position, characters, 0, limit - position);
+                limit -= position;
+                position = 0;
+                int charsRead = reader.read(characters, limit, characters.length - limit);
+                if (charsRead == -1)
+                    endOfInput = true;
+                else
+                    limit += charsRead;
+                continue;
+            }
+            if (position == limit)
+                break;
+
+            char character = characters[position];
+            if (Character.isHighSurrogate(character) && position + 1 < limit
+                    && Character.isLowSurrogate(characters[position + 1])) {
+                symbols[offset + symbolCount++] = Character.toCodePoint(character, characters[position + 1]);
+                position += 2;
+            } else {
+                symbols[offset + symbolCount++] = character;
+                position++;
+            }
+        }
+        return symbolCount == 0 && endOfInput ? -1 : symbolCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (inputStream != null)
+            inputStream.close();
+        else
+            reader.close();
+    }
+}
@@ -0,0 +1,78 @@
+package algorithms.huffman;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+// Turns symbols of an alphabet back into bytes or text.
+class SymbolWriter implements Closeable, Flushable {
+    private static final int BUFFER_SIZE = 8192;
+
+    private HuffmanAlphabet alphabet;
+    private OutputStream outputStream;
+    private Writer writer;
+    private byte[] bytes;
+    private char[] characters;
+
+    SymbolWriter(OutputStream outputStream) {
+        this.alphabet = HuffmanAlphabet.BYTE;
+        this.outputStream = outputStream;
+        bytes = new byte[BUFFER_SIZE];
+    }
+
+    SymbolWriter(Writer writer, HuffmanAlphabet alphabet) {
+        if (!alphabet.isText())
+            throw new IllegalArgumentException(alphabet + " symbols cannot be written as text.");
+
+        this.alphabet = alphabet;
+        this.writer = writer;
+        characters = new char[2 * BUFFER_SIZE];
+    }
+
+    HuffmanAlphabet getAlphabet() {
+        return this.alphabet;
+    }
+
+    void write(int[] symbols, int offset, int length) throws IOException {
+        int end = offset + length;
+        while (offset < end) {
+            int count = Math.min(end - offset, BUFFER_SIZE);
+            if (alphabet == HuffmanAlphabet.BYTE) {
+                for (int i = 0; i < count; i++) {
+                    bytes[i] = (byte) symbols[offset + i];
+                }
+                outputStream.write(bytes, 0, count);
+            } else if (alphabet == HuffmanAlphabet.CHAR) {
+                for (int i = 0; i < count; i++) {
+                    characters[i] = (char) symbols[offset + i];
+                }
+                writer.write(characters, 0, count);
+            } else {
+                int charCount = 0;
+                for (int i = 0; i < count; i++) {
+                    charCount += Character.toChars(symbols[offset + i], characters, charCount);
+                }
+                writer.write(characters, 0, charCount);
+            }
+            offset += count;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (outputStream != null)
+            outputStream.flush();
+        else
+            writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (outputStream != null)
+            outputStream.close();
+        else
+            writer.close();
+    }
+}
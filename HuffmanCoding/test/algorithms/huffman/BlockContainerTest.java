@@ -0,0 +1,202 @@
+package algorithms.huffman;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// Round trips through HuffmanBlockContainer, streamed and through the block index, and corrupt containers,
+// which must be rejected with an IOException or IllegalArgumentException.
+public class BlockContainerTest {
+    private static final int BLOCK_SIZE = 1000;
+    // Offset of the block size in the header: magic, version, alphabet id and entropy coder id come first.
+    private static final int BLOCK_SIZE_OFFSET = 7;
+    private static final int TRAILER_SIZE = 12;
+    private static final int FLIP_COUNT = 2000;
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(42);
+        for (int length : new int[] { 0, 1, BLOCK_SIZE - 1, BLOCK_SIZE, 10 * BLOCK_SIZE + 7 }) {
+            String text = Check.text(random, length);
+            for (int streamCount : new int[] { 1, InterleavedDecodeTable.STREAM_COUNT }) {
+                checkText(text, HuffmanAlphabet.CHAR, streamCount);
+                checkText(text, HuffmanAlphabet.CODE_POINT, streamCount);
+            }
+            checkBytes(Check.bytes(random, length));
+        }
+
+        byte[] container = compress(Check.text(random, 5 * BLOCK_SIZE), HuffmanAlphabet.CHAR, 1);
+        checkTruncated(container);
+        checkBlockSizes(container);
+        checkPayloadLengths(container);
+        checkFlippedBits(container, random);
+        Check.passed("BlockContainerTest");
+    }
+
+    private static HuffmanCodec train(int[] symbols, HuffmanAlphabet alphabet) {
+        FrequencyTable frequencyTable = new FrequencyTable();
+        frequencyTable.addAll(symbols, 0, symbols.length);
+        // Empty inputs still need a code to compress against.
+        if (symbols.length == 0)
+            frequencyTable.increment('a');
+        return HuffmanCodec.fromFrequencies(frequencyTable, alphabet);
+    }
+
+    private static int[] symbols(String text, HuffmanAlphabet alphabet) {
+        if (alphabet == HuffmanAlphabet.CODE_POINT)
+            return text.codePoints().toArray();
+        return text.chars().toArray();
+    }
+
+    private static byte[] compress(String text, HuffmanAlphabet alphabet, int streamCount) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        HuffmanBlockContainer.compress(new StringReader(text), train(symbols(text, alphabet), alphabet), output,
+                BLOCK_SIZE, streamCount, ForkJoinPool.commonPool());
+        return output.toByteArray();
+    }
+
+    private static void checkText(String text, HuffmanAlphabet alphabet, int streamCount) throws Exception {
+        String description = alphabet + " with " + streamCount + " streams, " + text.length() + " chars";
+        byte[] container = compress(text, alphabet, streamCount);
+
+        StringWriter writer = new StringWriter();
+        HuffmanBlockContainer.decompress(new ByteArrayInputStream(container), writer);
+        Check.check(writer.toString().equals(text), description + ": streamed round trip");
+
+        String expected = new String(symbols(text, alphabet), 0, symbols(text, alphabet).length);
+        try (HuffmanBlockContainer blockContainer = HuffmanBlockContainer.open(write(container))) {
+            long length = blockContainer.getLength();
+            Check.check(length == symbols(text, alphabet).length, description + ": length");
+            Check.check(blockContainer.getBlockSize() == BLOCK_SIZE, description + ": block size");
+            Check.check(blockContainer.getBlockCount() == (length + BLOCK_SIZE - 1) / BLOCK_SIZE,
+                    description + ": block count");
+            Check.check(blockContainer.read(0, length).equals(expected), description + ": indexed round trip");
+            // Ranges within a block, across a block boundary and ending on one.
+            long[][] ranges = { { 0, 0 }, { 0, Math.min(length, 10) }, { length / 3, length / 2 },
+                    { Math.max(0, BLOCK_SIZE - 5), Math.min(length, BLOCK_SIZE + 5) },
+                    { Math.max(0, length - BLOCK_SIZE), length } };
+            for (long[] range : ranges) {
+                if (range[0] > range[1])
+                    continue;
+                String actual = blockContainer.read(range[0], range[1]);
+                String wanted = new String(symbols(text, alphabet), (int) range[0], (int) (range[1] - range[0]));
+                Check.check(actual.equals(wanted), description + ": range " + Arrays.toString(range));
+            }
+        }
+    }
+
+    private static void checkBytes(byte[] bytes) throws Exception {
+        int[] symbols = new int[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            symbols[i] = bytes[i] & 0xFF;
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        HuffmanBlockContainer.compress(new ByteArrayInputStream(bytes), train(symbols, HuffmanAlphabet.BYTE), output,
+                BLOCK_SIZE, ForkJoinPool.commonPool());
+        byte[] container = output.toByteArray();
+
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        HuffmanBlockContainer.decompress(new ByteArrayInputStream(container), decompressed);
+        Check.check(Arrays.equals(decompressed.toByteArray(), bytes), bytes.length + " bytes: streamed round trip");
+        try (HuffmanBlockContainer blockContainer = HuffmanBlockContainer.open(write(container))) {
+            Check.check(Arrays.equals(blockContainer.readBytes(0, bytes.length), bytes),
+                    bytes.length + " bytes: indexed round trip");
+        }
+        Check.rejects("bytes decompressed as text",
+                () -> HuffmanBlockContainer.decompress(new ByteArrayInputStream(container), new StringWriter()));
+    }
+
+    // Any cut before the end-of-blocks marker loses blocks and must fail streaming; any cut at all loses the
+    // trailer the index is found by.
+    private static void checkTruncated(byte[] container) throws Exception {
+        long indexOffset = ByteBuffer.wrap(container, container.length - TRAILER_SIZE, 8).getLong();
+        for (int length = 0; length < container.length; length++) {
+            byte[] truncated = Arrays.copyOf(container, length);
+            if (length < indexOffset) {
+                Check.rejects("streaming a container cut at " + length, () -> HuffmanBlockContainer
+                        .decompress(new ByteArrayInputStream(truncated), new StringWriter()));
+            }
+            Check.rejects("opening a container cut at " + length, () -> openAndRead(truncated));
+        }
+    }
+
+    // A header that claims smaller blocks than the container holds must fail both ways of reading it, before
+    // any block is decoded.
+    private static void checkBlockSizes(byte[] container) throws Exception {
+        byte[] smaller = container.clone();
+        ByteBuffer.wrap(smaller).putInt(BLOCK_SIZE_OFFSET, BLOCK_SIZE / 10);
+        Check.rejects("streaming blocks larger than the header's block size",
+                () -> HuffmanBlockContainer.decompress(new ByteArrayInputStream(smaller), new StringWriter()));
+        Check.rejects("indexing blocks larger than the header's block size", () -> openAndRead(smaller));
+
+        byte[] zero = container.clone();
+        ByteBuffer.wrap(zero).putInt(BLOCK_SIZE_OFFSET, 0);
+        Check.rejects("a block size of 0",
+                () -> HuffmanBlockContainer.decompress(new ByteArrayInputStream(zero), new StringWriter()));
+
+        // Blocks of this size would take 8 GB each, so the header alone must be refused.
+        byte[] huge = container.clone();
+        ByteBuffer.wrap(huge).putInt(BLOCK_SIZE_OFFSET, Integer.MAX_VALUE);
+        Check.rejects("a block size of Integer.MAX_VALUE",
+                () -> HuffmanBlockContainer.decompress(new ByteArrayInputStream(huge), new StringWriter()));
+        Check.rejects("indexing a block size of Integer.MAX_VALUE", () -> openAndRead(huge));
+        Check.rejects("compressing with too large a block size", () -> HuffmanBlockContainer.compress(
+                new StringReader("a"), train(new int[] { 'a' }, HuffmanAlphabet.CHAR), new ByteArrayOutputStream(),
+                HuffmanBlockContainer.MAX_BLOCK_SIZE + 1, ForkJoinPool.commonPool()));
+    }
+
+    // A payload bit length far beyond what the coder can produce for the block must be refused before the payload
+    // is allocated, in the block header as well as in the index.
+    private static void checkPayloadLengths(byte[] container) throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(container);
+        long indexOffset = buffer.getLong(container.length - TRAILER_SIZE);
+        int firstPayload = (int) buffer.getLong((int) indexOffset + 4);
+        for (long bitLength : new long[] { 0x3FFFFFFF0L, Long.MAX_VALUE, -1 }) {
+            byte[] streamed = container.clone();
+            ByteBuffer.wrap(streamed).putLong(firstPayload - 8, bitLength);
+            Check.rejects("streaming a payload of " + bitLength + " bits", () -> HuffmanBlockContainer
+                    .decompress(new ByteArrayInputStream(streamed), new StringWriter()));
+
+            byte[] indexed = container.clone();
+            ByteBuffer.wrap(indexed).putLong((int) indexOffset + 4 + 8, bitLength);
+            Check.rejects("indexing a payload of " + bitLength + " bits", () -> openAndRead(indexed));
+        }
+
+        // The header and the first block header alone, claiming a payload of 2 GB.
+        byte[] cut = Arrays.copyOf(container, firstPayload);
+        ByteBuffer.wrap(cut).putLong(firstPayload - 8, 0x3FFFFFFF0L);
+        Check.rejects("a cut container claiming a large payload",
+                () -> HuffmanBlockContainer.decompress(new ByteArrayInputStream(cut), new StringWriter()));
+    }
+
+    // A flipped bit may go unnoticed in a payload, but must never get the readers further than an IOException or
+    // IllegalArgumentException.
+    private static void checkFlippedBits(byte[] container, Random random) throws Exception {
+        for (int i = 0; i < FLIP_COUNT; i++) {
+            byte[] corrupt = container.clone();
+            corrupt[random.nextInt(corrupt.length)] ^= 1 << random.nextInt(8);
+            Check.failsCleanly("streaming a flipped bit",
+                    () -> HuffmanBlockContainer.decompress(new ByteArrayInputStream(corrupt), new StringWriter()));
+            Check.failsCleanly("indexing a flipped bit", () -> openAndRead(corrupt));
+        }
+    }
+
+    private static void openAndRead(byte[] container) throws Exception {
+        try (HuffmanBlockContainer blockContainer = HuffmanBlockContainer.open(write(container))) {
+            blockContainer.read(0, blockContainer.getLength());
+        }
+    }
+
+    private static File write(byte[] container) throws Exception {
+        File file = File.createTempFile("container-test", ".hufb");
+        file.deleteOnExit();
+        Files.write(file.toPath(), container);
+        return file;
+    }
+}
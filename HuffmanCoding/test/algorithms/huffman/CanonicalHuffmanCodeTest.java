@@ -0,0 +1,89 @@
+package algorithms.huffman;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+// CanonicalHuffmanCode accepts exactly the sets of code lengths whose Kraft sum, taken exactly, is at most one,
+// including sets that reach 64 bits, and builds prefix codes from them.
+public class CanonicalHuffmanCodeTest {
+    private static final int RANDOM_SETS = 3000;
+
+    public static void main(String[] args) {
+        Random random = new Random(4);
+        checkLengths(new int[] { 1 }, "a single code");
+        checkLengths(new int[] { 1, 1 }, "two codes of one bit");
+        checkLengths(new int[] { 1, 1, 1 }, "three codes of one bit");
+        checkLengths(new int[] { 1, 1, 64 }, "a 64-bit code after a complete code");
+        checkLengths(new int[] { 64, 64, 64 }, "three 64-bit codes");
+        int[] deepest = new int[65];
+        for (int i = 0; i < 64; i++) {
+            deepest[i] = Math.min(64, i + 1);
+        }
+        deepest[64] = 64;
+        checkLengths(deepest, "a complete code down to 64 bits");
+        int[] overfull = new int[66];
+        System.arraycopy(deepest, 0, overfull, 0, deepest.length);
+        overfull[65] = 64;
+        checkLengths(overfull, "one 64-bit code more than fits");
+
+        for (int i = 0; i < RANDOM_SETS; i++) {
+            checkLengths(randomLengths(random), "random set " + i);
+        }
+        Check.rejects("a code length of 0", () -> new CanonicalHuffmanCode(new int[] { 0 }, new int[] { 0 }));
+        Check.rejects("a code length of 65", () -> new CanonicalHuffmanCode(new int[] { 0 }, new int[] { 65 }));
+        Check.passed("CanonicalHuffmanCodeTest");
+    }
+
+    // A complete code grown by splitting random leaves down to as much as 64 bits, then left alone, given one code
+    // more or given one code a bit shorter, which puts it just on either side of the Kraft inequality.
+    private static int[] randomLengths(Random random) {
+        int maxLength = 1 + random.nextInt(64);
+        IntArrayList lengths = new IntArrayList();
+        lengths.add(0);
+        int splits = 1 + random.nextInt(100);
+        for (int i = 0; i < splits; i++) {
+            int leaf = random.nextInt(lengths.size());
+            // Mostly the deepest leaf, so that codes reach maxLength.
+            if (random.nextBoolean())
+                leaf = lengths.size() - 1;
+            int length = lengths.get(leaf);
+            if (length == maxLength)
+                continue;
+            lengths.set(leaf, length + 1);
+            lengths.add(length + 1);
+        }
+        if (lengths.get(0) == 0)
+            lengths.set(0, 1);
+
+        int change = random.nextInt(3);
+        if (change == 1)
+            lengths.add(1 + random.nextInt(maxLength));
+        int[] result = lengths.toArray();
+        if (change == 2) {
+            int index = random.nextInt(result.length);
+            result[index] = Math.max(1, result[index] - 1);
+        }
+        return result;
+    }
+
+    private static void checkLengths(int[] lengths, String description) {
+        BigInteger kraftSum = BigInteger.ZERO;
+        for (int length : lengths) {
+            kraftSum = kraftSum.add(BigInteger.ONE.shiftLeft(64 - length));
+        }
+        boolean valid = kraftSum.compareTo(BigInteger.ONE.shiftLeft(64)) <= 0;
+
+        int[] symbols = new int[lengths.length];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = symbols.length - 1 - i;
+        }
+        if (!valid) {
+            Check.rejects(description + ": over-subscribed", () -> new CanonicalHuffmanCode(symbols, lengths));
+            return;
+        }
+        // The decode table refuses code tables that are not prefix codes.
+        CanonicalHuffmanCode code = new CanonicalHuffmanCode(symbols, lengths);
+        new HuffmanDecodeTable(code.toCodeTable());
+        Check.check(code.getSymbolCount() == lengths.length, description + ": accepted");
+    }
+}
@@ -0,0 +1,143 @@
+package algorithms.huffman;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// Assertions and inputs shared by the tests in test/. Every test is a main program; the first failed check
+// throws an AssertionError, which ends it with a stack trace and a non-zero exit status.
+final class Check {
+    private static final String[] WORDS = { "the", "of", "and", "to", "a", "in", "is", "it", "that", "frog", "pond",
+            "silence", "Huffman", "caf\u00e9", "Stra\u00dfe", "na\u00efve", "\uD834\uDD1E", "\uD83D\uDE00", "\n",
+            ", ", ". " };
+    // Fills decoded symbols around and within a block before a corrupt payload is decoded into it; no symbol of any
+    // alphabet takes it.
+    private static final int GUARD = -1;
+
+    interface Action {
+        void run() throws Exception;
+    }
+
+    private static int checkCount;
+
+    private Check() {
+    }
+
+    static void check(boolean condition, String description) {
+        checkCount++;
+        if (!condition)
+            throw new AssertionError(description);
+    }
+
+    // Checks that action fails the way corrupt input is meant to fail: with an IOException or an
+    // IllegalArgumentException, and not with any other exception.
+    static void rejects(String description, Action action) {
+        check(failsCleanly(description, action), description + ": expected the input to be rejected");
+    }
+
+    // Returns whether action failed with an IOException or an IllegalArgumentException, and false if it completed.
+    // Any other exception fails the check, since corrupt input must never get further than that.
+    static boolean failsCleanly(String description, Action action) {
+        try {
+            action.run();
+            return false;
+        } catch (IOException | IllegalArgumentException exception) {
+            return true;
+        } catch (Exception exception) {
+            throw new AssertionError(description + ": unexpected " + exception, exception);
+        }
+    }
+
+    // Text of the given length in chars made of words, including accented letters and characters outside the
+    // Basic Multilingual Plane.
+    static String text(Random random, int length) {
+        if (length == 0)
+            return "";
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length) {
+            text.append(WORDS[Math.min(WORDS.length - 1, (int) (-Math.log(random.nextDouble()) * 4))]).append(' ');
+        }
+        // Never cut a surrogate pair in two.
+        int end = Character.isHighSurrogate(text.charAt(length - 1)) ? length - 1 : length;
+        return text.substring(0, end);
+    }
+
+    static byte[] bytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (random.nextGaussian() * 20);
+        }
+        return bytes;
+    }
+
+    // Encodes symbols [offset, offset + length), checks the payload against the coder's bound and checks that it
+    // decodes to the same symbols, into the middle of a larger array to catch coders that ignore the offset.
+    static void roundTrip(EntropyCoder coder, int[] symbols, int offset, int length, String description) {
+        byte[] payload = coder.encode(symbols, offset, length);
+        check(payload.length <= coder.maxPayloadSize(length), description + ": payload within the bound");
+        int[] decoded = new int[length + 6];
+        coder.decode(payload, decoded, 3, length);
+        check(Arrays.equals(decoded, 3, 3 + length, symbols, offset, offset + length), description + ": round trip");
+    }
+
+    // Every truncation of the payload of symbols [0, length), the payload with a byte too many and flipCount random
+    // bit flips in it. A flip may still decode, to other symbols, but nothing may get further than an
+    // IllegalArgumentException, and a decoder may neither write outside its block nor copy from outside it.
+    static void corruptPayloads(EntropyCoder coder, int[] symbols, int length, int flipCount, Random random,
+            String description) {
+        byte[] payload = coder.encode(symbols, 0, length);
+        for (int cut = 0; cut < payload.length; cut++) {
+            byte[] truncated = Arrays.copyOf(payload, cut);
+            rejects(description + ": payload cut at " + cut, () -> coder.decode(truncated, new int[length], 0, length));
+        }
+        rejects(description + ": payload with a byte too many",
+                () -> coder.decode(Arrays.copyOf(payload, payload.length + 1), new int[length], 0, length));
+        for (int i = 0; i < flipCount && payload.length > 0; i++) {
+            byte[] corrupt = payload.clone();
+            corrupt[random.nextInt(corrupt.length)] ^= 1 << random.nextInt(8);
+            failsCleanly(description + ": flipped payload bit", () -> {
+                int[] decoded = new int[length + 2];
+                Arrays.fill(decoded, GUARD);
+                coder.decode(corrupt, decoded, 1, length);
+                if (decoded[0] != GUARD || decoded[length + 1] != GUARD)
+                    throw new AssertionError(description + ": flipped payload bit: wrote outside the block");
+                for (int j = 1; j <= length; j++) {
+                    if (decoded[j] == GUARD)
+                        throw new AssertionError(description + ": flipped payload bit: symbol from outside the block");
+                }
+            });
+        }
+    }
+
+    // Compresses text with coder in blocks of blockSize, checks that it decompresses to the same text and returns
+    // the container.
+    static byte[] containerRoundTrip(String text, EntropyCoder coder, int blockSize, String description)
+            throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        HuffmanBlockContainer.compress(new StringReader(text), coder, output, blockSize, ForkJoinPool.commonPool());
+        StringWriter writer = new StringWriter();
+        HuffmanBlockContainer.decompress(new ByteArrayInputStream(output.toByteArray()), writer);
+        check(writer.toString().equals(text), description + ": container round trip");
+        return output.toByteArray();
+    }
+
+    static byte[] containerRoundTrip(byte[] bytes, EntropyCoder coder, int blockSize, String description)
+            throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        HuffmanBlockContainer.compress(new ByteArrayInputStream(bytes), coder, output, blockSize,
+                ForkJoinPool.commonPool());
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        HuffmanBlockContainer.decompress(new ByteArrayInputStream(output.toByteArray()), decompressed);
+        check(Arrays.equals(decompressed.toByteArray(), bytes), description + ": container round trip");
+        return output.toByteArray();
+    }
+
+    static void passed(String test) {
+        System.out.println(test + ": " + checkCount + " checks passed");
+    }
+}
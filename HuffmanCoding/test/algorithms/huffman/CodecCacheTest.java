@@ -0,0 +1,152 @@
+package algorithms.huffman;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+// CodecCache against an access-ordered LinkedHashMap as the reference LRU, and with a model directory: models
+// stored by one cache are loaded by another, and an unreadable model file is retrained instead of failing.
+public class CodecCacheTest {
+    private static final int OPERATION_COUNT = 20000;
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(15);
+        File directory = Files.createTempDirectory("cache-test").toFile();
+        try {
+            File file = write(directory, "corpus.txt", Check.text(random, 5000));
+            HuffmanCodec codec = HuffmanCodec.train(file, HuffmanAlphabet.CHAR, StandardCharsets.UTF_8);
+            checkEviction(codec);
+            for (int capacity : new int[] { 1, 4, 50 }) {
+                checkAgainstReference(codec, capacity, random);
+            }
+            checkDirectory(directory, file);
+            checkCorruptModels(directory, file, random);
+            checkKeys(directory, file, codec);
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+        Check.passed("CodecCacheTest");
+    }
+
+    private static void checkEviction(HuffmanCodec codec) throws Exception {
+        CodecCache cache = new CodecCache(3);
+        cache.put("a", codec);
+        cache.put("b", codec);
+        cache.put("c", codec);
+        Check.check(cache.get("a") == codec, "eviction: hit");
+        cache.put("d", codec);
+        Check.check(cache.get("b") == null, "eviction: least recently used entry evicted");
+        Check.check(cache.get("a") == codec && cache.get("c") == codec && cache.get("d") == codec,
+                "eviction: recently used entries kept");
+        Check.check(cache.size() == 3 && cache.getEvictionCount() == 1 && cache.getHitCount() == 4
+                && cache.getMissCount() == 1 && cache.getLoadCount() == 0, "eviction: counters");
+        cache.put("c", codec);
+        Check.check(cache.size() == 3 && cache.getEvictionCount() == 1, "eviction: put of a cached id");
+    }
+
+    // Random puts and gets over more ids than fit, so that entries are evicted from every position of their
+    // bucket chain.
+    private static void checkAgainstReference(HuffmanCodec codec, int capacity, Random random) throws Exception {
+        CodecCache cache = new CodecCache(capacity);
+        Map<String, Boolean> reference = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > capacity;
+            }
+        };
+        int evictionCount = 0;
+        for (int i = 0; i < OPERATION_COUNT; i++) {
+            String modelId = "model-" + random.nextInt(3 * capacity + 1);
+            if (random.nextBoolean()) {
+                if (reference.get(modelId) == null && reference.size() == capacity)
+                    evictionCount++;
+                reference.put(modelId, true);
+                cache.put(modelId, codec);
+                continue;
+            }
+            boolean cached = reference.get(modelId) != null;
+            if ((cache.get(modelId) != null) != cached)
+                Check.check(false, "capacity " + capacity + ": lookup " + i + " of " + modelId);
+        }
+        Check.check(cache.size() == reference.size() && cache.getEvictionCount() == evictionCount,
+                "capacity " + capacity + ": size and evictions");
+    }
+
+    private static void checkDirectory(File directory, File file) throws Exception {
+        CodecCache first = new CodecCache(2, directory);
+        HuffmanCodec trained = first.getOrTrain(file, StandardCharsets.UTF_8);
+        Check.check(first.getMissCount() == 1 && first.getOrTrain(file, StandardCharsets.UTF_8) == trained
+                && first.getHitCount() == 1, "directory: trained once");
+
+        CodecCache second = new CodecCache(2, directory);
+        HuffmanCodec loaded = second.getOrTrain(file, StandardCharsets.UTF_8);
+        Check.check(second.getLoadCount() == 1 && second.getMissCount() == 0 && sameCode(loaded, trained),
+                "directory: loaded by another cache");
+
+        // An evicted model comes back from the directory.
+        HuffmanCodec other = HuffmanCodec.train(file, HuffmanAlphabet.BYTE, StandardCharsets.UTF_8);
+        second.put("other-1", other);
+        second.put("other-2", other);
+        Check.check(sameCode(second.getOrTrain(file, StandardCharsets.UTF_8), trained)
+                && second.getLoadCount() == 2 && second.getMissCount() == 0, "directory: evicted model reloaded");
+    }
+
+    // A model file cut short or overwritten counts as a miss: the model is trained and stored again.
+    private static void checkCorruptModels(File directory, File file, Random random) throws Exception {
+        String modelId = CodecCache.contentHash(file, HuffmanAlphabet.CHAR, StandardCharsets.UTF_8);
+        File modelFile = new File(directory, modelId + ".huf");
+        byte[] model = Files.readAllBytes(modelFile.toPath());
+        HuffmanCodec expected = new CodecCache(1, directory).getOrTrain(file, StandardCharsets.UTF_8);
+
+        byte[][] corrupt = { new byte[0], Arrays.copyOf(model, 3), Arrays.copyOf(model, 5),
+                Arrays.copyOf(model, model.length / 2), Check.bytes(random, model.length) };
+        for (int i = 0; i < corrupt.length; i++) {
+            Files.write(modelFile.toPath(), corrupt[i]);
+            CodecCache cache = new CodecCache(1, directory);
+            HuffmanCodec codec = cache.getOrTrain(file, StandardCharsets.UTF_8);
+            Check.check(sameCode(codec, expected) && cache.getMissCount() == 1 && cache.getLoadCount() == 0,
+                    "corrupt model " + i + ": retrained");
+            Check.check(Arrays.equals(Files.readAllBytes(modelFile.toPath()), model),
+                    "corrupt model " + i + ": stored again");
+        }
+    }
+
+    private static void checkKeys(File directory, File file, HuffmanCodec codec) throws Exception {
+        String chars = CodecCache.contentHash(file, HuffmanAlphabet.CHAR, StandardCharsets.UTF_8);
+        Check.check(chars.equals(CodecCache.contentHash(file, HuffmanAlphabet.CHAR, StandardCharsets.UTF_8)),
+                "key: same content, same key");
+        Check.check(!chars.equals(CodecCache.contentHash(file, HuffmanAlphabet.CODE_POINT, StandardCharsets.UTF_8))
+                && !chars.equals(CodecCache.contentHash(file, HuffmanAlphabet.CHAR, StandardCharsets.UTF_16BE)),
+                "key: alphabet and charset in the key");
+        File copy = write(directory, "copy.txt", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        Check.check(chars.equals(CodecCache.contentHash(copy, HuffmanAlphabet.CHAR, StandardCharsets.UTF_8)),
+                "key: content, not file name");
+
+        CodecCache cache = new CodecCache(1, directory);
+        for (String modelId : new String[] { "", "../escape", "a/b", "a.b", "x".repeat(129) }) {
+            Check.rejects("model id '" + modelId + "'", () -> cache.put(modelId, codec));
+            Check.rejects("lookup of model id '" + modelId + "'", () -> cache.get(modelId));
+        }
+        Check.rejects("a capacity of 0", () -> new CodecCache(0));
+    }
+
+    private static boolean sameCode(HuffmanCodec codec, HuffmanCodec other) {
+        String text = "the frog in the silence of the pond";
+        return codec.getAlphabet() == other.getAlphabet() && codec.encode(text).equals(other.encode(text));
+    }
+
+    private static File write(File directory, String name, String text) throws Exception {
+        File file = new File(directory, name);
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,152 @@
+package algorithms.huffman;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+// ContextHuffmanEntropyCoder on text and on wide alphabets with up to MAX_CONTEXTS contexts, on pairs it was not
+// trained on, and with corrupt models and payloads.
+public class ContextCoderTest {
+    private static final int BLOCK_SIZE = 4096;
+    private static final int FLIP_COUNT = 500;
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(24);
+        String text = Check.text(random, 20000);
+        for (HuffmanAlphabet alphabet : new HuffmanAlphabet[] { HuffmanAlphabet.CHAR, HuffmanAlphabet.CODE_POINT }) {
+            int[] symbols = alphabet == HuffmanAlphabet.CHAR ? text.chars().toArray() : text.codePoints().toArray();
+            for (int maxContexts : new int[] { 0, 1, ContextHuffmanEntropyCoder.DEFAULT_MAX_CONTEXTS,
+                    ContextHuffmanEntropyCoder.MAX_CONTEXTS }) {
+                ContextHuffmanEntropyCoder coder = ContextHuffmanEntropyCoder.train(symbols, 0, symbols.length,
+                        alphabet, maxContexts);
+                String description = alphabet + " with at most " + maxContexts + " contexts";
+                Check.check(coder.getContextCount() <= maxContexts, description + ": context count");
+                Check.check(maxContexts == 0 || coder.getContextCount() > 0, description + ": contexts pay on text");
+                checkRoundTrip(coder, symbols, description);
+            }
+        }
+
+        int[] wide = wideSymbols(random, 200000, 6000);
+        ContextHuffmanEntropyCoder wideCoder = ContextHuffmanEntropyCoder.train(wide, 0, wide.length,
+                HuffmanAlphabet.CODE_POINT, ContextHuffmanEntropyCoder.MAX_CONTEXTS);
+        Check.check(wideCoder.getContextCount() > ContextHuffmanEntropyCoder.DEFAULT_MAX_CONTEXTS,
+                "wide alphabet: more contexts than the default");
+        checkRoundTrip(wideCoder, wide, "wide alphabet");
+        checkWidest();
+        checkUnseenPairs(wideCoder, wide);
+        // Every corrupt model with thousands of contexts builds thousands of tables, so it gets fewer of them.
+        checkModel(wideCoder, wide, random, FLIP_COUNT / 20, "wide alphabet");
+
+        ContextHuffmanEntropyCoder textCoder = ContextHuffmanEntropyCoder.train(text.chars().toArray(), 0,
+                text.length(), HuffmanAlphabet.CHAR, ContextHuffmanEntropyCoder.DEFAULT_MAX_CONTEXTS);
+        checkModel(textCoder, text.chars().toArray(), random, FLIP_COUNT, "text");
+        Check.corruptPayloads(textCoder, text.chars().toArray(), 1000, FLIP_COUNT, random, "text");
+        checkIllegal(text);
+        checkContainer(text);
+        Check.passed("ContextCoderTest");
+    }
+
+    // A first-order Markov source over distinct code points spread across the whole range: every symbol is mostly
+    // followed by one of a handful of others, so contexts pay for themselves.
+    private static int[] wideSymbols(Random random, int length, int distinct) {
+        int[] codePoints = new int[distinct];
+        for (int i = 0; i < distinct; i++) {
+            codePoints[i] = (int) ((long) i * Character.MAX_CODE_POINT / distinct);
+        }
+        int[] symbols = new int[length];
+        int index = 0;
+        for (int i = 0; i < length; i++) {
+            index = random.nextInt(8) == 0 ? random.nextInt(distinct) : (index * 31 + random.nextInt(4)) % distinct;
+            symbols[i] = codePoints[index];
+        }
+        return symbols;
+    }
+
+    // With more than Integer.MAX_VALUE / MAX_CONTEXTS distinct symbols, a pair key of every candidate context and
+    // symbol no longer fits an int, so training has to count fewer candidates instead of overflowing.
+    private static void checkWidest() {
+        int distinct = Integer.MAX_VALUE / ContextHuffmanEntropyCoder.MAX_CONTEXTS + 1000;
+        int[] symbols = new int[2 * distinct];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = i % distinct;
+        }
+        ContextHuffmanEntropyCoder coder = ContextHuffmanEntropyCoder.train(symbols, 0, symbols.length,
+                HuffmanAlphabet.CODE_POINT, ContextHuffmanEntropyCoder.MAX_CONTEXTS);
+        checkRoundTrip(coder, Arrays.copyOfRange(symbols, distinct - BLOCK_SIZE / 2, distinct + BLOCK_SIZE / 2),
+                distinct + " distinct symbols");
+    }
+
+    private static void checkRoundTrip(EntropyCoder coder, int[] symbols, String description) {
+        for (int offset = 0; offset < symbols.length; offset += BLOCK_SIZE) {
+            Check.roundTrip(coder, symbols, offset, Math.min(BLOCK_SIZE, symbols.length - offset),
+                    description + ", block at " + offset);
+        }
+    }
+
+    // Symbols the coder knows in pairs it never saw go through the escape and the order-0 code.
+    private static void checkUnseenPairs(EntropyCoder coder, int[] symbols) {
+        int[] reversed = new int[BLOCK_SIZE];
+        for (int i = 0; i < reversed.length; i++) {
+            reversed[i] = symbols[symbols.length - 1 - i];
+        }
+        int[] decoded = new int[reversed.length];
+        coder.decode(coder.encode(reversed, 0, reversed.length), decoded, 0, reversed.length);
+        Check.check(Arrays.equals(decoded, reversed), "unseen pairs: round trip");
+        Check.check(!coder.canEncode(1), "unseen symbol: cannot encode");
+        Check.rejects("unseen symbol: encoding", () -> coder.encode(new int[] { symbols[0], 1 }, 0, 2));
+    }
+
+    private static void checkModel(EntropyCoder coder, int[] symbols, Random random, int corruptCount,
+            String description) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        coder.writeModel(new DataOutputStream(output));
+        byte[] model = output.toByteArray();
+        int length = Math.min(BLOCK_SIZE, symbols.length);
+        byte[] payload = coder.encode(symbols, 0, length);
+
+        HuffmanAlphabet alphabet = coder.getAlphabet();
+        EntropyCoder read = readModel(model, alphabet);
+        int[] decoded = new int[length];
+        read.decode(payload, decoded, 0, length);
+        Check.check(Arrays.equals(decoded, 0, length, symbols, 0, length), description + ": model round trip");
+
+        // Every cut near both ends and corruptCount spread over the middle, where the context codes are.
+        int step = Math.max(1, model.length / corruptCount);
+        for (int cut = 0; cut < model.length; cut += cut < 64 || cut > model.length - 64 ? 1 : step) {
+            byte[] truncated = Arrays.copyOf(model, cut);
+            Check.rejects(description + ": model cut at " + cut, () -> readModel(truncated, alphabet));
+        }
+        for (int i = 0; i < corruptCount; i++) {
+            byte[] corrupt = model.clone();
+            corrupt[random.nextInt(corrupt.length)] ^= 1 << random.nextInt(8);
+            Check.failsCleanly(description + ": flipped model bit",
+                    () -> readModel(corrupt, alphabet).decode(payload, new int[length], 0, length));
+        }
+    }
+
+    private static EntropyCoder readModel(byte[] model, HuffmanAlphabet alphabet) throws Exception {
+        return EntropyCoderType.CONTEXT.readModel(new DataInputStream(new ByteArrayInputStream(model)), alphabet);
+    }
+
+    private static void checkIllegal(String text) {
+        int[] symbols = text.chars().toArray();
+        Check.rejects("-1 contexts", () -> ContextHuffmanEntropyCoder.train(symbols, 0, symbols.length,
+                HuffmanAlphabet.CHAR, -1));
+        Check.rejects(ContextHuffmanEntropyCoder.MAX_CONTEXTS + 1 + " contexts", () -> ContextHuffmanEntropyCoder
+                .train(symbols, 0, symbols.length, HuffmanAlphabet.CHAR, ContextHuffmanEntropyCoder.MAX_CONTEXTS + 1));
+
+        ContextHuffmanEntropyCoder empty = ContextHuffmanEntropyCoder.train(symbols, 0, 0, HuffmanAlphabet.CHAR,
+                ContextHuffmanEntropyCoder.DEFAULT_MAX_CONTEXTS);
+        Check.check(empty.getContextCount() == 0 && empty.encode(symbols, 0, 0).length == 0, "no symbols");
+    }
+
+    private static void checkContainer(String text) throws Exception {
+        int[] symbols = text.codePoints().toArray();
+        ContextHuffmanEntropyCoder coder = ContextHuffmanEntropyCoder.train(symbols, 0, symbols.length,
+                HuffmanAlphabet.CODE_POINT, ContextHuffmanEntropyCoder.MAX_CONTEXTS);
+        Check.containerRoundTrip(text, coder, BLOCK_SIZE, "CODE_POINT");
+    }
+}
@@ -0,0 +1,131 @@
+package algorithms.huffman;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Random;
+
+// Every entropy coder on every alphabet: blocks and models round trip on their own and inside a block container,
+// and corrupt payloads, models and coder ids are rejected with an IllegalArgumentException or IOException.
+public class EntropyCoderTest {
+    private static final int BLOCK_SIZE = 4096;
+    // Offset of the entropy coder id in a block container header: magic, version and alphabet id come first.
+    private static final int CODER_ID_OFFSET = 6;
+    private static final int FLIP_COUNT = 500;
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(7);
+        String text = Check.text(random, 3 * BLOCK_SIZE + 11);
+        byte[] bytes = Check.bytes(random, 3 * BLOCK_SIZE + 11);
+
+        for (EntropyCoderType type : EntropyCoderType.values()) {
+            Check.check(EntropyCoderType.fromId(type.getId()) == type, type + ": id");
+            for (HuffmanAlphabet alphabet : HuffmanAlphabet.values()) {
+                int[] symbols = alphabet == HuffmanAlphabet.BYTE ? toSymbols(bytes)
+                        : alphabet == HuffmanAlphabet.CHAR ? text.chars().toArray() : text.codePoints().toArray();
+                EntropyCoder coder = coder(type, symbols, alphabet);
+                String description = type + " on " + alphabet;
+                checkBlocks(coder, symbols, description);
+                checkModel(coder, symbols, description);
+                Check.corruptPayloads(coder, symbols, 1000, FLIP_COUNT, random, description);
+            }
+            checkContainer(type, text, bytes);
+            checkSkewed(type, random);
+        }
+        Check.rejects("an unknown coder id", () -> EntropyCoderType.fromId(99));
+        Check.passed("EntropyCoderTest");
+    }
+
+    private static int[] toSymbols(byte[] bytes) {
+        int[] symbols = new int[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            symbols[i] = bytes[i] & 0xFF;
+        }
+        return symbols;
+    }
+
+    private static EntropyCoder coder(EntropyCoderType type, int[] symbols, HuffmanAlphabet alphabet) {
+        if (type == EntropyCoderType.CONTEXT)
+            return ContextHuffmanEntropyCoder.train(symbols, 0, symbols.length, alphabet,
+                    ContextHuffmanEntropyCoder.DEFAULT_MAX_CONTEXTS);
+        FrequencyTable frequencyTable = new FrequencyTable();
+        frequencyTable.addAll(symbols, 0, symbols.length);
+        return type.create(frequencyTable, alphabet);
+    }
+
+    private static void checkBlocks(EntropyCoder coder, int[] symbols, String description) {
+        Check.check(coder.getAlphabet() != null && coder.getType() != null, description + ": type and alphabet");
+        for (int symbol : symbols) {
+            if (!coder.canEncode(symbol))
+                throw new AssertionError(description + ": cannot encode " + symbol);
+        }
+        for (int length : new int[] { 0, 1, 2, 100, symbols.length }) {
+            Check.roundTrip(coder, symbols, 0, length, description + ", " + length + " symbols");
+        }
+        Check.roundTrip(coder, symbols, 50, 100, description + ", from an offset");
+    }
+
+    private static void checkModel(EntropyCoder coder, int[] symbols, String description) throws Exception {
+        ByteArrayOutputStream model = new ByteArrayOutputStream();
+        coder.writeModel(new DataOutputStream(model));
+        EntropyCoder read = coder.getType().readModel(
+                new DataInputStream(new ByteArrayInputStream(model.toByteArray())), coder.getAlphabet());
+        int[] decoded = new int[symbols.length];
+        read.decode(coder.encode(symbols, 0, symbols.length), decoded, 0, symbols.length);
+        Check.check(Arrays.equals(decoded, symbols), description + ": decoding with the model read back");
+
+        byte[] bytes = model.toByteArray();
+        for (int length = 0; length < bytes.length; length++) {
+            byte[] truncated = Arrays.copyOf(bytes, length);
+            Check.rejects(description + ": model cut at " + length, () -> coder.getType().readModel(
+                    new DataInputStream(new ByteArrayInputStream(truncated)), coder.getAlphabet()));
+        }
+    }
+
+    // Fibonacci counts give the deepest codes, so they come closest to the payload bound.
+    private static void checkSkewed(EntropyCoderType type, Random random) {
+        IntArrayList list = new IntArrayList();
+        int previous = 1;
+        int current = 1;
+        for (int symbol = 0; symbol < 26; symbol++) {
+            for (int i = 0; i < previous; i++) {
+                list.add(Character.MAX_CODE_POINT - symbol);
+            }
+            int next = previous + current;
+            previous = current;
+            current = next;
+        }
+        int[] symbols = list.toArray();
+        for (int i = symbols.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int symbol = symbols[i];
+            symbols[i] = symbols[j];
+            symbols[j] = symbol;
+        }
+
+        EntropyCoder coder = coder(type, symbols, HuffmanAlphabet.CODE_POINT);
+        byte[] payload = coder.encode(symbols, 0, symbols.length);
+        Check.check(payload.length <= coder.maxPayloadSize(symbols.length), type + ": skewed payload within the bound");
+        int[] decoded = new int[symbols.length];
+        coder.decode(payload, decoded, 0, symbols.length);
+        Check.check(Arrays.equals(decoded, symbols), type + ": skewed round trip");
+    }
+
+    private static void checkContainer(EntropyCoderType type, String text, byte[] bytes) throws Exception {
+        for (HuffmanAlphabet alphabet : new HuffmanAlphabet[] { HuffmanAlphabet.CHAR, HuffmanAlphabet.CODE_POINT }) {
+            int[] symbols = alphabet == HuffmanAlphabet.CHAR ? text.chars().toArray() : text.codePoints().toArray();
+            byte[] container = Check.containerRoundTrip(text, coder(type, symbols, alphabet), BLOCK_SIZE,
+                    type + " on " + alphabet);
+
+            byte[] unknown = container.clone();
+            unknown[CODER_ID_OFFSET] = 99;
+            Check.rejects(type + ": container with an unknown coder id",
+                    () -> HuffmanBlockContainer.decompress(new ByteArrayInputStream(unknown), new StringWriter()));
+        }
+        Check.containerRoundTrip(bytes, coder(type, toSymbols(bytes), HuffmanAlphabet.BYTE), BLOCK_SIZE,
+                type + " on BYTE");
+    }
+}
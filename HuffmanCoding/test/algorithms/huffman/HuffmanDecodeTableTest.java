@@ -0,0 +1,149 @@
+package algorithms.huffman;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+// HuffmanDecodeTable at every lookahead on codes of every length up to 64 bits, read through buffers down to a
+// byte, and on codes it cannot match: decoding has to stop with the reader at the start of the offending code.
+public class HuffmanDecodeTableTest {
+    private static final int SYMBOL_COUNT = 5000;
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(3);
+        HuffmanCodeTable complete = unaryCode(-1);
+        int[] symbols = new int[SYMBOL_COUNT];
+        for (int i = 0; i < symbols.length; i++) {
+            // Mostly short codes, and every tenth symbol of any length, up to both 64-bit codes.
+            symbols[i] = i % 10 == 0 ? random.nextInt(65) : Math.min(64, (int) (-Math.log(random.nextDouble()) * 3));
+        }
+        byte[] encoded = encode(complete, symbols);
+        for (int lookaheadBits = HuffmanDecodeTable.MIN_LOOKAHEAD_BITS;
+                lookaheadBits <= HuffmanDecodeTable.MAX_LOOKAHEAD_BITS; lookaheadBits++) {
+            HuffmanDecodeTable table = new HuffmanDecodeTable(complete, lookaheadBits);
+            for (int bufferSize : new int[] { 1, 3, 8192 }) {
+                String description = "lookahead of " + lookaheadBits + " bits, buffer of " + bufferSize;
+                checkDecode(table, encoded, bufferSize, symbols, description);
+            }
+            checkUnmatched(lookaheadBits, random);
+        }
+        checkPeek(random);
+        Check.passed("HuffmanDecodeTableTest");
+    }
+
+    // Symbol i < 63 is i ones and a zero, symbol 63 is 63 ones and a zero and symbol 64 is 64 ones. A table
+    // without the symbol missing leaves a hole in the code.
+    private static HuffmanCodeTable unaryCode(int missing) {
+        HuffmanCodeTable table = new HuffmanCodeTable(65);
+        for (int symbol = 0; symbol < 64; symbol++) {
+            if (symbol != missing)
+                table.setCode(symbol, ((1L << symbol) - 1) << 1, Math.min(64, symbol + 1));
+        }
+        if (missing != 64)
+            table.setCode(64, -1L, 64);
+        return table;
+    }
+
+    private static byte[] encode(HuffmanCodeTable table, int[] symbols) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BitWriter writer = new BitWriter(output);
+        for (int symbol : symbols) {
+            writer.writeBits(table.getCode(symbol), table.getLength(symbol));
+        }
+        writer.flush();
+        return output.toByteArray();
+    }
+
+    private static long bitLength(HuffmanCodeTable table, int[] symbols, int count) {
+        long bits = 0;
+        for (int i = 0; i < count; i++) {
+            bits += table.getLength(symbols[i]);
+        }
+        return bits;
+    }
+
+    private static void checkDecode(HuffmanDecodeTable table, byte[] encoded, int bufferSize, int[] symbols,
+            String description) throws Exception {
+        BitReader reader = new BitReader(new ByteArrayInputStream(encoded), bufferSize);
+        int[] decoded = new int[symbols.length];
+        int count = table.decode(reader, 8L * encoded.length, decoded, 0, decoded.length);
+        Check.check(count == symbols.length && Arrays.equals(decoded, symbols), description + ": decode");
+
+        reader = new BitReader(new ByteArrayInputStream(encoded), bufferSize);
+        boolean same = true;
+        for (int i = 0; same && i < symbols.length; i++) {
+            same = table.decodeSymbol(reader, 8L * encoded.length) == symbols[i];
+        }
+        Check.check(same, description + ": decodeSymbol");
+    }
+
+    // Random symbols, then one the table has no code for, then more: decode returns the symbols before it and
+    // decodeSymbol returns -1, both with the reader at the start of the unmatched code. So does a code cut short
+    // by the end bit.
+    private static void checkUnmatched(int lookaheadBits, Random random) throws Exception {
+        for (int missing : new int[] { lookaheadBits, lookaheadBits + 1, 20, 63, 64 }) {
+            HuffmanCodeTable full = unaryCode(-1);
+            HuffmanDecodeTable table = new HuffmanDecodeTable(unaryCode(missing), lookaheadBits);
+            int[] symbols = new int[200];
+            for (int i = 0; i < symbols.length; i++) {
+                do {
+                    symbols[i] = random.nextInt(65);
+                } while (symbols[i] == missing);
+            }
+            int at = random.nextInt(symbols.length);
+            symbols[at] = missing;
+            byte[] encoded = encode(full, symbols);
+            long start = bitLength(full, symbols, at);
+            String description = "lookahead of " + lookaheadBits + " bits, no code " + missing;
+
+            BitReader reader = new BitReader(new ByteArrayInputStream(encoded));
+            int count = table.decode(reader, 8L * encoded.length, new int[symbols.length], 0, symbols.length);
+            Check.check(count == at && reader.getBitCount() == start, description + ": decode stops before it");
+
+            reader = new BitReader(new ByteArrayInputStream(encoded));
+            for (int i = 0; i < at; i++) {
+                table.decodeSymbol(reader, 8L * encoded.length);
+            }
+            Check.check(table.decodeSymbol(reader, 8L * encoded.length) == -1 && reader.getBitCount() == start,
+                    description + ": decodeSymbol leaves the reader where it was");
+        }
+
+        HuffmanCodeTable complete = unaryCode(-1);
+        HuffmanDecodeTable table = new HuffmanDecodeTable(complete, lookaheadBits);
+        for (int symbol : new int[] { lookaheadBits, 40, 63, 64 }) {
+            byte[] encoded = encode(complete, new int[] { 0, symbol });
+            // The first symbol takes one bit, so the last bit of the second is past the end.
+            long endBit = complete.getLength(symbol);
+            BitReader reader = new BitReader(new ByteArrayInputStream(encoded));
+            int count = table.decode(reader, endBit, new int[2], 0, 2);
+            Check.check(count == 1 && reader.getBitCount() == 1, symbol + " cut by the end bit: decode");
+            Check.check(table.decodeSymbol(reader, endBit) == -1 && reader.getBitCount() == 1,
+                    symbol + " cut by the end bit: decodeSymbol");
+        }
+    }
+
+    // peekLongBits against reading the same bits, at every offset and length, padded with zeros past the end.
+    private static void checkPeek(Random random) throws Exception {
+        byte[] bytes = Check.bytes(random, 40);
+        for (int bufferSize : new int[] { 1, 2, 5, 8192 }) {
+            for (int offset = 0; offset <= 8 * bytes.length; offset += 3) {
+                for (int length = 0; length <= 64; length++) {
+                    BitReader reader = new BitReader(new ByteArrayInputStream(bytes), bufferSize);
+                    BitReader expected = new BitReader(new ByteArrayInputStream(
+                            Arrays.copyOf(bytes, bytes.length + 8)), bufferSize);
+                    for (int skipped = 0; skipped < offset; skipped += 7) {
+                        int step = Math.min(7, offset - skipped);
+                        reader.skipBits(step);
+                        expected.skipBits(step);
+                    }
+                    if (reader.peekLongBits(length) != expected.readBits(length) || reader.getBitCount() != offset)
+                        Check.check(false, "peek of " + length + " bits at " + offset + ", buffer of " + bufferSize);
+                }
+            }
+        }
+        Check.check(true, "peekLongBits");
+        Check.rejects("a peek of 65 bits", () -> new BitReader(new ByteArrayInputStream(new byte[0]))
+                .peekLongBits(65));
+    }
+}
@@ -0,0 +1,175 @@
+package algorithms.huffman;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// HuffmanDictionary messages on every alphabet, including symbols the corpus never had, corrupt messages and
+// dictionaries, and HuffmanDictionaryRegistry keeping every model id bound to one model, in memory and on disk.
+public class HuffmanDictionaryTest {
+    private static final int FLIP_COUNT = 200;
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(23);
+        List<String> corpus = List.of(Check.text(random, 5000));
+        for (HuffmanAlphabet alphabet : new HuffmanAlphabet[] { HuffmanAlphabet.CHAR, HuffmanAlphabet.CODE_POINT }) {
+            HuffmanDictionary dictionary = HuffmanDictionary.train(1, corpus, alphabet);
+            for (int length : new int[] { 0, 1, 17, 300 }) {
+                checkText(dictionary, Check.text(random, length));
+            }
+            // Letters, a supplementary character and a control character the corpus does not hold.
+            checkText(dictionary, "Quixotic zebras \uD83E\uDD93\u0007");
+            checkText(dictionary, "\u0000\uFFFF");
+        }
+        checkBytes(random);
+        checkEscape();
+        checkCorrupt(HuffmanDictionary.train(2, corpus, HuffmanAlphabet.CHAR), Check.text(random, 200), random);
+        checkRegistry(corpus);
+        checkDirectory(corpus);
+        Check.passed("HuffmanDictionaryTest");
+    }
+
+    private static void checkText(HuffmanDictionary dictionary, String text) throws Exception {
+        String description = dictionary.getAlphabet() + ", " + text.length() + " chars";
+        byte[] message = dictionary.encode(text);
+        Check.check(HuffmanDictionary.readModelId(message) == dictionary.getId(), description + ": model id");
+        Check.check(dictionary.decode(message).equals(text), description + ": round trip");
+        Check.check(read(write(dictionary)).decode(message).equals(text), description + ": dictionary read back");
+    }
+
+    private static void checkBytes(Random random) throws Exception {
+        FrequencyTable corpus = new FrequencyTable();
+        byte[] sample = Check.bytes(random, 2000);
+        corpus.addAll(sample, 0, sample.length);
+        HuffmanDictionary dictionary = HuffmanDictionary.train(3, corpus, HuffmanAlphabet.BYTE);
+        byte[] all = new byte[256];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = (byte) i;
+        }
+        for (byte[] bytes : new byte[][] { new byte[0], Check.bytes(random, 100), all }) {
+            byte[] message = dictionary.encode(bytes);
+            Check.check(Arrays.equals(dictionary.decodeBytes(message), bytes), bytes.length + " bytes: round trip");
+        }
+        Check.rejects("bytes decoded as text", () -> dictionary.decode(dictionary.encode(all)));
+        Check.rejects("text encoded with a byte dictionary", () -> dictionary.encode("text"));
+    }
+
+    // A corpus without 'a' makes 'a' the escape; the escape itself and every other missing symbol are escaped.
+    // A corpus covering the whole byte alphabet needs no escape.
+    private static void checkEscape() throws Exception {
+        FrequencyTable corpus = new FrequencyTable();
+        for (char character : "bcbcbcd".toCharArray()) {
+            corpus.increment(character);
+        }
+        HuffmanDictionary dictionary = HuffmanDictionary.train(4, corpus, HuffmanAlphabet.CHAR);
+        checkText(dictionary, "abcda\u00e9\uFFFFa");
+        checkText(dictionary, "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa");
+        Check.check(dictionary.encode("bcbc").length < dictionary.encode("xyxy").length,
+                "escaped symbols cost more than coded ones");
+
+        FrequencyTable everyByte = new FrequencyTable();
+        for (int i = 0; i < 256; i++) {
+            everyByte.add(i, i + 1);
+        }
+        HuffmanDictionary complete = HuffmanDictionary.train(5, everyByte, HuffmanAlphabet.BYTE);
+        byte[] bytes = { 0, (byte) 255, 17 };
+        Check.check(Arrays.equals(complete.decodeBytes(complete.encode(bytes)), bytes), "no escape: round trip");
+        Check.rejects("an empty corpus", () -> HuffmanDictionary.train(6, new FrequencyTable(), HuffmanAlphabet.CHAR));
+        Check.rejects("a negative model id", () -> HuffmanDictionary.train(-1, corpus, HuffmanAlphabet.CHAR));
+    }
+
+    private static void checkCorrupt(HuffmanDictionary dictionary, String text, Random random) throws Exception {
+        byte[] message = dictionary.encode(text);
+        for (int cut = 0; cut < message.length; cut++) {
+            byte[] truncated = Arrays.copyOf(message, cut);
+            Check.rejects("message cut at " + cut, () -> dictionary.decode(truncated));
+        }
+        for (int i = 0; i < FLIP_COUNT; i++) {
+            byte[] corrupt = message.clone();
+            corrupt[random.nextInt(corrupt.length)] ^= 1 << random.nextInt(8);
+            Check.failsCleanly("flipped message bit", () -> dictionary.decode(corrupt));
+        }
+        Check.rejects("message with a byte too many",
+                () -> dictionary.decode(Arrays.copyOf(message, message.length + 1)));
+        Check.rejects("message of another model",
+                () -> HuffmanDictionary.train(9, List.of(text), HuffmanAlphabet.CHAR).decode(message));
+
+        byte[] stored = write(dictionary);
+        for (int cut = 0; cut < stored.length; cut++) {
+            byte[] truncated = Arrays.copyOf(stored, cut);
+            Check.rejects("dictionary cut at " + cut, () -> read(truncated));
+        }
+        for (int i = 0; i < FLIP_COUNT; i++) {
+            byte[] corrupt = stored.clone();
+            corrupt[random.nextInt(corrupt.length)] ^= 1 << random.nextInt(8);
+            Check.failsCleanly("flipped dictionary bit", () -> read(corrupt).decode(message));
+        }
+    }
+
+    private static void checkRegistry(List<String> corpus) throws Exception {
+        HuffmanDictionaryRegistry registry = new HuffmanDictionaryRegistry();
+        HuffmanDictionary first = HuffmanDictionary.train(10, corpus, HuffmanAlphabet.CHAR);
+        HuffmanDictionary second = HuffmanDictionary.train(11, corpus, HuffmanAlphabet.CODE_POINT);
+        registry.register(second);
+        registry.register(first);
+        Check.check(registry.size() == 2 && registry.get(10) == first && registry.get(11) == second,
+                "registry: lookup by id");
+        Check.check(registry.get(12) == null, "registry: unknown id");
+        Check.check(registry.decode(first.encode("frog")).equals("frog")
+                && registry.decode(second.encode("pond")).equals("pond"), "registry: decoding picks the model");
+        Check.rejects("registry: message of an unknown model",
+                () -> registry.decode(HuffmanDictionary.train(12, corpus, HuffmanAlphabet.CHAR).encode("frog")));
+
+        registry.register(HuffmanDictionary.train(10, corpus, HuffmanAlphabet.CHAR));
+        Check.check(registry.size() == 2, "registry: the same model registered again");
+        Check.rejects("registry: another model under a taken id",
+                () -> registry.register(HuffmanDictionary.train(10, List.of("other corpus"), HuffmanAlphabet.CHAR)));
+    }
+
+    // A second registry on the same directory stands for another process: it loads what the first stored and
+    // may not store another model under one of those ids.
+    private static void checkDirectory(List<String> corpus) throws Exception {
+        File directory = Files.createTempDirectory("dictionary-test").toFile();
+        try {
+            HuffmanDictionaryRegistry registry = new HuffmanDictionaryRegistry(directory);
+            HuffmanDictionary dictionary = HuffmanDictionary.train(7, corpus, HuffmanAlphabet.CHAR);
+            registry.register(dictionary);
+            String text = corpus.get(0).substring(0, 500);
+            byte[] message = dictionary.encode(text);
+
+            HuffmanDictionaryRegistry other = new HuffmanDictionaryRegistry(directory);
+            Check.check(other.decode(message).equals(text), "directory: loaded by another registry");
+            Check.check(other.size() == 1, "directory: loaded dictionary kept in memory");
+
+            HuffmanDictionaryRegistry collision = new HuffmanDictionaryRegistry(directory);
+            Check.rejects("directory: another model under a stored id", () -> collision.register(
+                    HuffmanDictionary.train(7, List.of("another corpus"), HuffmanAlphabet.CHAR)));
+            Check.check(collision.size() == 0, "directory: rejected model not kept");
+            collision.register(HuffmanDictionary.train(7, corpus, HuffmanAlphabet.CHAR));
+            Check.check(new HuffmanDictionaryRegistry(directory).decode(message).equals(text),
+                    "directory: stored model unchanged");
+
+            Files.write(new File(directory, "8.hufd").toPath(), write(dictionary));
+            Check.rejects("directory: file holding another id", () -> new HuffmanDictionaryRegistry(directory).get(8));
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    private static byte[] write(HuffmanDictionary dictionary) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        dictionary.write(output);
+        return output.toByteArray();
+    }
+
+    private static HuffmanDictionary read(byte[] bytes) throws Exception {
+        return HuffmanDictionary.read(new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,148 @@
+package algorithms.huffman;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+
+// LengthLimitedCode against an exhaustive search on small alphabets, on the skewed inputs that need the limit,
+// and as the code of a HuffmanCodec that round trips.
+public class LengthLimitedCodeTest {
+    private static final int RANDOM_CASES = 300;
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(12);
+        for (int i = 0; i < RANDOM_CASES; i++) {
+            int symbolCount = 2 + random.nextInt(6);
+            long[] frequencies = new long[symbolCount];
+            for (int j = 0; j < symbolCount; j++) {
+                frequencies[j] = 1 + (long) Math.pow(random.nextInt(1000), 1 + random.nextInt(3));
+            }
+            int minLength = 32 - Integer.numberOfLeadingZeros(symbolCount - 1);
+            int maxLength = minLength + random.nextInt(symbolCount - minLength);
+            checkOptimal(frequencies, maxLength);
+        }
+
+        checkFibonacci();
+        checkIllegal();
+        checkCodec(random);
+        Check.passed("LengthLimitedCodeTest");
+    }
+
+    private static int[] symbols(int count) {
+        int[] symbols = new int[count];
+        for (int i = 0; i < count; i++) {
+            symbols[i] = 'a' + i;
+        }
+        return symbols;
+    }
+
+    // The limited code must be a complete prefix code within the limit and as short as the best of all length
+    // assignments that satisfy the Kraft inequality within it.
+    private static void checkOptimal(long[] frequencies, int maxLength) {
+        int[] symbols = symbols(frequencies.length);
+        LengthLimitedCode limitedCode = LengthLimitedCode.build(symbols, frequencies, maxLength);
+        CanonicalHuffmanCode code = limitedCode.getCode();
+        String description = frequencies.length + " symbols within " + maxLength + " bits";
+        Check.check(code.getSymbolCount() == frequencies.length, description + ": every symbol has a code");
+        Check.check(code.getMaxLength() <= maxLength, description + ": within the limit");
+
+        long bits = 0;
+        for (int i = 0; i < code.getSymbolCount(); i++) {
+            bits += frequencies[code.getSymbol(i) - 'a'] * code.getLength(i);
+        }
+        Check.check(bits == limitedCode.getLimitedBits(), description + ": reported size");
+        Check.check(bits == bestBits(frequencies, new int[frequencies.length], 0, maxLength),
+                description + ": optimal");
+
+        long optimalBits = LengthLimitedCode.build(symbols, frequencies, 64).getLimitedBits();
+        Check.check(limitedCode.getOptimalBits() == optimalBits, description + ": unrestricted size");
+        Check.check(limitedCode.getPenalty() >= 0, description + ": penalty");
+    }
+
+    private static long bestBits(long[] frequencies, int[] lengths, int index, int maxLength) {
+        if (index == lengths.length) {
+            double kraftSum = 0;
+            long bits = 0;
+            for (int i = 0; i < lengths.length; i++) {
+                kraftSum += Math.pow(2, -lengths[i]);
+                bits += frequencies[i] * lengths[i];
+            }
+            return kraftSum <= 1 ? bits : Long.MAX_VALUE;
+        }
+        long best = Long.MAX_VALUE;
+        for (int length = 1; length <= maxLength; length++) {
+            lengths[index] = length;
+            best = Math.min(best, bestBits(frequencies, lengths, index + 1, maxLength));
+        }
+        return best;
+    }
+
+    // Fibonacci frequencies give the deepest Huffman trees, one level per symbol.
+    private static void checkFibonacci() {
+        FrequencyTable frequencyTable = new FrequencyTable();
+        long previous = 1;
+        long current = 1;
+        for (int i = 0; i < 40; i++) {
+            frequencyTable.add('a' + i, previous);
+            long next = previous + current;
+            previous = current;
+            current = next;
+        }
+
+        LengthLimitedCode unlimited = LengthLimitedCode.build(frequencyTable, 64);
+        Check.check(unlimited.getCode().getMaxLength() == 39, "Fibonacci: unlimited depth");
+        Check.check(unlimited.getPenalty() == 0, "Fibonacci: no penalty without a binding limit");
+
+        double previousPenalty = 0;
+        for (int maxLength = 38; maxLength >= 6; maxLength--) {
+            LengthLimitedCode limited = LengthLimitedCode.build(frequencyTable, maxLength);
+            Check.check(limited.getCode().getMaxLength() == maxLength, "Fibonacci: limit " + maxLength);
+            Check.check(limited.getPenalty() >= previousPenalty, "Fibonacci: penalty grows as the limit drops");
+            Check.check(limited.getOptimalBits() == unlimited.getOptimalBits(), "Fibonacci: unrestricted size");
+            previousPenalty = limited.getPenalty();
+        }
+        Check.check(previousPenalty > 0, "Fibonacci: a tight limit costs bits");
+    }
+
+    private static void checkIllegal() {
+        FrequencyTable frequencyTable = new FrequencyTable();
+        for (int i = 0; i < 9; i++) {
+            frequencyTable.increment('a' + i);
+        }
+        Check.rejects("9 symbols within 3 bits", () -> LengthLimitedCode.build(frequencyTable, 3));
+        Check.rejects("a limit of 0", () -> LengthLimitedCode.build(frequencyTable, 0));
+        Check.rejects("a limit of 65", () -> LengthLimitedCode.build(frequencyTable, 65));
+        Check.rejects("a frequency of 0", () -> LengthLimitedCode.build(symbols(2), new long[] { 1, 0 }, 8));
+        Check.rejects("a missing frequency", () -> LengthLimitedCode.build(symbols(2), new long[] { 1 }, 8));
+        Check.check(LengthLimitedCode.build(frequencyTable, 4).getCode().getMaxLength() == 4,
+                "9 symbols within 4 bits");
+        Check.check(LengthLimitedCode.build(new FrequencyTable(), 8).getCode().getSymbolCount() == 0, "no symbols");
+        Check.check(LengthLimitedCode.build(symbols(1), new long[] { 5 }, 1).getCode().getLength(0) == 1,
+                "a single symbol");
+    }
+
+    // A capped codec encodes within the cap, reports the penalty of its code and still round trips.
+    private static void checkCodec(Random random) throws Exception {
+        String text = Check.text(random, 20000);
+        FrequencyTable frequencyTable = new FrequencyTable();
+        text.chars().forEach(frequencyTable::increment);
+        HuffmanCodec unlimited = HuffmanCodec.fromFrequencies(frequencyTable);
+        Check.check(unlimited.getLengthLimitPenalty() == 0, "codec: no penalty without a cap");
+
+        for (int maxCodeLength = unlimited.getMaxCodeLength(); maxCodeLength >= 5; maxCodeLength--) {
+            HuffmanCodec codec = HuffmanCodec.fromFrequencies(frequencyTable, maxCodeLength);
+            String description = "codec within " + maxCodeLength + " bits";
+            Check.check(codec.getMaxCodeLength() <= maxCodeLength, description + ": within the cap");
+            Check.check(codec.getLengthLimitPenalty() == LengthLimitedCode.build(frequencyTable, maxCodeLength)
+                    .getPenalty(), description + ": penalty");
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            codec.compress(new StringReader(text), output);
+            StringWriter writer = new StringWriter();
+            HuffmanCodec.decompress(new ByteArrayInputStream(output.toByteArray()), writer);
+            Check.check(writer.toString().equals(text), description + ": round trip");
+        }
+    }
+}
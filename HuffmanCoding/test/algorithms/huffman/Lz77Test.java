@@ -0,0 +1,144 @@
+package algorithms.huffman;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+// Lz77HuffmanEntropyCoder at every level and across window sizes, on repeats of every length and distance,
+// and with corrupt models and payloads.
+public class Lz77Test {
+    private static final int BLOCK_SIZE = 1 << 16;
+    private static final int FLIP_COUNT = 1000;
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(77);
+        int[] repeats = repeats(random, BLOCK_SIZE);
+        int[] text = Check.text(random, BLOCK_SIZE).codePoints().toArray();
+        for (int windowBits : new int[] { Lz77MatchFinder.MIN_WINDOW_BITS, 12, Lz77MatchFinder.DEFAULT_WINDOW_BITS,
+                Lz77MatchFinder.MAX_WINDOW_BITS }) {
+            for (int level = Lz77MatchFinder.MIN_LEVEL; level <= Lz77MatchFinder.MAX_LEVEL; level++) {
+                Lz77HuffmanEntropyCoder coder = new Lz77HuffmanEntropyCoder(HuffmanAlphabet.CODE_POINT,
+                        new Lz77MatchFinder(windowBits, level));
+                String description = "window of " + windowBits + " bits at level " + level;
+                checkRoundTrip(coder, repeats, description + ", repeats");
+                checkRoundTrip(coder, text, description + ", text");
+            }
+        }
+
+        Lz77HuffmanEntropyCoder coder = new Lz77HuffmanEntropyCoder(HuffmanAlphabet.CODE_POINT);
+        checkRuns(coder);
+        checkCompact(coder, random);
+        checkModels();
+        checkPayloads(coder, text, random);
+        checkContainer(Check.text(random, 5 * BLOCK_SIZE));
+        Check.passed("Lz77Test");
+    }
+
+    // Copies of earlier stretches at every match length, at distances up to the whole block, among random symbols.
+    private static int[] repeats(Random random, int length) {
+        int[] symbols = new int[length];
+        int position = 0;
+        while (position < length) {
+            int copyLength = Math.min(length - position, 1 + random.nextInt(Lz77MatchFinder.MAX_MATCH + 40));
+            if (position < 1000 || random.nextInt(3) == 0) {
+                for (int i = 0; i < copyLength; i++) {
+                    symbols[position++] = random.nextInt(300);
+                }
+                continue;
+            }
+            int from = random.nextInt(position);
+            for (int i = 0; i < copyLength; i++) {
+                symbols[position++] = symbols[from++];
+            }
+        }
+        return symbols;
+    }
+
+    private static void checkRoundTrip(EntropyCoder coder, int[] symbols, String description) {
+        Check.roundTrip(coder, symbols, 0, symbols.length, description);
+    }
+
+    // Runs overlap the symbols they copy, down to a distance of one, and compress to almost nothing.
+    private static void checkRuns(EntropyCoder coder) {
+        for (int period : new int[] { 1, 2, 3, 7, 300 }) {
+            int[] run = new int[BLOCK_SIZE];
+            for (int i = 0; i < run.length; i++) {
+                run[i] = 'a' + i % period;
+            }
+            checkRoundTrip(coder, run, "run of period " + period);
+            Check.check(coder.encode(run, 0, run.length).length < BLOCK_SIZE / 50 + 2 * period,
+                    "run of period " + period + ": size");
+        }
+        for (int length = 0; length < 10; length++) {
+            checkRoundTrip(coder, new int[length], length + " zeros");
+        }
+    }
+
+    // Length symbols follow the block's largest literal, so a block of low code points codes as compactly as it
+    // would on the byte alphabet, and the block's largest code point still codes.
+    private static void checkCompact(EntropyCoder coder, Random random) {
+        byte[] bytes = Check.bytes(random, BLOCK_SIZE);
+        int[] symbols = new int[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            symbols[i] = bytes[i] & 0xFF;
+        }
+        int codePointSize = coder.encode(symbols, 0, symbols.length).length;
+        int byteSize = new Lz77HuffmanEntropyCoder(HuffmanAlphabet.BYTE).encode(symbols, 0, symbols.length).length;
+        Check.check(codePointSize == byteSize, "low code points: as compact as bytes");
+
+        symbols[BLOCK_SIZE / 2] = Character.MAX_CODE_POINT;
+        checkRoundTrip(coder, symbols, "largest code point");
+        Check.rejects("a code point out of range", () -> coder.encode(new int[] { Character.MAX_CODE_POINT + 1 },
+                0, 1));
+    }
+
+    private static void checkModels() throws Exception {
+        for (int windowBits = Lz77MatchFinder.MIN_WINDOW_BITS - 1; windowBits <= Lz77MatchFinder.MAX_WINDOW_BITS + 1;
+                windowBits++) {
+            for (int level = Lz77MatchFinder.MIN_LEVEL - 1; level <= Lz77MatchFinder.MAX_LEVEL + 1; level++) {
+                byte[] model = { (byte) windowBits, (byte) level };
+                boolean valid = windowBits >= Lz77MatchFinder.MIN_WINDOW_BITS
+                        && windowBits <= Lz77MatchFinder.MAX_WINDOW_BITS && level >= Lz77MatchFinder.MIN_LEVEL
+                        && level <= Lz77MatchFinder.MAX_LEVEL;
+                String description = "model of " + windowBits + " bits at level " + level;
+                if (!valid) {
+                    Check.rejects(description, () -> readModel(model));
+                    continue;
+                }
+                Lz77HuffmanEntropyCoder coder = readModel(model);
+                Check.check(coder.getMatchFinder().getWindowBits() == windowBits
+                        && coder.getMatchFinder().getLevel() == level, description + ": read back");
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                coder.writeModel(new DataOutputStream(output));
+                Check.check(Arrays.equals(output.toByteArray(), model), description + ": written back");
+            }
+        }
+        Check.rejects("an empty model", () -> readModel(new byte[0]));
+        Check.rejects("a model cut after its window", () -> readModel(new byte[] { 15 }));
+    }
+
+    private static Lz77HuffmanEntropyCoder readModel(byte[] model) throws Exception {
+        return (Lz77HuffmanEntropyCoder) EntropyCoderType.LZ77.readModel(new DataInputStream(
+                new ByteArrayInputStream(model)), HuffmanAlphabet.CODE_POINT);
+    }
+
+    // Check.corruptPayloads also makes sure that a flip landing in a distance never copies from outside the block.
+    private static void checkPayloads(EntropyCoder coder, int[] symbols, Random random) {
+        int length = 5000;
+        Check.corruptPayloads(coder, symbols, length, FLIP_COUNT, random, "LZ77");
+        byte[] payload = coder.encode(symbols, 0, length);
+        Check.rejects("payload decoded to more symbols",
+                () -> coder.decode(payload, new int[length + 1], 0, length + 1));
+    }
+
+    private static void checkContainer(String text) throws Exception {
+        for (HuffmanAlphabet alphabet : new HuffmanAlphabet[] { HuffmanAlphabet.CHAR, HuffmanAlphabet.CODE_POINT }) {
+            byte[] container = Check.containerRoundTrip(text, new Lz77HuffmanEntropyCoder(alphabet), BLOCK_SIZE,
+                    alphabet.toString());
+            Check.check(container.length < text.length(), alphabet + ": container smaller than the text");
+        }
+    }
+}
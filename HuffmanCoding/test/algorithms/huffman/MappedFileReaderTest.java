@@ -0,0 +1,73 @@
+package algorithms.huffman;
+
+import java.io.File;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+// MappedFileReader against decoding the whole file at once, with windows small enough that every multi-byte
+// character, surrogate pair and malformed sequence in the input is cut by the end of a window for some size.
+public class MappedFileReaderTest {
+    private static final Charset[] CHARSETS = { StandardCharsets.UTF_8, StandardCharsets.UTF_16BE,
+            StandardCharsets.UTF_16LE, StandardCharsets.ISO_8859_1 };
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(9);
+        String text = Check.text(random, 2000);
+        for (Charset charset : CHARSETS) {
+            checkFile(text.getBytes(charset), charset);
+        }
+        // A cut-off sequence, a stray continuation byte and the lead byte of an overlong encoding among valid UTF-8.
+        byte[] malformed = "frog \u00e9 pond \uD83D\uDE00 silence".getBytes(StandardCharsets.UTF_8);
+        malformed[7] = (byte) 0xF0;
+        malformed[11] = (byte) 0x80;
+        malformed[12] = (byte) 0xC0;
+        checkFile(malformed, StandardCharsets.UTF_8);
+        checkFile(new byte[0], StandardCharsets.UTF_8);
+
+        File file = write(text.getBytes(StandardCharsets.UTF_8));
+        Check.rejects("a window of 15 bytes", () -> new MappedFileReader(file, StandardCharsets.UTF_8, 15));
+        Reader reader = new MappedFileReader(file, StandardCharsets.UTF_8, 16);
+        Check.check(reader.read(new char[4], 0, 0) == 0, "a read of no chars");
+        reader.close();
+        reader.close();
+        Check.rejects("a read after close", () -> reader.read(new char[4], 0, 4));
+        Check.passed("MappedFileReaderTest");
+    }
+
+    private static void checkFile(byte[] bytes, Charset charset) throws Exception {
+        String expected = new String(bytes, charset);
+        File file = write(bytes);
+        for (int windowSize = 16; windowSize <= 40; windowSize++) {
+            checkRead(file, charset, windowSize, 4096, expected);
+        }
+        for (int bufferSize : new int[] { 1, 2, 7 }) {
+            checkRead(file, charset, 17, bufferSize, expected);
+        }
+        checkRead(file, charset, MappedFileReader.DEFAULT_WINDOW_SIZE, 4096, expected);
+    }
+
+    private static void checkRead(File file, Charset charset, int windowSize, int bufferSize, String expected)
+            throws Exception {
+        StringBuilder text = new StringBuilder();
+        try (Reader reader = new MappedFileReader(file, charset, windowSize)) {
+            char[] buffer = new char[bufferSize + 2];
+            int charactersRead;
+            while ((charactersRead = reader.read(buffer, 1, bufferSize)) != -1) {
+                text.append(buffer, 1, charactersRead);
+            }
+            Check.check(reader.read(buffer, 1, bufferSize) == -1, "end of input stays at the end");
+        }
+        Check.check(text.toString().equals(expected), charset + ", " + file.length() + " bytes in windows of "
+                + windowSize + ", read " + bufferSize + " chars at a time");
+    }
+
+    private static File write(byte[] bytes) throws Exception {
+        File file = File.createTempFile("mapped-test", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), bytes);
+        return file;
+    }
+}
@@ -0,0 +1,128 @@
+package algorithms.huffman;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+// MinHeap against sorting, by natural order and by comparator, at several arities, and the heap tree builder
+// against the two-queue one, which must build trees with the same code lengths.
+public class MinHeapTest {
+    private static final int RANDOM_TABLES = 500;
+
+    public static void main(String[] args) {
+        Random random = new Random(5);
+        for (int arity : new int[] { 2, 3, 4, 8 }) {
+            for (int size : new int[] { 0, 1, 2, 7, 100, 1000 }) {
+                Integer[] values = new Integer[size];
+                for (int i = 0; i < size; i++) {
+                    values[i] = random.nextInt(50);
+                }
+                checkOrder(new MinHeap<>(values.clone(), arity), values, Comparator.naturalOrder(),
+                        "heapified, arity " + arity + ", " + size + " elements");
+
+                MinHeap<Integer> added = new MinHeap<>(arity);
+                for (Integer value : values) {
+                    added.add(value);
+                }
+                checkOrder(added, values, Comparator.naturalOrder(), "added, arity " + arity + ", " + size
+                        + " elements");
+
+                Comparator<Integer> descending = Comparator.reverseOrder();
+                checkOrder(new MinHeap<>(values.clone(), descending, arity), values, descending,
+                        "by comparator, arity " + arity + ", " + size + " elements");
+            }
+        }
+
+        checkTies();
+        checkAccessors();
+        checkTrees(random);
+        Check.rejects("an arity of 1", () -> new MinHeap<Integer>(1));
+        Check.passed("MinHeapTest");
+    }
+
+    private static void checkOrder(MinHeap<Integer> heap, Integer[] values, Comparator<Integer> comparator,
+            String description) {
+        Integer[] sorted = values.clone();
+        Arrays.sort(sorted, comparator);
+        Check.check(heap.size() == values.length, description + ": size");
+        Integer[] polled = new Integer[values.length];
+        for (int i = 0; i < polled.length; i++) {
+            Check.check(heap.peek().equals(heap.peek()), description + ": peek");
+            Integer top = heap.peek();
+            polled[i] = heap.poll();
+            Check.check(top == polled[i], description + ": peek is poll");
+        }
+        Check.check(Arrays.equals(polled, sorted), description + ": order");
+        Check.check(heap.size() == 0 && heap.poll() == null && heap.peek() == null, description + ": empty");
+    }
+
+    // Equal elements come out first in, first out, whether heapified or added.
+    private static void checkTies() {
+        Entry[] entries = new Entry[200];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = new Entry(i % 3, i);
+        }
+        MinHeap<Entry> heapified = new MinHeap<>(entries.clone());
+        MinHeap<Entry> added = new MinHeap<>();
+        for (Entry entry : entries) {
+            added.add(entry);
+        }
+        for (MinHeap<Entry> heap : Arrays.asList(heapified, added)) {
+            Entry previous = heap.poll();
+            while (heap.size() > 0) {
+                Entry entry = heap.poll();
+                Check.check(previous.key < entry.key || previous.key == entry.key && previous.order < entry.order,
+                        "ties in insertion order");
+                previous = entry;
+            }
+        }
+    }
+
+    private static void checkAccessors() {
+        MinHeap<String> heap = new MinHeap<>(new String[] { "pond", "frog", "silence" });
+        heap.add("old");
+        Check.check(heap.size() == 4 && heap.contains("frog") && !heap.contains("leap"), "contains");
+        Check.check(heap.poll().equals("frog") && !heap.contains("frog") && heap.size() == 3, "poll removes");
+    }
+
+    private static void checkTrees(Random random) {
+        for (int i = 0; i < RANDOM_TABLES; i++) {
+            FrequencyTable frequencyTable = new FrequencyTable();
+            int symbolCount = 1 + random.nextInt(i < RANDOM_TABLES / 2 ? 10 : 300);
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                // Few distinct counts, so that ties decide most of the tree.
+                frequencyTable.add(random.nextInt(2000), 1 + random.nextInt(i % 2 == 0 ? 3 : 1000));
+            }
+            HuffmanCodingTree leaves = HuffmanCodingTree.buildLeaves(frequencyTable);
+            Integer[] order = new Integer[leaves.getLeafCount()];
+            for (int j = 0; j < order.length; j++) {
+                order[j] = j;
+            }
+            Arrays.sort(order, (node, other) -> node.equals(other) ? 0 : leaves.precedes(node, other) ? -1 : 1);
+            CanonicalHuffmanCode sorted = HuffmanCodingTree.buildFromSortedLeaves(leaves,
+                    Arrays.stream(order).mapToInt(Integer::intValue).toArray()).toCanonicalCode();
+            CanonicalHuffmanCode heap = HuffmanCodingTree.buildWithHeap(leaves).toCanonicalCode();
+
+            boolean same = sorted.getSymbolCount() == heap.getSymbolCount();
+            for (int j = 0; same && j < sorted.getSymbolCount(); j++) {
+                same = sorted.getSymbol(j) == heap.getSymbol(j) && sorted.getLength(j) == heap.getLength(j);
+            }
+            Check.check(same, symbolCount + " symbols: heap and two-queue trees agree");
+        }
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        private int key;
+        private int order;
+
+        Entry(int key, int order) {
+            this.key = key;
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return Integer.compare(key, other.key);
+        }
+    }
+}
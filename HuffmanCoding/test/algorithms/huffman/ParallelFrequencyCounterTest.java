@@ -0,0 +1,92 @@
+package algorithms.huffman;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// ParallelFrequencyCounter against the sequential count of FrequencyTable, with chunks small enough that every
+// multi-byte character and surrogate pair in the input lands on a chunk boundary for some chunk size.
+public class ParallelFrequencyCounterTest {
+    private static final Charset[] CHARSETS = { StandardCharsets.UTF_8, StandardCharsets.UTF_16BE,
+            StandardCharsets.UTF_16LE, StandardCharsets.ISO_8859_1 };
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(8);
+        String text = Check.text(random, 3000);
+        for (Charset charset : CHARSETS) {
+            File file = write(text.getBytes(charset));
+            for (HuffmanAlphabet alphabet : new HuffmanAlphabet[] { HuffmanAlphabet.CHAR, HuffmanAlphabet.CODE_POINT,
+                    HuffmanAlphabet.BYTE }) {
+                Check.check(ParallelFrequencyCounter.supports(alphabet, charset), alphabet + " in " + charset);
+                FrequencyTable expected = FrequencyTable.count(file, alphabet, charset);
+                for (int chunkSize = 1; chunkSize <= 9; chunkSize++) {
+                    checkCount(file, alphabet, charset, chunkSize, expected);
+                }
+                checkCount(file, alphabet, charset, 4096, expected);
+                checkCount(file, alphabet, charset, Integer.MAX_VALUE, expected);
+            }
+        }
+
+        checkBoundary();
+        checkEmpty();
+        Check.check(!ParallelFrequencyCounter.supports(HuffmanAlphabet.CHAR, StandardCharsets.UTF_16),
+                "UTF-16 with a byte order mark is left to the sequential count");
+        Check.rejects("a chunk size of 0", () -> ParallelFrequencyCounter.count(write(new byte[1]),
+                HuffmanAlphabet.BYTE, StandardCharsets.UTF_8, ForkJoinPool.commonPool(), 0));
+        Check.passed("ParallelFrequencyCounterTest");
+    }
+
+    private static void checkCount(File file, HuffmanAlphabet alphabet, Charset charset, int chunkSize,
+            FrequencyTable expected) throws Exception {
+        FrequencyTable actual = ParallelFrequencyCounter.count(file, alphabet, charset, ForkJoinPool.commonPool(),
+                chunkSize);
+        String description = alphabet + " in " + charset + " with chunks of " + chunkSize + " bytes";
+        Check.check(Arrays.equals(actual.getSymbols(), expected.getSymbols()), description + ": symbols");
+        for (int symbol : expected.getSymbols()) {
+            if (actual.getCount(symbol) != expected.getCount(symbol))
+                Check.check(false, description + ": count of " + symbol);
+        }
+    }
+
+    // A supplementary character right across the default alignment of a chunk boundary in UTF-16.
+    private static void checkBoundary() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2047; i++) {
+            text.append('a');
+        }
+        text.appendCodePoint(0x1F600);
+        for (int i = 0; i < 2000; i++) {
+            text.append('b');
+        }
+        for (Charset charset : new Charset[] { StandardCharsets.UTF_16BE, StandardCharsets.UTF_16LE }) {
+            File file = write(text.toString().getBytes(charset));
+            FrequencyTable chars = ParallelFrequencyCounter.count(file, HuffmanAlphabet.CHAR, charset,
+                    ForkJoinPool.commonPool(), 4096);
+            Check.check(chars.getCount(0xFFFD) == 0 && chars.getCount(0xD83D) == 1 && chars.getCount(0xDE00) == 1,
+                    charset + ": surrogate pair on a chunk boundary");
+            FrequencyTable codePoints = ParallelFrequencyCounter.count(file, HuffmanAlphabet.CODE_POINT, charset,
+                    ForkJoinPool.commonPool(), 4096);
+            Check.check(codePoints.getCount(0x1F600) == 1 && codePoints.getCount(0xFFFD) == 0,
+                    charset + ": supplementary code point on a chunk boundary");
+        }
+    }
+
+    private static void checkEmpty() throws Exception {
+        for (Charset charset : CHARSETS) {
+            FrequencyTable frequencyTable = ParallelFrequencyCounter.count(write(new byte[0]), HuffmanAlphabet.CHAR,
+                    charset, ForkJoinPool.commonPool(), 4);
+            Check.check(frequencyTable.getDistinctSymbolCount() == 0, charset + ": empty file");
+        }
+    }
+
+    private static File write(byte[] bytes) throws Exception {
+        File file = File.createTempFile("counter-test", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), bytes);
+        return file;
+    }
+}